@@ -0,0 +1,74 @@
+package com.upc.smaf.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableCaching
+public class DashboardConfig {
+
+    public static final String CACHE_DASHBOARD = "dashboard";
+
+    /**
+     * Pool acotado para las lecturas en paralelo del dashboard.
+     * Pocos hilos para no acaparar las conexiones del pool de BD; si se llena, ejecuta el hilo que llama.
+     */
+    @Bean(name = "dashboardExecutor")
+    public ThreadPoolTaskExecutor dashboardExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(50);
+        executor.setThreadNamePrefix("dashboard-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Un solo hilo para calcular y difundir los cambios a las conexiones de /dashboard/stream.
+     */
+    @Bean(name = "dashboardStreamExecutor")
+    public ThreadPoolTaskExecutor dashboardStreamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(10);
+        executor.setThreadNamePrefix("dashboard-stream-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Respuestas del dashboard en memoria. Se vacía al confirmarse cada operación comercial;
+     * el TTL cubre lo que no genera evento (cambio de día, altas de clientes o productos).
+     */
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(CACHE_DASHBOARD);
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(60))
+                .maximumSize(200));
+        cacheManager.setAllowNullValues(false);
+        return cacheManager;
+    }
+
+    /**
+     * Clave = nombre del método + parámetros (periodo, límite, fechas), para que los métodos
+     * sin parámetros no compartan la misma entrada.
+     */
+    @Bean(name = "dashboardKeyGenerator")
+    public KeyGenerator dashboardKeyGenerator() {
+        return (target, method, params) -> new SimpleKey(method.getName(), new SimpleKey(params));
+    }
+}
@@ -0,0 +1,26 @@
+package com.upc.smaf.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+public class ImportacionConfig {
+
+    /**
+     * Hilos para los recálculos de carpetas en segundo plano (RecalculoImportacionService).
+     * Pocos y fijos: cada recálculo ocupa una conexión de BD mientras dura.
+     */
+    @Bean(name = "recalculoImportacionScheduler")
+    public ThreadPoolTaskScheduler recalculoImportacionScheduler(
+            @Value("${importacion.recalculo.hilos:2}") int hilos) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(hilos);
+        scheduler.setThreadNamePrefix("recalculo-importacion-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(30);
+        scheduler.initialize();
+        return scheduler;
+    }
+}
@@ -3,7 +3,6 @@ package com.upc.smaf.controllers;
 import com.upc.smaf.dtos.request.AlmacenRequestDTO;
 import com.upc.smaf.dtos.response.AlmacenResponseDTO;
 import com.upc.smaf.serviceinterface.AlmacenService;
-import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -24,7 +23,7 @@ public class AlmacenController {
      * POST /almacenes
      */
     @PostMapping
-    public ResponseEntity<AlmacenResponseDTO> crearAlmacen(@Valid @RequestBody AlmacenRequestDTO request) {
+    public ResponseEntity<AlmacenResponseDTO> crearAlmacen(@RequestBody AlmacenRequestDTO request) {
         AlmacenResponseDTO almacen = almacenService.crearAlmacen(request);
         return ResponseEntity.status(HttpStatus.CREATED).body(almacen);
     }
@@ -36,7 +35,7 @@ public class AlmacenController {
     @PutMapping("/{id}")
     public ResponseEntity<AlmacenResponseDTO> actualizarAlmacen(
             @PathVariable Long id,
-            @Valid @RequestBody AlmacenRequestDTO request) {
+            @RequestBody AlmacenRequestDTO request) {
         AlmacenResponseDTO almacen = almacenService.actualizarAlmacen(id, request);
         return ResponseEntity.ok(almacen);
     }
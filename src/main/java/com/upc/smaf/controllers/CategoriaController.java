@@ -3,7 +3,6 @@ package com.upc.smaf.controllers;
 import com.upc.smaf.dtos.request.CategoriaRequestDTO;
 import com.upc.smaf.dtos.response.CategoriaResponseDTO;
 import com.upc.smaf.serviceinterface.CategoriaService;
-import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -20,7 +19,7 @@ public class CategoriaController {
     private final CategoriaService categoriaService;
 
     @PostMapping
-    public ResponseEntity<CategoriaResponseDTO> crear(@Valid @RequestBody CategoriaRequestDTO categoriaRequestDTO) {
+    public ResponseEntity<CategoriaResponseDTO> crear(@RequestBody CategoriaRequestDTO categoriaRequestDTO) {
         CategoriaResponseDTO response = categoriaService.crear(categoriaRequestDTO);
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
@@ -28,7 +27,7 @@ public class CategoriaController {
     @PutMapping("/{id}")
     public ResponseEntity<CategoriaResponseDTO> actualizar(
             @PathVariable Integer id,
-            @Valid @RequestBody CategoriaRequestDTO categoriaRequestDTO) {
+            @RequestBody CategoriaRequestDTO categoriaRequestDTO) {
         CategoriaResponseDTO response = categoriaService.actualizar(id, categoriaRequestDTO);
         return ResponseEntity.ok(response);
     }
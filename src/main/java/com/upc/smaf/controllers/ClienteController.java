@@ -3,7 +3,6 @@ package com.upc.smaf.controllers;
 import com.upc.smaf.dtos.request.ClienteRequestDTO;
 import com.upc.smaf.dtos.response.ClienteResponseDTO;
 import com.upc.smaf.serviceinterface.ClienteService;
-import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -24,7 +23,7 @@ public class ClienteController {
      */
     @PostMapping
     public ResponseEntity<ClienteResponseDTO> crearCliente(
-            @Valid @RequestBody ClienteRequestDTO request) {
+            @RequestBody ClienteRequestDTO request) {
         try {
             ClienteResponseDTO response = clienteService.crearCliente(request);
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
@@ -74,7 +73,7 @@ public class ClienteController {
     @PutMapping("/{id}")
     public ResponseEntity<ClienteResponseDTO> actualizarCliente(
             @PathVariable Integer id,
-            @Valid @RequestBody ClienteRequestDTO request) {
+            @RequestBody ClienteRequestDTO request) {
         try {
             ClienteResponseDTO response = clienteService.actualizarCliente(id, request);
             return ResponseEntity.ok(response);
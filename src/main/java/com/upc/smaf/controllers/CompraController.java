@@ -1,16 +1,20 @@
 package com.upc.smaf.controllers;
 
 import com.upc.smaf.dtos.request.CompraRequestDTO;
+import com.upc.smaf.dtos.response.CompraListadoDTO;
 import com.upc.smaf.dtos.response.CompraResponseDTO;
+import com.upc.smaf.dtos.response.PaginaCursorDTO;
+import com.upc.smaf.entities.EstadoCompra;
 import com.upc.smaf.entities.MetodoPago;
 import com.upc.smaf.serviceinterface.CompraService;
-import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -23,7 +27,7 @@ public class CompraController {
     private final CompraService compraService;
 
     @PostMapping
-    public ResponseEntity<?> registrarCompra(@Valid @RequestBody CompraRequestDTO request) {
+    public ResponseEntity<?> registrarCompra(@RequestBody CompraRequestDTO request) {
         try {
             return new ResponseEntity<>(compraService.registrarCompra(request), HttpStatus.CREATED);
         } catch (RuntimeException e) {
@@ -55,11 +59,35 @@ public class CompraController {
         }
     }
 
+    @Deprecated
     @GetMapping
     public ResponseEntity<List<CompraResponseDTO>> listarTodas() {
         return ResponseEntity.ok(compraService.listarTodas());
     }
 
+    // ========== LISTADO PAGINADO (CURSOR) ==========
+    /**
+     * Ejemplo: GET /compras/pagina?proveedorId=3&estado=REGISTRADA&desde=2026-01-01&tamanio=50
+     * Para la página siguiente se envía el "siguienteCursor" recibido: &cursor=...
+     */
+    @GetMapping("/pagina")
+    public ResponseEntity<?> listarPaginado(
+            @RequestParam(required = false) Integer proveedorId,
+            @RequestParam(required = false) EstadoCompra estado,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) String codImportacion,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer tamanio) {
+        try {
+            PaginaCursorDTO<CompraListadoDTO> pagina = compraService.listarPaginado(
+                    proveedorId, estado, desde, hasta, codImportacion, cursor, tamanio);
+            return ResponseEntity.ok(pagina);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
     @GetMapping("/proveedor/{proveedorId}")
     public ResponseEntity<List<CompraResponseDTO>> listarPorProveedor(@PathVariable Integer proveedorId) {
         return ResponseEntity.ok(compraService.listarPorProveedor(proveedorId));
@@ -0,0 +1,44 @@
+package com.upc.smaf.controllers;
+
+import com.upc.smaf.dtos.response.AntiguedadCuentaPorCobrarDTO;
+import com.upc.smaf.entities.CuentaPorCobrarMovimiento;
+import com.upc.smaf.entities.CuentaPorCobrarSaldo;
+import com.upc.smaf.serviceinterface.CuentaPorCobrarService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/cuentas-por-cobrar")
+@CrossOrigin(origins = "*")
+@RequiredArgsConstructor
+public class CuentaPorCobrarController {
+
+    private final CuentaPorCobrarService cuentaPorCobrarService;
+
+    /**
+     * Deuda pendiente por cliente en tramos de 0-30, 31-60, 61-90 y más de 90 días.
+     */
+    @GetMapping("/antiguedad")
+    public ResponseEntity<List<AntiguedadCuentaPorCobrarDTO>> reporteAntiguedad() {
+        return ResponseEntity.ok(cuentaPorCobrarService.reporteAntiguedad());
+    }
+
+    @GetMapping("/clientes/{clienteId}")
+    public ResponseEntity<List<CuentaPorCobrarSaldo>> saldosPorCliente(@PathVariable Integer clienteId) {
+        return ResponseEntity.ok(cuentaPorCobrarService.saldosPendientesPorCliente(clienteId));
+    }
+
+    // Ventas de mostrador, sin cliente registrado. Ejemplo: GET /cuentas-por-cobrar/clientes?nombre=Juan Perez
+    @GetMapping("/clientes")
+    public ResponseEntity<List<CuentaPorCobrarSaldo>> saldosPorNombre(@RequestParam String nombre) {
+        return ResponseEntity.ok(cuentaPorCobrarService.saldosPendientesSinCliente(nombre));
+    }
+
+    @GetMapping("/ventas/{ventaId}/movimientos")
+    public ResponseEntity<List<CuentaPorCobrarMovimiento>> movimientosPorVenta(@PathVariable Integer ventaId) {
+        return ResponseEntity.ok(cuentaPorCobrarService.movimientosPorVenta(ventaId));
+    }
+}
@@ -4,19 +4,23 @@ import com.upc.smaf.dtos.GraficoVentasDTO;
 import com.upc.smaf.dtos.ReporteMetodoPagoDTO;
 import com.upc.smaf.dtos.response.DashboardAlertaDTO; // ✅ IMPORTAR ESTO
 import com.upc.smaf.dtos.response.DashboardResponseDTO;
+import com.upc.smaf.dtos.response.DashboardSnapshotDTO;
 import com.upc.smaf.dtos.response.ProductoVendidoDTO;
-import com.upc.smaf.repositories.VentaRepository;
+import com.upc.smaf.entities.KpiDiario;
+import com.upc.smaf.entities.VentanaRanking;
 import com.upc.smaf.serviceinterface.DashboardService;
+import com.upc.smaf.servicesimplements.DashboardStreamService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/dashboard")
@@ -25,7 +29,7 @@ import java.util.List;
 public class DashboardController {
 
     private final DashboardService dashboardService;
-    private final VentaRepository ventaRepository;
+    private final DashboardStreamService dashboardStreamService;
 
     /**
      * ✅ Endpoint PRINCIPAL para el gráfico dinámico.
@@ -50,6 +54,23 @@ public class DashboardController {
     // MÉTRICAS GENERALES Y KPI (Tarjetas Superiores)
     // ==========================================
 
+    /**
+     * Carga inicial del dashboard en una sola llamada (reemplaza las llamadas sueltas a /dashboard/*).
+     */
+    @GetMapping("/snapshot")
+    public ResponseEntity<DashboardSnapshotDTO> obtenerSnapshot() {
+        return ResponseEntity.ok(dashboardService.obtenerSnapshot());
+    }
+
+    /**
+     * Métricas en vivo (Server-Sent Events): "metricas" al conectar y "delta" con los campos que cambian
+     * tras cada venta, compra o nota de crédito. Reemplaza el polling de /metricas, /ventas-hoy, etc.
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        return dashboardStreamService.suscribir();
+    }
+
     @GetMapping("/metricas")
     public ResponseEntity<DashboardResponseDTO> obtenerMetricas() {
         return ResponseEntity.ok(dashboardService.obtenerMetricasDashboard());
@@ -84,10 +105,14 @@ public class DashboardController {
     // LISTAS Y REPORTES
     // ==========================================
 
+    /**
+     * Top de productos. ?ventana=TOTAL (defecto), DIAS_7, DIAS_30 o DIAS_365
+     */
     @GetMapping("/productos-mas-vendidos")
     public ResponseEntity<List<ProductoVendidoDTO>> obtenerProductosMasVendidos(
-            @RequestParam(defaultValue = "5") int limit) {
-        return ResponseEntity.ok(dashboardService.obtenerProductosMasVendidos(limit));
+            @RequestParam(defaultValue = "5") int limit,
+            @RequestParam(defaultValue = "TOTAL") VentanaRanking ventana) {
+        return ResponseEntity.ok(dashboardService.obtenerProductosMasVendidos(limit, ventana));
     }
 
     /**
@@ -98,6 +123,24 @@ public class DashboardController {
         return ResponseEntity.ok(dashboardService.obtenerProximasLlegadas());
     }
 
+    /**
+     * Líneas de tendencia desde las fotos diarias de KPI. Por defecto, los últimos 30 días.
+     * Ejemplo: GET /dashboard/tendencias?desde=2025-01-01&hasta=2025-06-30
+     */
+    @GetMapping("/tendencias")
+    public ResponseEntity<?> obtenerTendencias(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        LocalDate fin = hasta != null ? hasta : LocalDate.now();
+        LocalDate inicio = desde != null ? desde : fin.minusDays(29);
+        try {
+            List<KpiDiario> tendencia = dashboardService.obtenerTendencia(inicio, fin);
+            return ResponseEntity.ok(tendencia);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
     /**
      * Reporte para el Gráfico Circular (Donut) de Métodos de Pago.
      */
@@ -106,18 +149,7 @@ public class DashboardController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin
     ) {
-        LocalDateTime inicio;
-        LocalDateTime fin;
-
-        if (fechaInicio == null) {
-            inicio = LocalDate.now().atStartOfDay();
-            fin = LocalDate.now().atTime(LocalTime.MAX);
-        } else {
-            inicio = fechaInicio.atStartOfDay();
-            fin = (fechaFin != null) ? fechaFin.atTime(LocalTime.MAX) : fechaInicio.atTime(LocalTime.MAX);
-        }
-
-        List<ReporteMetodoPagoDTO> reporte = ventaRepository.obtenerReporteMetodosPago(inicio, fin);
+        List<ReporteMetodoPagoDTO> reporte = dashboardService.obtenerReporteMetodosPago(fechaInicio, fechaFin);
         return ResponseEntity.ok(reporte);
     }
 }
\ No newline at end of file
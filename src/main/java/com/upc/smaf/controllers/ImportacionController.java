@@ -5,6 +5,7 @@ import com.upc.smaf.dtos.response.ImportacionResponseDTO;
 import com.upc.smaf.entities.EstadoImportacion;
 import com.upc.smaf.serviceinterface.ImportacionService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -58,9 +59,22 @@ public class ImportacionController {
         }
     }
 
+    // Encola el recálculo y responde al instante (202) con el trabajo; su estado se consulta abajo
     @PostMapping("/{id}/recalcular")
-    public ResponseEntity<Void> recalcularCostos(@PathVariable Integer id) {
-        importacionService.recalcularCostos(id);
-        return ResponseEntity.ok().build();
+    public ResponseEntity<?> recalcularCostos(@PathVariable Integer id) {
+        try {
+            return ResponseEntity.accepted().body(importacionService.recalcularCostos(id));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/recalculos/{trabajoId}")
+    public ResponseEntity<?> obtenerRecalculo(@PathVariable String trabajoId) {
+        try {
+            return ResponseEntity.ok(importacionService.obtenerRecalculo(trabajoId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+        }
     }
 }
\ No newline at end of file
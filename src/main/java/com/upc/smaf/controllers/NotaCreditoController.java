@@ -3,7 +3,6 @@ package com.upc.smaf.controllers;
 import com.upc.smaf.dtos.request.NotaCreditoRequestDTO;
 import com.upc.smaf.dtos.response.NotaCreditoResponseDTO;
 import com.upc.smaf.serviceinterface.NotaCreditoService;
-import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -22,7 +21,7 @@ public class NotaCreditoController {
 
     // Crear nueva Nota de Crédito
     @PostMapping
-    public ResponseEntity<NotaCreditoResponseDTO> emitirNota(@Valid @RequestBody NotaCreditoRequestDTO request) {
+    public ResponseEntity<NotaCreditoResponseDTO> emitirNota(@RequestBody NotaCreditoRequestDTO request) {
         try {
             return new ResponseEntity<>(notaCreditoService.emitirNotaCredito(request), HttpStatus.CREATED);
         } catch (RuntimeException e) {
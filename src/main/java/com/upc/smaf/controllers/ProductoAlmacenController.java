@@ -3,7 +3,6 @@ package com.upc.smaf.controllers;
 import com.upc.smaf.dtos.request.ProductoAlmacenRequestDTO;
 import com.upc.smaf.dtos.response.ProductoAlmacenResponseDTO;
 import com.upc.smaf.serviceinterface.ProductoAlmacenService;
-import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -25,7 +24,7 @@ public class ProductoAlmacenController {
      */
     @PostMapping
     public ResponseEntity<ProductoAlmacenResponseDTO> asignarProductoAAlmacen(
-            @Valid @RequestBody ProductoAlmacenRequestDTO request) {
+            @RequestBody ProductoAlmacenRequestDTO request) {
         ProductoAlmacenResponseDTO response = productoAlmacenService.asignarProductoAAlmacen(request);
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
@@ -37,7 +36,7 @@ public class ProductoAlmacenController {
     @PutMapping("/{id}")
     public ResponseEntity<ProductoAlmacenResponseDTO> actualizarProductoAlmacen(
             @PathVariable Long id,
-            @Valid @RequestBody ProductoAlmacenRequestDTO request) {
+            @RequestBody ProductoAlmacenRequestDTO request) {
         ProductoAlmacenResponseDTO response = productoAlmacenService.actualizarProductoAlmacen(id, request);
         return ResponseEntity.ok(response);
     }
@@ -76,6 +75,16 @@ public class ProductoAlmacenController {
         return ResponseEntity.ok(productos);
     }
 
+    /**
+     * Productos bajo su stock mínimo en un almacén
+     * GET /producto-almacen/almacen/{almacenId}/stock-bajo
+     */
+    @GetMapping("/almacen/{almacenId}/stock-bajo")
+    public ResponseEntity<List<ProductoAlmacenResponseDTO>> listarStockBajoEnAlmacen(
+            @PathVariable Long almacenId) {
+        return ResponseEntity.ok(productoAlmacenService.listarStockBajoEnAlmacen(almacenId));
+    }
+
     /**
      * Obtener stock de un producto en un almacén específico
      * GET /producto-almacen/stock?productoId=1&almacenId=2
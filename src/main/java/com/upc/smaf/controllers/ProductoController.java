@@ -5,7 +5,6 @@ import com.upc.smaf.dtos.request.ProductoRequestDTO;
 import com.upc.smaf.dtos.response.ProductoResponseDTO;
 import com.upc.smaf.entities.ProductoAlmacen; // 👈 Para devolver el movimiento (o usa un DTO)
 import com.upc.smaf.serviceinterface.ProductoService;
-import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -25,7 +24,7 @@ public class ProductoController {
     // ==========================================
     @PostMapping
     public ResponseEntity<ProductoResponseDTO> crearProducto(
-            @Valid @RequestBody ProductoRequestDTO request) {
+            @RequestBody ProductoRequestDTO request) {
         try {
             // Este método ya no pide stock, crea el producto con stock 0
             ProductoResponseDTO response = productoService.crearProducto(request);
@@ -44,7 +43,7 @@ public class ProductoController {
      */
     @PostMapping("/ingreso-stock")
     public ResponseEntity<?> ingresarStock(
-            @Valid @RequestBody ProductoAlmacenRequestDTO request) {
+            @RequestBody ProductoAlmacenRequestDTO request) {
         try {
             // Ejecutamos la lógica (esto funciona bien)
             productoService.agregarStock(request);
@@ -85,7 +84,7 @@ public class ProductoController {
     @PutMapping("/{id}")
     public ResponseEntity<ProductoResponseDTO> actualizarProducto(
             @PathVariable Integer id,
-            @Valid @RequestBody ProductoRequestDTO request) {
+            @RequestBody ProductoRequestDTO request) {
         try {
             ProductoResponseDTO response = productoService.actualizarProducto(id, request);
             return ResponseEntity.ok(response);
@@ -3,7 +3,6 @@ package com.upc.smaf.controllers;
 import com.upc.smaf.dtos.request.ProveedorRequestDTO;
 import com.upc.smaf.dtos.response.ProveedorResponseDTO;
 import com.upc.smaf.serviceinterface.ProveedorService;
-import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
@@ -25,7 +24,7 @@ public class ProveedorController {
      * Crear un nuevo proveedor (Nacional o Internacional)
      */
     @PostMapping
-    public ResponseEntity<?> crearProveedor(@Valid @RequestBody ProveedorRequestDTO request) {
+    public ResponseEntity<?> crearProveedor(@RequestBody ProveedorRequestDTO request) {
         try {
             ProveedorResponseDTO response = proveedorService.crearProveedor(request);
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
@@ -55,7 +54,7 @@ public class ProveedorController {
     @PutMapping("/{id}")
     public ResponseEntity<?> actualizarProveedor(
             @PathVariable Integer id,
-            @Valid @RequestBody ProveedorRequestDTO request) {
+            @RequestBody ProveedorRequestDTO request) {
         try {
             ProveedorResponseDTO response = proveedorService.actualizarProveedor(id, request);
             return ResponseEntity.ok(response);
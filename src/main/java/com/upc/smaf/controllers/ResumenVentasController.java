@@ -0,0 +1,63 @@
+package com.upc.smaf.controllers;
+
+import com.upc.smaf.dtos.response.PagosPorCuentaDTO;
+import com.upc.smaf.entities.ResumenPagoDiario;
+import com.upc.smaf.serviceinterface.ResumenVentasService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/resumenes-ventas")
+@CrossOrigin(origins = "*")
+@RequiredArgsConstructor
+public class ResumenVentasController {
+
+    private final ResumenVentasService resumenVentasService;
+
+    /**
+     * Cobros por cuenta destino y moneda en el rango (conciliación bancaria). cuentaId = 0: sin cuenta.
+     * Ejemplo: GET /resumenes-ventas/pagos/cuentas?desde=2025-06-01&hasta=2025-06-30
+     */
+    @GetMapping("/pagos/cuentas")
+    public ResponseEntity<List<PagosPorCuentaDTO>> pagosPorCuenta(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        return ResponseEntity.ok(resumenVentasService.pagosPorCuenta(desde, hasta));
+    }
+
+    /**
+     * Detalle diario por método y moneda de una cuenta.
+     * Ejemplo: GET /resumenes-ventas/pagos/cuentas/3?desde=2025-06-01&hasta=2025-06-30
+     */
+    @GetMapping("/pagos/cuentas/{cuentaId}")
+    public ResponseEntity<List<ResumenPagoDiario>> pagosDeCuenta(
+            @PathVariable Integer cuentaId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        return ResponseEntity.ok(resumenVentasService.pagosDeCuenta(cuentaId, desde, hasta));
+    }
+
+    /**
+     * Recalcula los resúmenes de ventas del rango (carga inicial o corrección).
+     * Ejemplo: POST /resumenes-ventas/reconstruir?desde=2025-01-01&hasta=2025-12-31
+     */
+    @PostMapping("/reconstruir")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> reconstruir(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        try {
+            resumenVentasService.reconstruir(desde, hasta);
+            return ResponseEntity.ok(Map.of("message", "Resúmenes reconstruidos del " + desde + " al " + hasta));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+}
@@ -4,7 +4,6 @@ import com.upc.smaf.dtos.request.TareaRequestDTO;
 import com.upc.smaf.dtos.response.TareaResponseDTO;
 import com.upc.smaf.entities.EstadoTarea;
 import com.upc.smaf.serviceinterface.TareaService;
-import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -29,7 +28,7 @@ public class TareaController {
     @PostMapping
     @PreAuthorize("hasAuthority('ADMIN')") // 🔒 SEGURIDAD REAL
     public ResponseEntity<?> crearTarea(
-            @Valid @RequestBody TareaRequestDTO request,
+            @RequestBody TareaRequestDTO request,
             Authentication authentication) { // Spring inyecta al usuario logueado aquí
         try {
             // Pasamos el username del token al servicio
@@ -1,18 +1,26 @@
 package com.upc.smaf.controllers;
 
 import com.upc.smaf.dtos.request.VentaRequestDTO;
+import com.upc.smaf.dtos.response.LoteVentasResponseDTO;
+import com.upc.smaf.dtos.response.PaginaCursorDTO;
+import com.upc.smaf.dtos.response.VentaListadoDTO;
 import com.upc.smaf.dtos.response.VentaResponseDTO;
 import com.upc.smaf.entities.EstadoVenta;
 import com.upc.smaf.entities.MetodoPago;
 import com.upc.smaf.serviceinterface.VentaService;
-import jakarta.validation.Valid;
+import com.upc.smaf.servicesimplements.IdempotenciaVentaService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -26,11 +34,31 @@ public class VentaController {
     private final VentaService ventaService;
 
     // ========== CREAR VENTA COMPLETA ==========
+    // Con el header Idempotency-Key, un reintento del POS devuelve la misma venta en lugar de duplicarla
     @PostMapping
-    public ResponseEntity<?> crearVenta(@Valid @RequestBody VentaRequestDTO request) {
+    public ResponseEntity<?> crearVenta(@RequestBody VentaRequestDTO request,
+                                        @RequestHeader(value = "Idempotency-Key", required = false) String claveIdempotencia) {
         try {
-            VentaResponseDTO response = ventaService.crearVenta(request);
+            VentaResponseDTO response = ventaService.crearVenta(request, claveIdempotencia);
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (IdempotenciaVentaService.ClaveReutilizadaException e) {
+            return ResponseEntity.unprocessableEntity().body(Map.of("message", e.getMessage()));
+        } catch (IdempotenciaVentaService.ClaveEnProcesoException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "No se pudo registrar la venta"));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // ========== IMPORTACIÓN MASIVA ==========
+    // Carga de ventas desde hojas de sucursales; devuelve el resultado de cada fila
+    @PostMapping("/lote")
+    public ResponseEntity<?> crearVentasEnLote(@RequestBody List<VentaRequestDTO> requests) {
+        try {
+            LoteVentasResponseDTO response = ventaService.crearVentasEnLote(requests);
+            return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         }
@@ -38,7 +66,7 @@ public class VentaController {
 
     // ========== GUARDAR BORRADOR ==========
     @PostMapping("/borrador")
-    public ResponseEntity<?> guardarBorrador(@Valid @RequestBody VentaRequestDTO request) {
+    public ResponseEntity<?> guardarBorrador(@RequestBody VentaRequestDTO request) {
         try {
             VentaResponseDTO response = ventaService.guardarBorrador(request);
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
@@ -112,11 +140,36 @@ public class VentaController {
     }
 
     // ========== LISTAR TODAS ==========
+    /**
+     * @deprecated Devuelve todo el historial. Usar GET /ventas/pagina.
+     */
+    @Deprecated
     @GetMapping
     public ResponseEntity<List<VentaResponseDTO>> listarTodas() {
         return ResponseEntity.ok(ventaService.listarTodas());
     }
 
+    // ========== LISTADO PAGINADO (CURSOR) ==========
+    /**
+     * Ejemplo: GET /ventas/pagina?estado=COMPLETADA&desde=2026-01-01T00:00:00&tamanio=50
+     * Para la página siguiente se envía el "siguienteCursor" recibido: &cursor=...
+     */
+    @GetMapping("/pagina")
+    public ResponseEntity<?> listarPaginado(
+            @RequestParam(required = false) EstadoVenta estado,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            @RequestParam(required = false) String cliente,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer tamanio) {
+        try {
+            PaginaCursorDTO<VentaListadoDTO> pagina = ventaService.listarPaginado(estado, desde, hasta, cliente, cursor, tamanio);
+            return ResponseEntity.ok(pagina);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
     // ========== LISTAR POR ESTADO ==========
     @GetMapping("/estado/{estado}")
     public ResponseEntity<List<VentaResponseDTO>> listarPorEstado(@PathVariable EstadoVenta estado) {
@@ -136,11 +189,18 @@ public class VentaController {
     }
 
     // ========== LISTAR POR FECHAS ==========
+    // Se transmite fila por fila (NDJSON por defecto, o CSV con ?formato=csv) para exportar meses completos
     @GetMapping("/fechas")
-    public ResponseEntity<List<VentaResponseDTO>> listarPorFecha(
+    public ResponseEntity<StreamingResponseBody> listarPorFecha(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime inicio,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fin) {
-        return ResponseEntity.ok(ventaService.listarPorFecha(inicio, fin));
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fin,
+            @RequestParam(defaultValue = "ndjson") String formato) {
+        boolean csv = "csv".equalsIgnoreCase(formato);
+        StreamingResponseBody cuerpo = salida -> ventaService.exportarPorFecha(inicio, fin, formato, salida);
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, csv ? "attachment; filename=\"ventas.csv\"" : "inline")
+                .body(cuerpo);
     }
 
     // ========== BUSCAR POR CLIENTE ==========
@@ -153,7 +213,7 @@ public class VentaController {
     @PutMapping("/{id}")
     public ResponseEntity<?> actualizarVenta(
             @PathVariable Integer id,
-            @Valid @RequestBody VentaRequestDTO request) {
+            @RequestBody VentaRequestDTO request) {
         try {
             VentaResponseDTO response = ventaService.actualizarVenta(id, request);
             return ResponseEntity.ok(response);
@@ -184,4 +244,4 @@ public class VentaController {
     public ResponseEntity<String> salud() {
         return ResponseEntity.ok("✅ Módulo Ventas funcionando correctamente");
     }
-}
\ No newline at end of file
+}
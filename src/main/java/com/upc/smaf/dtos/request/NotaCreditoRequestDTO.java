@@ -1,11 +1,14 @@
 package com.upc.smaf.dtos.request;
 
 import com.upc.smaf.entities.MotivoNota;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import lombok.Data;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @Data
 public class NotaCreditoRequestDTO {
@@ -21,4 +24,18 @@ public class NotaCreditoRequestDTO {
     private BigDecimal monto;
 
     private String observaciones;
+
+    // Solo para DEVOLUCION_POR_ITEM: productos y unidades que se devuelven
+    @Valid
+    private List<ItemDevueltoDTO> items;
+
+    @Data
+    public static class ItemDevueltoDTO {
+        @NotNull(message = "El ID del producto es requerido")
+        private Integer productoId;
+
+        @NotNull(message = "La cantidad es requerida")
+        @Min(value = 1, message = "La cantidad debe ser al menos 1")
+        private Integer cantidad;
+    }
 }
\ No newline at end of file
@@ -26,7 +26,7 @@ public class VentaRequestDTO {
 
     // --- NUEVO: LISTA DINÁMICA DE PAGOS ---
     // Ya no usamos campos fijos como pagoEfectivo o cuentaBancariaId aquí.
-    @NotEmpty(message = "Debe registrar al menos un método de pago")
+    // Puede venir vacía (ventas a crédito sin inicial); el pago completo al CONTADO lo valida VentaService
     @Valid
     private List<PagoRequestDTO> pagos;
 
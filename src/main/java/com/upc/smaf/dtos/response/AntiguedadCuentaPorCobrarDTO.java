@@ -0,0 +1,25 @@
+package com.upc.smaf.dtos.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Deuda pendiente de un cliente (por moneda) repartida por antigüedad en días desde la venta.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AntiguedadCuentaPorCobrarDTO {
+    // null: ventas de mostrador de ese nombre, sin cliente registrado
+    private Integer clienteId;
+    private String nombreCliente;
+    private String moneda;
+    private BigDecimal de0a30;
+    private BigDecimal de31a60;
+    private BigDecimal de61a90;
+    private BigDecimal masDe90;
+    private BigDecimal total;
+}
@@ -0,0 +1,32 @@
+package com.upc.smaf.dtos.response;
+
+import com.upc.smaf.entities.EstadoCompra;
+import com.upc.smaf.entities.TipoCompra;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Fila liviana para listados de compras (sin detalles, pagos ni prorrateo).
+ * Se construye directamente en la consulta JPQL.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompraListadoDTO {
+    private Integer id;
+    private String serie;
+    private String numero;
+    private LocalDate fechaEmision;
+    private Integer proveedorId;
+    private String nombreProveedor;
+    private TipoCompra tipoCompra;
+    private EstadoCompra estado;
+    private String moneda;
+    private BigDecimal total;
+    private BigDecimal saldoPendiente;
+    private String codImportacion;
+}
@@ -3,6 +3,7 @@ package com.upc.smaf.dtos.response;
 import lombok.Data;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
 
 @Data
 public class CompraResponseDTO {
@@ -45,4 +46,7 @@ public class CompraResponseDTO {
     private BigDecimal proOtrosGastos;
 
     private BigDecimal costoTotalImportacion;
+
+    // Solo en el detalle (GET /compras/{id}); null en los listados
+    private List<PagoCompraResponseDTO> pagos;
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.upc.smaf.dtos.response;
+
+import com.upc.smaf.dtos.GraficoVentasDTO;
+import com.upc.smaf.dtos.ReporteMetodoPagoDTO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Todo lo que la pantalla de inicio necesita en una sola respuesta (GET /dashboard/snapshot).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardSnapshotDTO {
+    private DashboardResponseDTO metricas;
+    private List<GraficoVentasDTO> ventasSemana;
+    private List<ProductoVendidoDTO> productosMasVendidos;
+    private List<DashboardAlertaDTO> proximasLlegadas;
+    private List<ReporteMetodoPagoDTO> metodosPagoHoy;
+}
@@ -0,0 +1,26 @@
+package com.upc.smaf.dtos.response;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Resultado de POST /ventas/lote: un resumen y el detalle fila por fila (en el orden recibido).
+ */
+@Data
+public class LoteVentasResponseDTO {
+
+    private int total;
+    private int exitosas;
+    private int fallidas;
+    private List<ResultadoFila> resultados;
+
+    @Data
+    public static class ResultadoFila {
+        private int fila;          // Posición en el lote, empezando en 1
+        private boolean exito;
+        private Integer ventaId;
+        private String codigo;
+        private String mensaje;    // Motivo del rechazo cuando exito = false
+    }
+}
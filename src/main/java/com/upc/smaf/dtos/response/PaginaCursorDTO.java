@@ -0,0 +1,19 @@
+package com.upc.smaf.dtos.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Página de resultados con paginación por cursor (keyset).
+ * siguienteCursor es null cuando no hay más resultados.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaCursorDTO<T> {
+    private List<T> items;
+    private String siguienteCursor;
+}
@@ -0,0 +1,23 @@
+package com.upc.smaf.dtos.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Total cobrado en una cuenta destino y moneda dentro de un rango (para conciliación bancaria).
+ * cuentaId = 0 agrupa los pagos sin cuenta destino (efectivo); en ese caso nombreCuenta y banco son null.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PagosPorCuentaDTO {
+    private Integer cuentaId;
+    private String nombreCuenta;
+    private String banco;
+    private String moneda;
+    private BigDecimal monto;
+    private Long cantidad;
+}
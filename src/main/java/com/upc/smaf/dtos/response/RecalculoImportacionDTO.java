@@ -0,0 +1,22 @@
+package com.upc.smaf.dtos.response;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Estado de un recálculo de carpeta en segundo plano (POST /importaciones/{id}/recalcular).
+ */
+@Data
+public class RecalculoImportacionDTO {
+
+    private String trabajoId;
+    private Integer importacionId;
+    private String estado;         // PENDIENTE, EN_PROCESO, COMPLETADO, REPROGRAMADO, ERROR
+    private int solicitudes;       // Solicitudes agrupadas en este trabajo
+    private LocalDateTime fechaSolicitud;
+    private LocalDateTime fechaInicio;
+    private LocalDateTime fechaFin;
+    private String mensaje;        // Motivo cuando estado = ERROR o REPROGRAMADO
+    private String trabajoSiguienteId; // Trabajo que lo continúa cuando estado = REPROGRAMADO
+}
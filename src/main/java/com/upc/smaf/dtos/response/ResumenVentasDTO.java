@@ -0,0 +1,23 @@
+package com.upc.smaf.dtos.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Totales de ventas completadas de hoy, ayer, el mes actual y el mes anterior,
+ * obtenidos en una sola consulta (VentaRepository.resumenVentas).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenVentasDTO {
+    private BigDecimal ventasHoy;
+    private Long cantidadHoy;
+    private BigDecimal ventasAyer;
+    private BigDecimal ventasMes;
+    private Long cantidadMes;
+    private BigDecimal ventasMesAnterior;
+}
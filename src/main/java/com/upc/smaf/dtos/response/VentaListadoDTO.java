@@ -0,0 +1,29 @@
+package com.upc.smaf.dtos.response;
+
+import com.upc.smaf.entities.EstadoVenta;
+import com.upc.smaf.entities.TipoPago;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Fila liviana para listados de ventas (sin detalles ni pagos).
+ * Se construye directamente en la consulta JPQL.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VentaListadoDTO {
+    private Integer id;
+    private String codigo;
+    private LocalDateTime fechaVenta;
+    private String nombreCliente;
+    private EstadoVenta estado;
+    private TipoPago tipoPago;
+    private String moneda;
+    private BigDecimal total;
+    private BigDecimal saldoPendiente;
+}
@@ -13,7 +13,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "compras")
+@Table(name = "compras", indexes = {
+        @Index(name = "ix_compras_cod_importacion", columnList = "cod_importacion"),
+        @Index(name = "ix_compras_fecha_id", columnList = "fec_emision, id"),
+        @Index(name = "ix_compras_proveedor_fecha_id", columnList = "proveedor_id, fec_emision, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -47,7 +51,7 @@ public class Compra {
     @Column(name = "fec_vencimiento")
     private LocalDate fechaVencimiento;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "proveedor_id", nullable = false)
     private Proveedor proveedor;
 
@@ -141,7 +145,8 @@ public class Compra {
     @OneToMany(mappedBy = "compra", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<CompraDetalle> detalles = new ArrayList<>();
 
-    @OneToMany(mappedBy = "compra", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    // LAZY: solo el detalle de la compra los carga (CompraRepository.findConPagosById)
+    @OneToMany(mappedBy = "compra", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<PagoCompra> pagos = new ArrayList<>();
 
     @Column(name = "fecha_registro")
@@ -42,6 +42,11 @@ public class CompraDetalle {
     @Column(name = "importe_total", precision = 12, scale = 2)
     private BigDecimal importeTotal;
 
+    // ✅ Costo landed de la línea (importe + su parte de los gastos de importación).
+    // null = aún no cuenta en el costo promedio del producto. Solo lo escribe CostoLandedService
+    @Column(name = "costo_landed_total", precision = 14, scale = 2, insertable = false, updatable = false)
+    private BigDecimal costoLandedTotal;
+
     // Método helper para calcular el total de la línea antes de guardar
     public void calcularImporte() {
         if (this.precioUnitario != null && this.cantidad != null) {
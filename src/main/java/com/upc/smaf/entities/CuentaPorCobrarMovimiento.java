@@ -0,0 +1,55 @@
+package com.upc.smaf.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Libro de cuentas por cobrar: solo se insertan filas, nunca se modifican.
+ * El saldo vigente de cada venta está precalculado en CuentaPorCobrarSaldo.
+ */
+@Entity
+@Table(name = "cxc_movimientos", indexes = {
+        @Index(name = "ix_cxc_movimientos_venta", columnList = "venta_id"),
+        @Index(name = "ix_cxc_movimientos_cliente_id_fecha", columnList = "cliente_id, fecha")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CuentaPorCobrarMovimiento {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cxc_movimiento_seq")
+    @SequenceGenerator(name = "cxc_movimiento_seq", sequenceName = "cxc_movimientos_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "venta_id", nullable = false)
+    private Integer ventaId;
+
+    @Column(name = "cliente_id")
+    private Integer clienteId;
+
+    @Column(name = "nombre_cliente", length = 200)
+    private String nombreCliente;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private TipoMovimientoCxC tipo;
+
+    // Siempre positivo; el signo lo da el tipo
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal monto;
+
+    @Column(length = 3)
+    private String moneda;
+
+    @Column(nullable = false)
+    private LocalDateTime fecha;
+
+    @Column(length = 100)
+    private String referencia;
+}
@@ -0,0 +1,53 @@
+package com.upc.smaf.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Saldo por cobrar de cada venta al crédito, mantenido en la misma transacción que sus movimientos.
+ * Los reportes de antigüedad leen solo esta tabla (índice parcial saldo > 0 en db/esquema_auxiliar.sql).
+ */
+@Entity
+@Table(name = "cxc_saldos", indexes = {
+        @Index(name = "ix_cxc_saldos_cliente_id", columnList = "cliente_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CuentaPorCobrarSaldo {
+
+    @Id
+    @Column(name = "venta_id")
+    private Integer ventaId;
+
+    @Column(name = "codigo_venta", length = 20)
+    private String codigoVenta;
+
+    // Clave del cliente para la antigüedad y las consultas; null en ventas de mostrador (se agrupan por nombre)
+    @Column(name = "cliente_id")
+    private Integer clienteId;
+
+    @Column(name = "nombre_cliente", length = 200)
+    private String nombreCliente;
+
+    @Column(length = 3)
+    private String moneda;
+
+    // Fecha desde la que se cuenta la antigüedad de la deuda
+    @Column(name = "fecha_venta", nullable = false)
+    private LocalDateTime fechaVenta;
+
+    @Column(name = "monto_original", nullable = false, precision = 10, scale = 2)
+    private BigDecimal montoOriginal;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal saldo;
+
+    @Column(name = "fecha_actualizacion")
+    private LocalDateTime fechaActualizacion;
+}
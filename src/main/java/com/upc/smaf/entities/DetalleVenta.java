@@ -3,7 +3,9 @@ package com.upc.smaf.entities;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import java.math.BigDecimal;
 
 @Entity
@@ -14,15 +16,22 @@ import java.math.BigDecimal;
 public class DetalleVenta {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "detalle_venta_seq")
+    @SequenceGenerator(name = "detalle_venta_seq", sequenceName = "detalle_ventas_seq", allocationSize = 50)
     private Integer id;
 
+    // Fuera de equals/hashCode: Hibernate compara la colección de detalles en cada flush y no debe
+    // inicializar la venta, el producto ni su categoría (una consulta por línea)
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "venta_id", nullable = false)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Venta venta;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "producto_id", nullable = false)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Producto producto;
 
     @Column(nullable = false)
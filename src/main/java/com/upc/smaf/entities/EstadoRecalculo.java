@@ -0,0 +1,9 @@
+package com.upc.smaf.entities;
+
+public enum EstadoRecalculo {
+    PENDIENTE,    // Esperando su turno; las solicitudes nuevas de la carpeta se suman a este trabajo
+    EN_PROCESO,   // Lo tomó un nodo
+    COMPLETADO,
+    REPROGRAMADO, // No terminó (la carpeta cambió o el nodo se detuvo): continúa en trabajoSiguienteId
+    ERROR
+}
@@ -0,0 +1,42 @@
+package com.upc.smaf.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Registro de claves Idempotency-Key de POST /ventas.
+ * La clave es la PK: dos envíos simultáneos con la misma clave no pueden crear dos ventas.
+ */
+@Entity
+@Table(name = "idempotencia_ventas", indexes = {
+        // Purga diaria de claves vencidas
+        @Index(name = "ix_idempotencia_ventas_fecha", columnList = "fecha_creacion")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotenciaVenta {
+
+    @Id
+    @Column(length = 100)
+    private String clave;
+
+    // SHA-256 (hex) del cuerpo de la petición: la misma clave con otro contenido se rechaza.
+    // Nulo en claves registradas antes de la columna.
+    @Column(length = 64)
+    private String huella;
+
+    @Column(name = "venta_id")
+    private Integer ventaId;
+
+    // VentaResponseDTO serializado como JSON
+    @Column(columnDefinition = "TEXT")
+    private String respuesta;
+
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion;
+}
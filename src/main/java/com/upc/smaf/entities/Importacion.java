@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Persistable;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -16,7 +17,7 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class Importacion {
+public class Importacion implements Persistable<Integer> {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -87,6 +88,19 @@ public class Importacion {
 
     private LocalDateTime fechaCreacion;
 
+    // Bloqueo optimista: dos ediciones simultáneas de la carpeta no se pisan.
+    // También es la clave del prorrateo en memoria (ProrrateoImportacionService)
+    @Version
+    private Long version;
+
+    // Nueva = sin id. Con @Version, Spring Data miraría la versión, y una carpeta antigua con versión nula
+    // se insertaría de nuevo en lugar de actualizarse
+    @Override
+    @Transient
+    public boolean isNew() {
+        return id == null;
+    }
+
     @PrePersist
     void prePersist() {
         this.fechaCreacion = LocalDateTime.now();
@@ -0,0 +1,47 @@
+package com.upc.smaf.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Foto diaria de los indicadores del dashboard (una fila por día).
+ * Sirve para los porcentajes de cambio (hoy vs la foto de hace un mes) y para las líneas de tendencia.
+ */
+@Entity
+@Table(name = "kpi_diario")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KpiDiario {
+
+    @Id
+    private LocalDate fecha;
+
+    // Ventas completadas del día
+    @Column(name = "ventas_dia", nullable = false, precision = 14, scale = 2)
+    private BigDecimal ventasDia;
+
+    @Column(name = "cantidad_ventas_dia", nullable = false)
+    private Long cantidadVentasDia;
+
+    @Column(name = "clientes", nullable = false)
+    private Long clientes;
+
+    @Column(name = "productos", nullable = false)
+    private Long productos;
+
+    @Column(name = "productos_stock_bajo", nullable = false)
+    private Integer productosStockBajo;
+
+    @Column(name = "valor_inventario", nullable = false, precision = 16, scale = 2)
+    private BigDecimal valorInventario;
+
+    @Column(name = "fecha_registro", nullable = false)
+    private LocalDateTime fechaRegistro;
+}
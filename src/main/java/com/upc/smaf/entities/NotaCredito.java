@@ -7,6 +7,8 @@ import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
 @Table(name = "notas_credito")
@@ -45,6 +47,10 @@ public class NotaCredito {
     @Column(name = "fecha_emision", nullable = false)
     private LocalDateTime fechaEmision;
 
+    // Productos devueltos (solo DEVOLUCION_POR_ITEM)
+    @OneToMany(mappedBy = "notaCredito", cascade = CascadeType.ALL, orphanRemoval = true)
+    private List<NotaCreditoDetalle> detalles = new ArrayList<>();
+
     @PrePersist
     protected void onCreate() {
         fechaEmision = LocalDateTime.now();
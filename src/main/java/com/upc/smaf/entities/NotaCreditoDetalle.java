@@ -0,0 +1,41 @@
+package com.upc.smaf.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Unidades de un producto devueltas con una nota de crédito por ítem (DEVOLUCION_POR_ITEM).
+ * Las notas de devolución total no llevan detalle: devuelven todo lo que quedaba por devolver.
+ */
+@Entity
+@Table(name = "notas_credito_detalles", indexes = {
+        @Index(name = "ix_notas_credito_detalles_nota", columnList = "nota_credito_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotaCreditoDetalle {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "nota_credito_id", nullable = false)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private NotaCredito notaCredito;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "producto_id", nullable = false)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Producto producto;
+
+    @Column(nullable = false)
+    private Integer cantidad;
+}
@@ -3,19 +3,25 @@ package com.upc.smaf.entities;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "pagos")
+@Table(name = "pagos", indexes = {
+        // Reconstrucción del resumen diario de pagos por rango de fecha de pago
+        @Index(name = "ix_pagos_fecha_pago", columnList = "fecha_pago")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Pago {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pago_seq")
+    @SequenceGenerator(name = "pago_seq", sequenceName = "pagos_seq", allocationSize = 50)
     private Integer id;
 
     @Column(nullable = false, precision = 10, scale = 2)
@@ -36,12 +42,16 @@ public class Pago {
     @Column(length = 100)
     private String referencia;
 
-    // Relación con Venta
+    // Relación con Venta (fuera de equals/hashCode/toString: no deben inicializar proxies LAZY)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "venta_id", nullable = false)
     private Venta venta;
 
     // Cuenta destino
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "cuenta_destino_id", nullable = true)
     private CuentaBancaria cuentaDestino;
@@ -1,10 +1,14 @@
 package com.upc.smaf.entities;
 
 import com.upc.smaf.entities.TipoProducto;
+import com.upc.smaf.listeners.StockBajoListener;
+import com.upc.smaf.listeners.ValorInventarioListener;
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import lombok.ToString;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -13,6 +17,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "productos")
+@EntityListeners({ValorInventarioListener.class, StockBajoListener.class})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -59,6 +64,14 @@ public class Producto {
     @Column(name = "costo_total", precision = 10, scale = 2)
     private BigDecimal costoTotal;
 
+    // Acumulados del costo promedio ponderado (costoTotal = costoLandedAcumulado / cantidadCosteada).
+    // Solo los actualiza CostoLandedService con un UPDATE en lote
+    @Column(name = "cantidad_costeada", insertable = false, updatable = false)
+    private Integer cantidadCosteada;
+
+    @Column(name = "costo_landed_acumulado", precision = 14, scale = 2, insertable = false, updatable = false)
+    private BigDecimal costoLandedAcumulado;
+
     @Column(name = "precio_venta", precision = 10, scale = 2)
     private BigDecimal precioVenta;
 
@@ -77,6 +90,18 @@ public class Producto {
     @Column(name = "fecha_actualizacion")
     private LocalDateTime fechaActualizacion = LocalDateTime.now();
 
+    // Stock × costo con el que este producto está contado en el valor de inventario (no se persiste)
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private BigDecimal valorInventarioRegistrado;
+
+    // Si estaba bajo su mínimo al cargarse o guardarse por última vez (no se persiste)
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Boolean bajoMinimoRegistrado;
+
     @PreUpdate
     protected void onUpdate() {
         this.fechaActualizacion = LocalDateTime.now();
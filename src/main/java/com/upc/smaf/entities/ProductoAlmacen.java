@@ -1,15 +1,19 @@
 package com.upc.smaf.entities;
 
+import com.upc.smaf.listeners.StockBajoListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "producto_almacen",
         uniqueConstraints = @UniqueConstraint(columnNames = {"id_producto", "id_almacen"}))
+@EntityListeners(StockBajoListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -45,6 +49,12 @@ public class ProductoAlmacen {
     @Column(name = "fecha_actualizacion")
     private LocalDateTime fechaActualizacion;
 
+    // Si estaba bajo su mínimo al cargarse o guardarse por última vez (no se persiste)
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Boolean bajoMinimoRegistrado;
+
     @PrePersist
     protected void onCreate() {
         fechaCreacion = LocalDateTime.now();
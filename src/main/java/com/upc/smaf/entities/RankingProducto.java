@@ -0,0 +1,47 @@
+package com.upc.smaf.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * Unidades y monto vendidos por producto en cada ventana (todo el historial, últimos 7/30/365 días).
+ * Solo ventas completadas. El índice por (ventana, cantidad DESC) entrega el top-K sin ordenar.
+ */
+@Entity
+@Table(name = "ranking_productos", indexes = {
+        @Index(name = "ix_ranking_productos_ventana_cantidad", columnList = "ventana, cantidad DESC")
+})
+@IdClass(RankingProducto.Clave.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RankingProducto {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 10)
+    private VentanaRanking ventana;
+
+    @Id
+    @Column(name = "producto_id")
+    private Integer productoId;
+
+    @Column(nullable = false)
+    private Long cantidad;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal total;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Clave implements Serializable {
+        private VentanaRanking ventana;
+        private Integer productoId;
+    }
+}
@@ -0,0 +1,59 @@
+package com.upc.smaf.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Trabajo de recálculo de una carpeta de importación (RecalculoImportacionService).
+ * Está en la BD para que cualquier nodo lo ejecute y para consultar su estado desde cualquiera.
+ * Cada carpeta tiene a lo sumo un trabajo PENDIENTE (índice único parcial en db/esquema_auxiliar.sql).
+ */
+@Entity
+@Table(name = "recalculos_importacion", indexes = {
+        // Búsqueda del próximo trabajo listo y purga de los terminados
+        @Index(name = "ix_recalculos_importacion_estado_fecha", columnList = "estado, fecha_programada")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecalculoImportacion {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "importacion_id", nullable = false)
+    private Integer importacionId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private EstadoRecalculo estado;
+
+    // Solicitudes agrupadas en este trabajo
+    @Column(nullable = false)
+    private Integer solicitudes;
+
+    @Column(name = "fecha_solicitud", nullable = false)
+    private LocalDateTime fechaSolicitud;
+
+    // No se ejecuta antes: las solicitudes que llegan mientras tanto se agrupan
+    @Column(name = "fecha_programada", nullable = false)
+    private LocalDateTime fechaProgramada;
+
+    @Column(name = "fecha_inicio")
+    private LocalDateTime fechaInicio;
+
+    @Column(name = "fecha_fin")
+    private LocalDateTime fechaFin;
+
+    @Column(length = 500)
+    private String mensaje;
+
+    // Trabajo que continúa a este cuando quedó REPROGRAMADO
+    @Column(name = "trabajo_siguiente_id", length = 36)
+    private String trabajoSiguienteId;
+}
@@ -0,0 +1,57 @@
+package com.upc.smaf.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Pagos recibidos por día de pago (fecha_pago), método, moneda y cuenta destino.
+ * cuentaId = 0 cuando el pago no tiene cuenta destino (efectivo), para que la clave no tenga nulos.
+ */
+@Entity
+@Table(name = "resumen_pagos_diario", indexes = {
+        @Index(name = "ix_resumen_pagos_cuenta_fecha", columnList = "cuenta_id, fecha")
+})
+@IdClass(ResumenPagoDiario.Clave.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenPagoDiario {
+
+    @Id
+    private LocalDate fecha;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "metodo_pago", length = 30)
+    private MetodoPago metodoPago;
+
+    @Id
+    @Column(length = 3)
+    private String moneda;
+
+    @Id
+    @Column(name = "cuenta_id")
+    private Integer cuentaId;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal monto;
+
+    @Column(nullable = false)
+    private Long cantidad;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Clave implements Serializable {
+        private LocalDate fecha;
+        private MetodoPago metodoPago;
+        private String moneda;
+        private Integer cuentaId;
+    }
+}
@@ -0,0 +1,29 @@
+package com.upc.smaf.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Ventas completadas por día (por fecha de venta). Se actualiza al completar o cancelar una venta.
+ */
+@Entity
+@Table(name = "resumen_ventas_diario")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenVentaDiaria {
+
+    @Id
+    private LocalDate fecha;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal total;
+
+    @Column(nullable = false)
+    private Long cantidad;
+}
@@ -0,0 +1,29 @@
+package com.upc.smaf.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Ventas completadas por mes. periodo = primer día del mes.
+ */
+@Entity
+@Table(name = "resumen_ventas_mensual")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenVentaMensual {
+
+    @Id
+    private LocalDate periodo;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal total;
+
+    @Column(nullable = false)
+    private Long cantidad;
+}
@@ -0,0 +1,45 @@
+package com.upc.smaf.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Unidades y monto vendidos por producto y día (solo ventas completadas).
+ */
+@Entity
+@Table(name = "resumen_ventas_producto_diario", indexes = {
+        @Index(name = "ix_resumen_producto_diario_producto", columnList = "producto_id, fecha")
+})
+@IdClass(ResumenVentaProductoDiaria.Clave.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenVentaProductoDiaria {
+
+    @Id
+    private LocalDate fecha;
+
+    @Id
+    @Column(name = "producto_id")
+    private Integer productoId;
+
+    @Column(nullable = false)
+    private Long cantidad;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal total;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Clave implements Serializable {
+        private LocalDate fecha;
+        private Integer productoId;
+    }
+}
@@ -0,0 +1,7 @@
+package com.upc.smaf.entities;
+
+public enum TipoMovimientoCxC {
+    CARGO,      // Venta al crédito: aumenta la deuda del cliente
+    ABONO,      // Pago inicial o amortización
+    ANULACION   // Cancelación de la venta: se da de baja el saldo restante
+}
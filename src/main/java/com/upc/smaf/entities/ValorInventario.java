@@ -0,0 +1,30 @@
+package com.upc.smaf.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Valor del inventario (stock × costo de todos los productos) repartido en varias filas ("ranuras").
+ * El valor es la suma de las ranuras; cada transacción que mueve stock o costo suma su variación en una
+ * sola ranura al azar, así las ventas simultáneas no esperan todas por la misma fila.
+ * Las ranuras se crean en db/esquema_auxiliar.sql.
+ */
+@Entity
+@Table(name = "valor_inventario")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ValorInventario {
+
+    public static final int RANURAS = 16;
+
+    @Id
+    private Short ranura;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal valor;
+}
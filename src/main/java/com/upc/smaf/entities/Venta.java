@@ -10,14 +10,20 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "ventas")
+@Table(name = "ventas", indexes = {
+        // Paginación por cursor (fechaVenta DESC, id DESC), con y sin filtro de estado
+        @Index(name = "ix_ventas_fecha_id", columnList = "fecha_venta, id"),
+        @Index(name = "ix_ventas_estado_fecha_id", columnList = "estado, fecha_venta, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Venta {
 
+    // SEQUENCE con bloques de 50 (no IDENTITY) para que Hibernate pueda agrupar los INSERT en batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "venta_seq")
+    @SequenceGenerator(name = "venta_seq", sequenceName = "ventas_seq", allocationSize = 50)
     private Integer id;
 
     @Column(nullable = false, unique = true, length = 20)
@@ -26,6 +32,10 @@ public class Venta {
     @Column(name = "fecha_venta", nullable = false)
     private LocalDateTime fechaVenta;
 
+    // Cliente registrado (opcional: las ventas de mostrador solo llevan el nombre)
+    @Column(name = "cliente_id")
+    private Integer clienteId;
+
     @Column(name = "nombre_cliente", length = 100)
     private String nombreCliente;
 
@@ -86,9 +96,8 @@ public class Venta {
     @OneToMany(mappedBy = "venta", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<DetalleVenta> detalles = new ArrayList<>();
 
-    // ✅ CORRECCIÓN CRÍTICA: fetch = FetchType.EAGER
-    // Esto obliga a Java a traer los pagos siempre que consultes la venta.
-    @OneToMany(mappedBy = "venta", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    // LAZY: los listados cargan los pagos en bloque con VentaRepository.cargarPagos
+    @OneToMany(mappedBy = "venta", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Pago> pagos = new ArrayList<>();
 
     // --- AUDITORÍA ---
@@ -0,0 +1,27 @@
+package com.upc.smaf.entities;
+
+import java.time.LocalDate;
+
+public enum VentanaRanking {
+    TOTAL(0),       // Todo el historial
+    DIAS_7(7),      // Hoy y los 6 días anteriores
+    DIAS_30(30),
+    DIAS_365(365);
+
+    private final int dias;
+
+    VentanaRanking(int dias) {
+        this.dias = dias;
+    }
+
+    public int getDias() {
+        return dias;
+    }
+
+    /**
+     * Primer día incluido en la ventana; null para TOTAL.
+     */
+    public LocalDate desde(LocalDate hoy) {
+        return dias == 0 ? null : hoy.minusDays(dias - 1L);
+    }
+}
@@ -0,0 +1,22 @@
+package com.upc.smaf.events;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Se publica dentro de la transacción que crea o modifica una venta, compra, nota de crédito o importación.
+ * Los listeners que solo deben reaccionar a datos confirmados usan @TransactionalEventListener(AFTER_COMMIT).
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class OperacionComercialEvent {
+
+    public enum Tipo {
+        VENTA, COMPRA, NOTA_CREDITO, IMPORTACION
+    }
+
+    private final Tipo tipo;
+    private final Integer id;
+}
@@ -0,0 +1,24 @@
+package com.upc.smaf.events;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Un producto (o su ubicación en un almacén) cruzó su stock mínimo.
+ * bajoMinimo = true cuando entra en alerta y false cuando se repone. Se publica dentro de la transacción
+ * del movimiento de stock; los suscriptores que solo deben ver cambios confirmados usan
+ * @TransactionalEventListener(AFTER_COMMIT).
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class StockBajoEvent {
+
+    private final Integer productoId;
+    // null = stock total del producto; si no, el almacén de la ubicación
+    private final Long almacenId;
+    private final Integer stock;
+    private final Integer stockMinimo;
+    private final boolean bajoMinimo;
+}
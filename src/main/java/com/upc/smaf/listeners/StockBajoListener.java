@@ -0,0 +1,54 @@
+package com.upc.smaf.listeners;
+
+import com.upc.smaf.entities.Producto;
+import com.upc.smaf.entities.ProductoAlmacen;
+import com.upc.smaf.servicesimplements.StockBajoService;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Compara la marca de stock bajo de Producto y ProductoAlmacen al cargarlos y al guardarlos por JPA,
+ * e informa los cruces al StockBajoService.
+ */
+@Component
+public class StockBajoListener {
+
+    // ObjectProvider: el listener se crea junto al EntityManagerFactory, antes que los servicios
+    private final ObjectProvider<StockBajoService> stockBajoService;
+
+    public StockBajoListener(ObjectProvider<StockBajoService> stockBajoService) {
+        this.stockBajoService = stockBajoService;
+    }
+
+    @PostLoad
+    public void alCargar(Object entidad) {
+        if (entidad instanceof Producto producto) {
+            producto.setBajoMinimoRegistrado(StockBajoService.estaBajoMinimo(producto));
+        } else if (entidad instanceof ProductoAlmacen productoAlmacen) {
+            productoAlmacen.setBajoMinimoRegistrado(StockBajoService.estaBajoMinimo(productoAlmacen));
+        }
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void alGuardar(Object entidad) {
+        if (entidad instanceof Producto producto) {
+            boolean ahora = StockBajoService.estaBajoMinimo(producto);
+            boolean antes = Boolean.TRUE.equals(producto.getBajoMinimoRegistrado());
+            producto.setBajoMinimoRegistrado(ahora);
+            stockBajoService.getObject().registrarCambio(producto.getId(), null,
+                    producto.getStockActual(), producto.getStockMinimo(), antes, ahora);
+        } else if (entidad instanceof ProductoAlmacen productoAlmacen) {
+            boolean ahora = StockBajoService.estaBajoMinimo(productoAlmacen);
+            boolean antes = Boolean.TRUE.equals(productoAlmacen.getBajoMinimoRegistrado());
+            productoAlmacen.setBajoMinimoRegistrado(ahora);
+            stockBajoService.getObject().registrarCambio(
+                    productoAlmacen.getProducto() != null ? productoAlmacen.getProducto().getId() : null,
+                    productoAlmacen.getAlmacen() != null ? productoAlmacen.getAlmacen().getId() : null,
+                    productoAlmacen.getStock(), productoAlmacen.getStockMinimo(), antes, ahora);
+        }
+    }
+}
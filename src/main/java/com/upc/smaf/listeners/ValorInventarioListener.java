@@ -0,0 +1,54 @@
+package com.upc.smaf.listeners;
+
+import com.upc.smaf.entities.Producto;
+import com.upc.smaf.servicesimplements.ValorInventarioService;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+/**
+ * Detecta cambios de stock o costo en Producto (cualquier servicio que lo guarde por JPA)
+ * y los informa como variación al ValorInventarioService.
+ */
+@Component
+public class ValorInventarioListener {
+
+    // ObjectProvider: el listener se crea junto al EntityManagerFactory, antes que los repositorios
+    private final ObjectProvider<ValorInventarioService> valorInventarioService;
+
+    public ValorInventarioListener(ObjectProvider<ValorInventarioService> valorInventarioService) {
+        this.valorInventarioService = valorInventarioService;
+    }
+
+    @PostLoad
+    public void alCargar(Producto producto) {
+        producto.setValorInventarioRegistrado(valorDe(producto));
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void alGuardar(Producto producto) {
+        BigDecimal anterior = producto.getValorInventarioRegistrado() != null
+                ? producto.getValorInventarioRegistrado() : BigDecimal.ZERO;
+        BigDecimal nuevo = valorDe(producto);
+        producto.setValorInventarioRegistrado(nuevo);
+        valorInventarioService.getObject().registrarVariacion(nuevo.subtract(anterior));
+    }
+
+    @PostRemove
+    public void alEliminar(Producto producto) {
+        if (producto.getValorInventarioRegistrado() != null) {
+            valorInventarioService.getObject().registrarVariacion(producto.getValorInventarioRegistrado().negate());
+        }
+    }
+
+    private BigDecimal valorDe(Producto producto) {
+        if (producto.getCostoTotal() == null || producto.getStockActual() == null) return BigDecimal.ZERO;
+        return producto.getCostoTotal().multiply(BigDecimal.valueOf(producto.getStockActual()));
+    }
+}
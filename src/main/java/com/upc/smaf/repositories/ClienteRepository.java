@@ -3,6 +3,7 @@ package com.upc.smaf.repositories;
 import com.upc.smaf.entities.Cliente;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -38,6 +39,34 @@ public interface ClienteRepository extends JpaRepository<Cliente, Integer> {
             "c.activo = true")
     List<Cliente> buscarClientes(String termino);
 
+    // Búsqueda indexada para el autocompletado, con límite. Dos ramas en UNION ALL, en este orden:
+    // 1) nombre o documento que empiezan con el término (índices text_pattern_ops, rango del btree)
+    // 2) el resto de coincidencias en cualquier parte de nombre, documento o email (índices pg_trgm)
+    // PostgreSQL ejecuta las ramas en orden y deja de leer al llegar al límite: si los prefijos alcanzan,
+    // la rama por trigramas no se ejecuta. Sin ORDER BY externo: ordenar la unión obligaría a leer ambas.
+    @Query(value = "SELECT * FROM (" +
+            "(SELECT c.* FROM clientes c WHERE c.activo = true " +
+            " AND (LOWER(c.nombre_completo) LIKE :empieza OR LOWER(c.numero_documento) LIKE :empieza) " +
+            " ORDER BY LOWER(c.nombre_completo) LIMIT :limite) " +
+            "UNION ALL " +
+            "(SELECT c.* FROM clientes c WHERE c.activo = true " +
+            " AND (LOWER(c.nombre_completo) LIKE :contiene OR LOWER(c.numero_documento) LIKE :contiene " +
+            "      OR LOWER(c.email) LIKE :contiene) " +
+            " AND (LOWER(c.nombre_completo) LIKE :empieza) IS NOT TRUE " +
+            " AND (LOWER(c.numero_documento) LIKE :empieza) IS NOT TRUE " +
+            " ORDER BY LOWER(c.nombre_completo) LIMIT :limite)" +
+            ") t LIMIT :limite", nativeQuery = true)
+    List<Cliente> buscarClientesIndexado(@Param("contiene") String contiene,
+                                         @Param("empieza") String empieza,
+                                         @Param("limite") int limite);
+
+    // Términos de 1 o 2 caracteres: no forman trigramas y '%ab%' recorrería todo el índice GIN.
+    // Solo se buscan los nombres y documentos que empiezan con el término.
+    @Query(value = "SELECT c.* FROM clientes c WHERE c.activo = true " +
+            "AND (LOWER(c.nombre_completo) LIKE :empieza OR LOWER(c.numero_documento) LIKE :empieza) " +
+            "ORDER BY LOWER(c.nombre_completo) LIMIT :limite", nativeQuery = true)
+    List<Cliente> buscarClientesPorPrefijo(@Param("empieza") String empieza, @Param("limite") int limite);
+
     // ========== AGREGAR ESTE MÉTODO AL FINAL DE ClienteRepository ==========
 
     /**
@@ -2,10 +2,13 @@ package com.upc.smaf.repositories;
 
 import com.upc.smaf.entities.CompraDetalle;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -25,4 +28,16 @@ public interface CompraDetalleRepository extends JpaRepository<CompraDetalle, In
             "WHERE d.producto.id = :productoId " +
             "AND d.compra.importacion.estado IN ('ORDENADO', 'EN_TRANSITO', 'EN_ADUANAS')") // Quitamos NACIONALIZADO si ya entra al stock físico
     Integer obtenerStockPorLlegar(@Param("productoId") Integer productoId);
+
+    // Líneas de varias compras para el costeo landed (CostoLandedService), sin cargar las entidades
+    // Cada fila: [id, compraId, estadoCompra, tipoCompra, productoId, cantidad, importeTotal, costoLandedTotal]
+    @Query("SELECT d.id, c.id, c.estado, c.tipoCompra, d.producto.id, d.cantidad, d.importeTotal, d.costoLandedTotal " +
+            "FROM CompraDetalle d JOIN d.compra c WHERE c.id IN :compraIds ORDER BY c.id, d.id")
+    List<Object[]> findLineasParaCosteo(@Param("compraIds") Collection<Integer> compraIds);
+
+    @Modifying
+    @Query(value = "UPDATE compra_detalles d SET costo_landed_total = v.costo " +
+            "FROM unnest(CAST(:ids AS integer[]), CAST(:costos AS numeric[])) AS v(id, costo) " +
+            "WHERE d.id = v.id", nativeQuery = true)
+    int actualizarCostoLandedEnLote(@Param("ids") Integer[] ids, @Param("costos") BigDecimal[] costos);
 }
\ No newline at end of file
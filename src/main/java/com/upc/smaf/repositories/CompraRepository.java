@@ -1,31 +1,90 @@
 package com.upc.smaf.repositories;
 
 import com.upc.smaf.entities.Compra;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CompraRepository extends JpaRepository<Compra, Integer> {
+public interface CompraRepository extends JpaRepository<Compra, Integer>, CompraRepositoryCustom {
 
     // Buscar duplicados
     Optional<Compra> findBySerieAndNumeroAndProveedorId(String serie, String numero, Integer proveedorId);
 
     // Listar por proveedor
+    @EntityGraph(attributePaths = "proveedor")
     List<Compra> findByProveedorId(Integer proveedorId);
 
+    // Listado completo con el proveedor en la misma consulta (mapToResponseDTO lo usa)
+    @EntityGraph(attributePaths = "proveedor")
+    @Query("SELECT c FROM Compra c")
+    List<Compra> findAllConProveedor();
+
+    // Detalle: proveedor y pagos (con su cuenta) en una sola consulta
+    @Query("SELECT DISTINCT c FROM Compra c JOIN FETCH c.proveedor " +
+            "LEFT JOIN FETCH c.pagos p LEFT JOIN FETCH p.cuentaOrigen WHERE c.id = :id")
+    Optional<Compra> findConPagosById(@Param("id") Integer id);
+
     // Búsqueda general
+    @EntityGraph(attributePaths = "proveedor")
     @Query("SELECT c FROM Compra c WHERE c.numero LIKE %:numero%")
     List<Compra> buscarPorNumero(@Param("numero") String numero);
 
     // ✅ NUEVO: Buscar facturas por el CÓDIGO DE TEXTO (Ej: dame todas las de "2026-01")
     // Útil para ver qué facturas puso el usuario con ese código antes de crear la carpeta
+    @EntityGraph(attributePaths = "proveedor")
     List<Compra> findByCodImportacion(String codImportacion);
 
+    // Proveedores distintos por código de importación, para varias carpetas en una sola consulta
+    // Cada fila: [codImportacion, nombreProveedor]
+    @Query("SELECT DISTINCT c.codImportacion, p.nombre FROM Compra c JOIN c.proveedor p " +
+            "WHERE c.codImportacion IN :codigos ORDER BY c.codImportacion, p.nombre")
+    List<Object[]> findProveedoresPorCodImportacion(@Param("codigos") Collection<String> codigos);
+
     // ✅ NUEVO: Buscar facturas por la RELACIÓN REAL (Foreign Key)
     List<Compra> findByImportacionId(Integer importacionId);
+
+    // Carpeta de la compra sin cargarla: se bloquea la carpeta antes que la compra
+    @Query("SELECT c.importacion.id FROM Compra c WHERE c.id = :id")
+    Optional<Integer> findImportacionIdById(@Param("id") Integer id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Compra c WHERE c.id = :id")
+    Optional<Compra> findByIdParaActualizar(@Param("id") Integer id);
+
+    // Prorrateo de toda una carpeta en un solo UPDATE (ProrrateoImportacionService); arreglos paralelos por factura
+    @Modifying
+    @Query(value = "UPDATE compras c SET pro_flete = v.flete, pro_almacenaje = v.almacenaje, " +
+            "pro_transporte = v.transporte, pro_carga_descarga = v.carga_descarga, " +
+            "pro_desconsolidacion = v.desconsolidacion, pro_gastos_aduaneros = v.gastos_aduaneros, " +
+            "pro_seguro_resguardo = v.seguro_resguardo, pro_impuestos = v.impuestos, " +
+            "pro_otros_gastos = v.otros_gastos, costo_total_importacion = v.costo_total " +
+            "FROM unnest(CAST(:ids AS integer[]), CAST(:flete AS numeric[]), CAST(:almacenaje AS numeric[]), " +
+            "CAST(:transporte AS numeric[]), CAST(:cargaDescarga AS numeric[]), CAST(:desconsolidacion AS numeric[]), " +
+            "CAST(:gastosAduaneros AS numeric[]), CAST(:seguroResguardo AS numeric[]), CAST(:impuestos AS numeric[]), " +
+            "CAST(:otrosGastos AS numeric[]), CAST(:costoTotal AS numeric[])) " +
+            "AS v(id, flete, almacenaje, transporte, carga_descarga, desconsolidacion, gastos_aduaneros, " +
+            "seguro_resguardo, impuestos, otros_gastos, costo_total) " +
+            "WHERE c.id = v.id", nativeQuery = true)
+    int actualizarProrrateoEnLote(@Param("ids") Integer[] ids,
+                                  @Param("flete") BigDecimal[] flete,
+                                  @Param("almacenaje") BigDecimal[] almacenaje,
+                                  @Param("transporte") BigDecimal[] transporte,
+                                  @Param("cargaDescarga") BigDecimal[] cargaDescarga,
+                                  @Param("desconsolidacion") BigDecimal[] desconsolidacion,
+                                  @Param("gastosAduaneros") BigDecimal[] gastosAduaneros,
+                                  @Param("seguroResguardo") BigDecimal[] seguroResguardo,
+                                  @Param("impuestos") BigDecimal[] impuestos,
+                                  @Param("otrosGastos") BigDecimal[] otrosGastos,
+                                  @Param("costoTotal") BigDecimal[] costoTotal);
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.upc.smaf.repositories;
+
+import com.upc.smaf.dtos.response.CompraListadoDTO;
+import com.upc.smaf.entities.EstadoCompra;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface CompraRepositoryCustom {
+
+    // ========== LISTADO PAGINADO (KEYSET) ==========
+    // Orden estable (fechaEmision DESC, id DESC); el cursor es la última fila de la página anterior.
+    // Los filtros nulos no entran en la consulta.
+    List<CompraListadoDTO> listarPagina(Integer proveedorId, EstadoCompra estado, LocalDate desde, LocalDate hasta,
+                                        String codImportacion, LocalDate cursorFecha, Integer cursorId, int limite);
+}
@@ -0,0 +1,32 @@
+package com.upc.smaf.repositories;
+
+import com.upc.smaf.dtos.response.CompraListadoDTO;
+import com.upc.smaf.entities.EstadoCompra;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.time.LocalDate;
+import java.util.List;
+
+class CompraRepositoryCustomImpl implements CompraRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<CompraListadoDTO> listarPagina(Integer proveedorId, EstadoCompra estado, LocalDate desde, LocalDate hasta,
+                                               String codImportacion, LocalDate cursorFecha, Integer cursorId, int limite) {
+        return new ListadoKeyset()
+                .filtro("p.id = :proveedorId", "proveedorId", proveedorId)
+                .filtro("c.estado = :estado", "estado", estado)
+                .filtro("c.fechaEmision >= :desde", "desde", desde)
+                .filtro("c.fechaEmision <= :hasta", "hasta", hasta)
+                .filtro("c.codImportacion = :codImportacion", "codImportacion", codImportacion)
+                .despuesDe("c.fechaEmision", "c.id", cursorFecha, cursorId)
+                .listar(entityManager, CompraListadoDTO.class,
+                        "SELECT new com.upc.smaf.dtos.response.CompraListadoDTO(" +
+                        "c.id, c.serie, c.numero, c.fechaEmision, p.id, p.nombre, c.tipoCompra, c.estado, c.moneda, " +
+                        "c.total, c.saldoPendiente, c.codImportacion) FROM Compra c JOIN c.proveedor p",
+                        "c.fechaEmision DESC, c.id DESC", limite);
+    }
+}
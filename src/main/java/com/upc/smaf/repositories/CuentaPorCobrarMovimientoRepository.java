@@ -0,0 +1,13 @@
+package com.upc.smaf.repositories;
+
+import com.upc.smaf.entities.CuentaPorCobrarMovimiento;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CuentaPorCobrarMovimientoRepository extends JpaRepository<CuentaPorCobrarMovimiento, Long> {
+
+    List<CuentaPorCobrarMovimiento> findByVentaIdOrderByFechaAscIdAsc(Integer ventaId);
+}
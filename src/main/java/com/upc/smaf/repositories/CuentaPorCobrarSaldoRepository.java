@@ -0,0 +1,47 @@
+package com.upc.smaf.repositories;
+
+import com.upc.smaf.dtos.response.AntiguedadCuentaPorCobrarDTO;
+import com.upc.smaf.entities.CuentaPorCobrarSaldo;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CuentaPorCobrarSaldoRepository extends JpaRepository<CuentaPorCobrarSaldo, Integer> {
+
+    // Actualización incremental: no se relee ni se recalcula la deuda, solo se aplica el movimiento.
+    // Condicional: un abono mayor que el saldo no actualiza nada (el saldo nunca queda negativo)
+    @Modifying
+    @Query("UPDATE CuentaPorCobrarSaldo s SET s.saldo = s.saldo - :monto, s.fechaActualizacion = CURRENT_TIMESTAMP " +
+            "WHERE s.ventaId = :ventaId AND s.saldo >= :monto")
+    int descontar(@Param("ventaId") Integer ventaId, @Param("monto") BigDecimal monto);
+
+    List<CuentaPorCobrarSaldo> findByClienteIdAndSaldoGreaterThanOrderByFechaVentaAsc(Integer clienteId, BigDecimal saldo);
+
+    // Ventas de mostrador (sin cliente registrado)
+    List<CuentaPorCobrarSaldo> findByClienteIdIsNullAndNombreClienteAndSaldoGreaterThanOrderByFechaVentaAsc(
+            String nombreCliente, BigDecimal saldo);
+
+    // ========== ANTIGÜEDAD DE SALDOS ==========
+    // Una sola lectura de los saldos vivos (saldo > 0), agrupada por cliente y moneda.
+    // El cliente es su id (el nombre escrito en cada venta puede variar); sin id, el nombre.
+    @Query("SELECT new com.upc.smaf.dtos.response.AntiguedadCuentaPorCobrarDTO(" +
+            "s.clienteId, MAX(s.nombreCliente), s.moneda, " +
+            "COALESCE(SUM(CASE WHEN s.fechaVenta >= :hace30 THEN s.saldo END), 0), " +
+            "COALESCE(SUM(CASE WHEN s.fechaVenta < :hace30 AND s.fechaVenta >= :hace60 THEN s.saldo END), 0), " +
+            "COALESCE(SUM(CASE WHEN s.fechaVenta < :hace60 AND s.fechaVenta >= :hace90 THEN s.saldo END), 0), " +
+            "COALESCE(SUM(CASE WHEN s.fechaVenta < :hace90 THEN s.saldo END), 0), " +
+            "SUM(s.saldo)) " +
+            "FROM CuentaPorCobrarSaldo s WHERE s.saldo > 0 " +
+            "GROUP BY s.clienteId, CASE WHEN s.clienteId IS NULL THEN s.nombreCliente END, s.moneda " +
+            "ORDER BY SUM(s.saldo) DESC")
+    List<AntiguedadCuentaPorCobrarDTO> reporteAntiguedad(@Param("hace30") LocalDateTime hace30,
+                                                         @Param("hace60") LocalDateTime hace60,
+                                                         @Param("hace90") LocalDateTime hace90);
+}
@@ -2,9 +2,9 @@ package com.upc.smaf.repositories;
 
 import com.upc.smaf.dtos.response.ProductoVendidoDTO;
 import com.upc.smaf.entities.DetalleVenta;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,7 +12,8 @@ import java.util.List;
 @Repository
 public interface DetalleVentaRepository extends JpaRepository<DetalleVenta, Integer> {
     /**
-     * Obtiene los productos más vendidos
+     * Obtiene los productos más vendidos recorriendo todo el historial (el límite va en el Pageable).
+     * Para el dashboard usar RankingProductoRepository, que está precalculado.
      */
     @Query("SELECT new com.upc.smaf.dtos.response.ProductoVendidoDTO(" +
             "p.id, " +
@@ -25,5 +26,5 @@ public interface DetalleVentaRepository extends JpaRepository<DetalleVenta, Inte
             "WHERE p.activo = true " +
             "GROUP BY p.id, p.nombre, p.codigo " +
             "ORDER BY SUM(dv.cantidad) DESC")
-    List<ProductoVendidoDTO> findProductosMasVendidos(@Param("limit") int limit);
+    List<ProductoVendidoDTO> findProductosMasVendidos(Pageable pageable);
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.upc.smaf.repositories;
+
+import com.upc.smaf.entities.IdempotenciaVenta;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotenciaVentaRepository extends JpaRepository<IdempotenciaVenta, String> {
+
+    // INSERT directo: si otra petición ya reservó la clave, espera a que termine. Devuelve 0 si esa petición
+    // confirmó (la clave ya existe) sin abortar la transacción, como haría un error de PK duplicada.
+    @Modifying
+    @Query(value = "INSERT INTO idempotencia_ventas (clave, huella, fecha_creacion) VALUES (:clave, :huella, NOW()) " +
+            "ON CONFLICT (clave) DO NOTHING", nativeQuery = true)
+    int reservar(@Param("clave") String clave, @Param("huella") String huella);
+
+    @Modifying
+    @Query("UPDATE IdempotenciaVenta i SET i.ventaId = :ventaId, i.respuesta = :respuesta WHERE i.clave = :clave")
+    int guardarRespuesta(@Param("clave") String clave, @Param("ventaId") Integer ventaId, @Param("respuesta") String respuesta);
+
+    @Modifying
+    @Query("DELETE FROM IdempotenciaVenta i WHERE i.fechaCreacion < :limite")
+    int eliminarAnterioresA(@Param("limite") LocalDateTime limite);
+}
@@ -1,11 +1,16 @@
 package com.upc.smaf.repositories;
 
 import com.upc.smaf.entities.Importacion;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,11 +20,54 @@ public interface ImportacionRepository extends JpaRepository<Importacion, Intege
     // Buscar por el código de texto (Ej: "CHINA-2026-01")
     Optional<Importacion> findByCodigoAgrupador(String codigoAgrupador);
 
+    // ========== BLOQUEO DE LA CARPETA ==========
+    // Todo lo que toca el costo de las facturas de una carpeta (edición, recálculo, registro y anulación de
+    // facturas) toma primero la fila de la carpeta (SELECT ... FOR UPDATE): se procesan de a uno y siempre
+    // bloquean carpeta -> facturas -> productos, en ese orden
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Importacion i WHERE i.id = :id")
+    Optional<Importacion> findByIdParaActualizar(@Param("id") Integer id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Importacion i WHERE i.codigoAgrupador = :codigo")
+    Optional<Importacion> findByCodigoAgrupadorParaActualizar(@Param("codigo") String codigo);
+
+    // Carpetas de las compras indicadas, bloqueadas en orden de id (sin deadlocks entre varias carpetas)
+    @Query(value = "SELECT i.id FROM importaciones i " +
+            "WHERE i.id IN (SELECT c.importacion_id FROM compras c WHERE c.id = ANY(CAST(:compraIds AS integer[]))) " +
+            "ORDER BY i.id FOR UPDATE", nativeQuery = true)
+    List<Integer> bloquearDeCompras(@Param("compraIds") Integer[] compraIds);
+
     // ✅ QUERY PARA EL DASHBOARD (Próximas llegadas)
-    // Trae las importaciones con fecha definida, ordenadas por la más cercana
-    @Query("SELECT i FROM Importacion i WHERE i.fechaEstimadaLlegada IS NOT NULL ORDER BY i.fechaEstimadaLlegada ASC")
+    // Carpetas que aún no llegan al almacén, la más cercana primero (sin fecha al final).
+    // Los estados van como literales para que PostgreSQL use el índice parcial ix_importaciones_llegadas_pendientes
+    @Query("SELECT i FROM Importacion i " +
+            "WHERE i.estado IN (com.upc.smaf.entities.EstadoImportacion.ORDENADO, " +
+            "                   com.upc.smaf.entities.EstadoImportacion.EN_TRANSITO, " +
+            "                   com.upc.smaf.entities.EstadoImportacion.EN_ADUANAS, " +
+            "                   com.upc.smaf.entities.EstadoImportacion.NACIONALIZADO) " +
+            "AND (i.fechaEstimadaLlegada IS NOT NULL " +
+            "     OR i.estado IN (com.upc.smaf.entities.EstadoImportacion.EN_TRANSITO, " +
+            "                     com.upc.smaf.entities.EstadoImportacion.EN_ADUANAS)) " +
+            "ORDER BY i.fechaEstimadaLlegada ASC NULLS LAST, i.id ASC")
     List<Importacion> findProximasLlegadas(Pageable pageable);
 
+    // Totales de la carpeta por diferencia al registrar o anular una factura, sin recargar sus facturas.
+    // El UPDATE bloquea la fila, así dos facturas simultáneas en la misma carpeta suman las dos;
+    // sube la versión para que una edición con la carpeta vieja falle por bloqueo optimista
+    @Modifying
+    @Query(value = "UPDATE importaciones SET " +
+            "suma_fob_total = COALESCE(suma_fob_total, 0) + :fob, " +
+            "peso_total_kg = COALESCE(peso_total_kg, 0) + :peso, " +
+            "cbm_total = COALESCE(cbm_total, 0) + :cbm, " +
+            "version = COALESCE(version, 0) + 1 " +
+            "WHERE id = :id", nativeQuery = true)
+    int sumarTotales(@Param("id") Integer id,
+                     @Param("fob") BigDecimal fob,
+                     @Param("peso") BigDecimal peso,
+                     @Param("cbm") BigDecimal cbm);
+
     // ❌ ELIMINADO: findByCompraId(Integer id)
     // (Este era el causante del error porque ya no existe la relación directa en la entidad)
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.upc.smaf.repositories;
+
+import com.upc.smaf.entities.KpiDiario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface KpiDiarioRepository extends JpaRepository<KpiDiario, LocalDate> {
+
+    // Foto más reciente en o antes de la fecha (si ese día no se registró, la anterior)
+    Optional<KpiDiario> findFirstByFechaLessThanEqualOrderByFechaDesc(LocalDate fecha);
+
+    List<KpiDiario> findByFechaBetweenOrderByFechaAsc(LocalDate desde, LocalDate hasta);
+
+    // Una sola sentencia: dos nodos que registran el mismo día no chocan en la clave, gana el último
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO kpi_diario (fecha, ventas_dia, cantidad_ventas_dia, clientes, productos, " +
+            "productos_stock_bajo, valor_inventario, fecha_registro) " +
+            "VALUES (:fecha, :ventasDia, :cantidadVentasDia, :clientes, :productos, :productosStockBajo, " +
+            ":valorInventario, :fechaRegistro) " +
+            "ON CONFLICT (fecha) DO UPDATE SET " +
+            "ventas_dia = EXCLUDED.ventas_dia, cantidad_ventas_dia = EXCLUDED.cantidad_ventas_dia, " +
+            "clientes = EXCLUDED.clientes, productos = EXCLUDED.productos, " +
+            "productos_stock_bajo = EXCLUDED.productos_stock_bajo, valor_inventario = EXCLUDED.valor_inventario, " +
+            "fecha_registro = EXCLUDED.fecha_registro", nativeQuery = true)
+    void registrar(@Param("fecha") LocalDate fecha,
+                   @Param("ventasDia") BigDecimal ventasDia,
+                   @Param("cantidadVentasDia") long cantidadVentasDia,
+                   @Param("clientes") long clientes,
+                   @Param("productos") long productos,
+                   @Param("productosStockBajo") int productosStockBajo,
+                   @Param("valorInventario") BigDecimal valorInventario,
+                   @Param("fechaRegistro") LocalDateTime fechaRegistro);
+}
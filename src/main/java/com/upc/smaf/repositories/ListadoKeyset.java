@@ -0,0 +1,47 @@
+package com.upc.smaf.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Arma el JPQL de los listados paginados por cursor (keyset) con solo los filtros que llegaron:
+ * sin condiciones "(:p IS NULL OR ...)" el planificador usa el índice (filtro, fecha, id) que corresponda.
+ * El cursor es una comparación de filas (fecha, id) < (:cursorFecha, :cursorId), que PostgreSQL
+ * resuelve como un rango sobre el mismo índice.
+ */
+final class ListadoKeyset {
+
+    private final StringBuilder where = new StringBuilder();
+    private final Map<String, Object> parametros = new HashMap<>();
+
+    /** Agrega "condicion" solo si el valor no es nulo; la condición usa :nombre. */
+    ListadoKeyset filtro(String condicion, String nombre, Object valor) {
+        if (valor != null) {
+            where.append(where.isEmpty() ? " WHERE " : " AND ").append(condicion);
+            parametros.put(nombre, valor);
+        }
+        return this;
+    }
+
+    /** (campoFecha, campoId) < (:cursorFecha, :cursorId), solo a partir de la segunda página. */
+    ListadoKeyset despuesDe(String campoFecha, String campoId, Object cursorFecha, Integer cursorId) {
+        if (cursorFecha != null && cursorId != null) {
+            where.append(where.isEmpty() ? " WHERE " : " AND ")
+                    .append("(").append(campoFecha).append(", ").append(campoId).append(") < (:cursorFecha, :cursorId)");
+            parametros.put("cursorFecha", cursorFecha);
+            parametros.put("cursorId", cursorId);
+        }
+        return this;
+    }
+
+    <T> List<T> listar(EntityManager em, Class<T> tipo, String select, String orden, int limite) {
+        TypedQuery<T> query = em.createQuery(select + where + " ORDER BY " + orden, tipo);
+        parametros.forEach(query::setParameter);
+        return new ArrayList<>(query.setMaxResults(limite).getResultList());
+    }
+}
@@ -1,11 +1,14 @@
 package com.upc.smaf.repositories;
 
+import com.upc.smaf.entities.MotivoNota;
 import com.upc.smaf.entities.NotaCredito;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -14,6 +17,19 @@ public interface NotaCreditoRepository extends JpaRepository<NotaCredito, Intege
     // Buscar notas de una venta específica
     List<NotaCredito> findByVentaOriginalId(Integer ventaId);
 
+    // ¿Hay una nota de devolución sin detalle (total, o por ítem anterior al detalle)? Devolvió toda la mercadería
+    @Query("SELECT COUNT(nc) > 0 FROM NotaCredito nc " +
+            "WHERE nc.ventaOriginal.id = :ventaId AND nc.motivo IN :motivos AND nc.detalles IS EMPTY")
+    boolean existeDevolucionSinDetalle(@Param("ventaId") Integer ventaId, @Param("motivos") Collection<MotivoNota> motivos);
+
+    // Unidades ya devueltas por producto con notas por ítem. Cada fila: [productoId, cantidad]
+    @Query("SELECT d.producto.id, SUM(d.cantidad) FROM NotaCreditoDetalle d " +
+            "WHERE d.notaCredito.ventaOriginal.id = :ventaId GROUP BY d.producto.id")
+    List<Object[]> sumarDevueltoPorProducto(@Param("ventaId") Integer ventaId);
+
+    @Query("SELECT COALESCE(SUM(nc.montoTotal), 0) FROM NotaCredito nc WHERE nc.ventaOriginal.id = :ventaId")
+    BigDecimal sumarMontoPorVenta(@Param("ventaId") Integer ventaId);
+
     // Sumar TODO el dinero devuelto (Para tu Dashboard)
     @Query("SELECT COALESCE(SUM(nc.montoTotal), 0) FROM NotaCredito nc")
     BigDecimal sumarTotalDevoluciones();
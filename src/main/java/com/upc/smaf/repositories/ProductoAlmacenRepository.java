@@ -41,8 +41,11 @@ public interface ProductoAlmacenRepository extends JpaRepository<ProductoAlmacen
     // Devuelve todas las filas de ese producto en todos los almacenes para poder sumar el stock
     List<ProductoAlmacen> findByProducto(Producto producto);
     // Productos con stock bajo en un almacén específico
-    @Query("SELECT pa FROM ProductoAlmacen pa " +
-            "WHERE pa.almacen.id = :almacenId AND pa.activo = true " +
-            "AND pa.stockMinimo IS NOT NULL AND pa.stock <= pa.stockMinimo")
+    // (activo, con mínimo y stock <= mínimo: columna generada bajo_minimo con índice parcial)
+    @Query(value = "SELECT * FROM producto_almacen WHERE id_almacen = :almacenId AND bajo_minimo " +
+            "ORDER BY stock, id", nativeQuery = true)
     List<ProductoAlmacen> findProductosConStockBajoEnAlmacen(@Param("almacenId") Long almacenId);
+
+    @Query(value = "SELECT COUNT(*) FROM producto_almacen WHERE id_almacen = :almacenId AND bajo_minimo", nativeQuery = true)
+    Integer contarProductosConStockBajoEnAlmacen(@Param("almacenId") Long almacenId);
 }
\ No newline at end of file
@@ -63,6 +63,16 @@ public interface ProductoRepository extends JpaRepository<Producto, Integer> {
 
     // ========== OPERACIONES DE STOCK ==========
 
+    /**
+     * Stock actual de los productos, bloqueando sus filas hasta el fin de la transacción (en orden de id).
+     * Cada fila: [id_producto, stock_actual]. Se lee directo de la BD, no de la caché de la sesión.
+     * FOR NO KEY UPDATE es el mismo bloqueo que toma el UPDATE de stock: no choca con el KEY SHARE que
+     * dejan las líneas de venta o de compra recién insertadas (llave foránea), que van en el orden del pedido.
+     */
+    @Query(value = "SELECT id_producto, stock_actual FROM productos " +
+            "WHERE id_producto = ANY(CAST(:ids AS integer[])) ORDER BY id_producto FOR NO KEY UPDATE", nativeQuery = true)
+    List<Object[]> bloquearStock(@Param("ids") Integer[] ids);
+
     @Modifying
     @Transactional
     @Query("UPDATE Producto p SET p.stockActual = p.stockActual + :cantidad WHERE p.id = :id")
@@ -73,6 +83,65 @@ public interface ProductoRepository extends JpaRepository<Producto, Integer> {
     @Query("UPDATE Producto p SET p.stockActual = p.stockActual - :cantidad WHERE p.id = :id AND p.stockActual >= :cantidad")
     int disminuirStock(@Param("id") Integer id, @Param("cantidad") Integer cantidad);
 
+    /**
+     * Descuenta el stock de varios productos en una sola sentencia.
+     * Solo actualiza las filas con stock suficiente: si el número de filas
+     * devueltas es menor que la cantidad de productos, algún renglón se quedaría en negativo.
+     * Cada fila: [id_producto, stock_actual (nuevo), stock_minimo, activo], para detectar cruces del mínimo.
+     */
+    @Transactional
+    @Query(value = "WITH actualizados AS (" +
+            "UPDATE productos p SET stock_actual = p.stock_actual - d.cantidad, fecha_actualizacion = NOW() " +
+            "FROM unnest(CAST(:ids AS integer[]), CAST(:cantidades AS integer[])) AS d(id, cantidad) " +
+            "WHERE p.id_producto = d.id AND p.stock_actual >= d.cantidad " +
+            "RETURNING p.id_producto, p.stock_actual, p.stock_minimo, p.activo) " +
+            "SELECT * FROM actualizados", nativeQuery = true)
+    List<Object[]> disminuirStockEnLote(@Param("ids") Integer[] ids, @Param("cantidades") Integer[] cantidades);
+
+    // Mismas columnas que disminuirStockEnLote
+    @Transactional
+    @Query(value = "WITH actualizados AS (" +
+            "UPDATE productos p SET stock_actual = p.stock_actual + d.cantidad, fecha_actualizacion = NOW() " +
+            "FROM unnest(CAST(:ids AS integer[]), CAST(:cantidades AS integer[])) AS d(id, cantidad) " +
+            "WHERE p.id_producto = d.id " +
+            "RETURNING p.id_producto, p.stock_actual, p.stock_minimo, p.activo) " +
+            "SELECT * FROM actualizados", nativeQuery = true)
+    List<Object[]> aumentarStockEnLote(@Param("ids") Integer[] ids, @Param("cantidades") Integer[] cantidades);
+
+    // Referencia de precio de importación de las líneas de una factura (sin tocar stock ni costo)
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE productos p SET precio_china = d.precio, fecha_actualizacion = NOW() " +
+            "FROM unnest(CAST(:ids AS integer[]), CAST(:precios AS numeric[])) AS d(id, precio) " +
+            "WHERE p.id_producto = d.id", nativeQuery = true)
+    int actualizarPrecioChinaEnLote(@Param("ids") Integer[] ids, @Param("precios") BigDecimal[] precios);
+
+    // Costo actual de varios productos, bloqueados en orden de id hasta el fin de la transacción (mismo
+    // bloqueo que bloquearStock): es el costo anterior de acumularCostoLandedEnLote. Cada fila: [id_producto, costo_total]
+    @Query(value = "SELECT id_producto, costo_total FROM productos " +
+            "WHERE id_producto = ANY(CAST(:ids AS integer[])) ORDER BY id_producto FOR NO KEY UPDATE", nativeQuery = true)
+    List<Object[]> bloquearCosto(@Param("ids") Integer[] ids);
+
+    // Costo promedio ponderado landed: suma a los acumulados de cada producto y recalcula costo_total.
+    // Todo se lee de la fila destino (p), que PostgreSQL vuelve a leer si otra transacción la cambió:
+    // dos costeos simultáneos del mismo producto suman los dos
+    // Cada fila devuelta: [id_producto, stock_actual, costo_total nuevo]
+    @Query(value = "WITH actualizados AS (UPDATE productos p SET " +
+            "cantidad_costeada = COALESCE(p.cantidad_costeada, 0) + d.cantidad, " +
+            "costo_landed_acumulado = COALESCE(p.costo_landed_acumulado, 0) + d.costo, " +
+            "costo_total = CASE WHEN COALESCE(p.cantidad_costeada, 0) + d.cantidad > 0 " +
+            "THEN ROUND((COALESCE(p.costo_landed_acumulado, 0) + d.costo) / (COALESCE(p.cantidad_costeada, 0) + d.cantidad), 2) " +
+            "ELSE p.costo_total END, " +
+            "fecha_actualizacion = NOW() " +
+            "FROM unnest(CAST(:ids AS integer[]), CAST(:cantidades AS integer[]), CAST(:costos AS numeric[])) " +
+            "AS d(id, cantidad, costo) " +
+            "WHERE p.id_producto = d.id " +
+            "RETURNING p.id_producto, p.stock_actual, p.costo_total) " +
+            "SELECT * FROM actualizados", nativeQuery = true)
+    List<Object[]> acumularCostoLandedEnLote(@Param("ids") Integer[] ids,
+                                             @Param("cantidades") Integer[] cantidades,
+                                             @Param("costos") BigDecimal[] costos);
+
     // ========== CONSULTAS DE AGREGACIÓN ==========
 
     @Query("SELECT SUM(p.stockActual) FROM Producto p WHERE p.activo = true")
@@ -81,6 +150,12 @@ public interface ProductoRepository extends JpaRepository<Producto, Integer> {
     @Query("SELECT SUM(p.stockActual * p.costoTotal) FROM Producto p WHERE p.activo = true AND p.costoTotal IS NOT NULL")
     BigDecimal getValorTotalInventario();
 
+    // Valor (costo × cantidad) de un movimiento masivo de stock
+    @Query(value = "SELECT COALESCE(SUM(p.costo_total * d.cantidad), 0) FROM productos p " +
+            "JOIN unnest(CAST(:ids AS integer[]), CAST(:cantidades AS integer[])) AS d(id, cantidad) " +
+            "ON p.id_producto = d.id", nativeQuery = true)
+    BigDecimal valorizarCantidades(@Param("ids") Integer[] ids, @Param("cantidades") Integer[] cantidades);
+
     @Query("SELECT " +
             "SUM(CASE WHEN p.stockActual = 0 THEN 1 ELSE 0 END) as agotados, " +
             "SUM(CASE WHEN p.stockActual > 0 AND p.stockActual < p.stockMinimo THEN 1 ELSE 0 END) as bajos, " +
@@ -99,10 +174,17 @@ public interface ProductoRepository extends JpaRepository<Producto, Integer> {
 
     /**
      * Cuenta productos con stock bajo (stock actual < stock mínimo)
+     * bajo_minimo es una columna generada con índice parcial (ver db/esquema_auxiliar.sql)
      */
-    @Query("SELECT COUNT(p) FROM Producto p WHERE p.stockActual < p.stockMinimo AND p.activo = true")
+    @Query(value = "SELECT COUNT(*) FROM productos WHERE bajo_minimo", nativeQuery = true)
     Integer contarProductosStockBajo();
 
+    /**
+     * Productos activos con stock bajo, los más críticos primero. Se resuelve con el índice parcial.
+     */
+    @Query(value = "SELECT * FROM productos WHERE bajo_minimo ORDER BY stock_actual, id_producto", nativeQuery = true)
+    List<Producto> listarProductosStockBajo();
+
 
 
     // ========== ORDENAMIENTOS ==========
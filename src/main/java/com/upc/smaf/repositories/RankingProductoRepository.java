@@ -0,0 +1,53 @@
+package com.upc.smaf.repositories;
+
+import com.upc.smaf.dtos.response.ProductoVendidoDTO;
+import com.upc.smaf.entities.RankingProducto;
+import com.upc.smaf.entities.VentanaRanking;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface RankingProductoRepository extends JpaRepository<RankingProducto, RankingProducto.Clave> {
+
+    // Top-K de la ventana leyendo el índice (ventana, cantidad DESC)
+    @Query("SELECT new com.upc.smaf.dtos.response.ProductoVendidoDTO(p.id, p.nombre, p.codigo, r.cantidad, r.total) " +
+            "FROM RankingProducto r JOIN Producto p ON p.id = r.productoId " +
+            "WHERE r.ventana = :ventana AND r.cantidad > 0 " +
+            "ORDER BY r.cantidad DESC, r.productoId ASC")
+    List<ProductoVendidoDTO> top(@Param("ventana") VentanaRanking ventana, Pageable pageable);
+
+    // Suma (o resta, con valores negativos) las líneas de una venta en una sola sentencia (ids sin repetir)
+    @Modifying
+    @Query(value = "INSERT INTO ranking_productos (ventana, producto_id, cantidad, total) " +
+            "SELECT :ventana, d.id, d.cantidad, d.total " +
+            "FROM unnest(CAST(:ids AS integer[]), CAST(:cantidades AS integer[]), CAST(:totales AS numeric[])) AS d(id, cantidad, total) " +
+            "ON CONFLICT (ventana, producto_id) DO UPDATE SET " +
+            "cantidad = ranking_productos.cantidad + EXCLUDED.cantidad, " +
+            "total = ranking_productos.total + EXCLUDED.total", nativeQuery = true)
+    void acumularEnLote(@Param("ventana") String ventana,
+                        @Param("ids") Integer[] ids,
+                        @Param("cantidades") Integer[] cantidades,
+                        @Param("totales") BigDecimal[] totales);
+
+    // ========== RECÁLCULO DESDE resumen_ventas_producto_diario ==========
+    @Modifying
+    @Query(value = "DELETE FROM ranking_productos WHERE ventana = :ventana", nativeQuery = true)
+    void eliminarVentana(@Param("ventana") String ventana);
+
+    // desde = null recorre todo el historial (ventana TOTAL)
+    @Modifying
+    @Query(value = "INSERT INTO ranking_productos (ventana, producto_id, cantidad, total) " +
+            "SELECT :ventana, r.producto_id, SUM(r.cantidad), SUM(r.total) " +
+            "FROM resumen_ventas_producto_diario r " +
+            "WHERE CAST(:desde AS date) IS NULL OR r.fecha >= CAST(:desde AS date) " +
+            "GROUP BY r.producto_id", nativeQuery = true)
+    void reconstruirVentana(@Param("ventana") String ventana, @Param("desde") LocalDate desde);
+}
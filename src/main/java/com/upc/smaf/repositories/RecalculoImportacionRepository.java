@@ -0,0 +1,75 @@
+package com.upc.smaf.repositories;
+
+import com.upc.smaf.entities.RecalculoImportacion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+// Las fechas salen del reloj de PostgreSQL (LOCALTIMESTAMP): todos los nodos comparan contra el mismo
+@Repository
+public interface RecalculoImportacionRepository extends JpaRepository<RecalculoImportacion, String> {
+
+    // Suma la solicitud al trabajo PENDIENTE de la carpeta o crea uno (índice ux_recalculos_importacion_pendiente).
+    // Dentro de una transacción abierta, el trabajo existe solo si esa transacción confirma. Devuelve su id
+    @Transactional
+    @Query(value = "INSERT INTO recalculos_importacion (id, importacion_id, estado, solicitudes, fecha_solicitud, fecha_programada) " +
+            "VALUES (:id, :importacionId, 'PENDIENTE', 1, LOCALTIMESTAMP, " +
+            "LOCALTIMESTAMP + CAST(:esperaMs AS integer) * INTERVAL '1 millisecond') " +
+            "ON CONFLICT (importacion_id) WHERE estado = 'PENDIENTE' DO UPDATE SET " +
+            "solicitudes = recalculos_importacion.solicitudes + 1 " +
+            "RETURNING id", nativeQuery = true)
+    String encolar(@Param("id") String id, @Param("importacionId") Integer importacionId, @Param("esperaMs") long esperaMs);
+
+    // Toma el trabajo listo más antiguo cuya carpeta no se esté recalculando en otro nodo.
+    // SKIP LOCKED: los nodos que buscan a la vez toman trabajos distintos sin esperarse
+    @Transactional
+    @Query(value = "UPDATE recalculos_importacion SET estado = 'EN_PROCESO', fecha_inicio = LOCALTIMESTAMP " +
+            "WHERE id = (SELECT r.id FROM recalculos_importacion r " +
+            "WHERE r.estado = 'PENDIENTE' AND r.fecha_programada <= LOCALTIMESTAMP " +
+            "AND NOT EXISTS (SELECT 1 FROM recalculos_importacion e " +
+            "WHERE e.importacion_id = r.importacion_id AND e.estado = 'EN_PROCESO') " +
+            "ORDER BY r.fecha_programada LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id", nativeQuery = true)
+    Optional<String> reclamar();
+
+    // Los cierres solo aplican a un trabajo que sigue EN_PROCESO (un nodo lento no pisa una reprogramación)
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE recalculos_importacion SET estado = 'COMPLETADO', fecha_fin = LOCALTIMESTAMP " +
+            "WHERE id = :id AND estado = 'EN_PROCESO'", nativeQuery = true)
+    int completar(@Param("id") String id);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE recalculos_importacion SET estado = 'ERROR', fecha_fin = LOCALTIMESTAMP, mensaje = :mensaje " +
+            "WHERE id = :id AND estado = 'EN_PROCESO'", nativeQuery = true)
+    int fallar(@Param("id") String id, @Param("mensaje") String mensaje);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE recalculos_importacion SET estado = 'REPROGRAMADO', fecha_fin = LOCALTIMESTAMP, " +
+            "trabajo_siguiente_id = :siguienteId, mensaje = :mensaje " +
+            "WHERE id = :id AND estado = 'EN_PROCESO'", nativeQuery = true)
+    int reprogramar(@Param("id") String id, @Param("siguienteId") String siguienteId, @Param("mensaje") String mensaje);
+
+    // Trabajos EN_PROCESO desde hace más del plazo: el nodo que los tomó se detuvo (su transacción se revirtió)
+    // Cada fila: [id, importacionId]
+    @Transactional
+    @Query(value = "SELECT id, importacion_id FROM recalculos_importacion " +
+            "WHERE estado = 'EN_PROCESO' AND fecha_inicio < LOCALTIMESTAMP - CAST(:plazoMs AS integer) * INTERVAL '1 millisecond' " +
+            "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Object[]> bloquearVencidos(@Param("plazoMs") long plazoMs);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM recalculos_importacion " +
+            "WHERE estado IN ('COMPLETADO', 'REPROGRAMADO', 'ERROR') " +
+            "AND fecha_fin < LOCALTIMESTAMP - CAST(:horas AS integer) * INTERVAL '1 hour'", nativeQuery = true)
+    int eliminarTerminados(@Param("horas") long horas);
+}
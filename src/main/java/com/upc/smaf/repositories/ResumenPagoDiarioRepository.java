@@ -0,0 +1,71 @@
+package com.upc.smaf.repositories;
+
+import com.upc.smaf.dtos.ReporteMetodoPagoDTO;
+import com.upc.smaf.dtos.response.PagosPorCuentaDTO;
+import com.upc.smaf.entities.ResumenPagoDiario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ResumenPagoDiarioRepository extends JpaRepository<ResumenPagoDiario, ResumenPagoDiario.Clave> {
+
+    // ========== REPORTES ==========
+
+    // Donut de métodos de pago: suma a lo sumo (días × métodos × monedas × cuentas) filas
+    @Query("SELECT new com.upc.smaf.dtos.ReporteMetodoPagoDTO(r.metodoPago, SUM(r.monto), SUM(r.cantidad)) " +
+            "FROM ResumenPagoDiario r " +
+            "WHERE r.fecha BETWEEN :desde AND :hasta " +
+            "GROUP BY r.metodoPago " +
+            "ORDER BY SUM(r.monto) DESC")
+    List<ReporteMetodoPagoDTO> reportePorMetodo(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    // Totales por cuenta destino y moneda (cuenta 0 = sin cuenta)
+    @Query("SELECT new com.upc.smaf.dtos.response.PagosPorCuentaDTO(" +
+            "r.cuentaId, c.nombre, c.banco, r.moneda, SUM(r.monto), SUM(r.cantidad)) " +
+            "FROM ResumenPagoDiario r LEFT JOIN CuentaBancaria c ON c.id = r.cuentaId " +
+            "WHERE r.fecha BETWEEN :desde AND :hasta " +
+            "GROUP BY r.cuentaId, c.nombre, c.banco, r.moneda " +
+            "ORDER BY r.cuentaId, r.moneda")
+    List<PagosPorCuentaDTO> reportePorCuenta(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    // Detalle diario de una cuenta (índice cuenta_id, fecha)
+    List<ResumenPagoDiario> findByCuentaIdAndFechaBetweenOrderByFechaAsc(Integer cuentaId, LocalDate desde, LocalDate hasta);
+
+    // ========== MANTENIMIENTO ==========
+
+    @Modifying
+    @Query(value = "INSERT INTO resumen_pagos_diario (fecha, metodo_pago, moneda, cuenta_id, monto, cantidad) " +
+            "VALUES (:fecha, :metodo, :moneda, :cuentaId, :monto, :cantidad) " +
+            "ON CONFLICT (fecha, metodo_pago, moneda, cuenta_id) DO UPDATE SET " +
+            "monto = resumen_pagos_diario.monto + EXCLUDED.monto, " +
+            "cantidad = resumen_pagos_diario.cantidad + EXCLUDED.cantidad", nativeQuery = true)
+    void acumular(@Param("fecha") LocalDate fecha,
+                  @Param("metodo") String metodo,
+                  @Param("moneda") String moneda,
+                  @Param("cuentaId") Integer cuentaId,
+                  @Param("monto") BigDecimal monto,
+                  @Param("cantidad") long cantidad);
+
+    // ========== RECONSTRUCCIÓN ==========
+    @Modifying
+    @Query(value = "DELETE FROM resumen_pagos_diario WHERE fecha BETWEEN :desde AND :hasta", nativeQuery = true)
+    void eliminarRango(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    // Mismo criterio que el registro incremental: pagos de ventas que no son borrador ni están canceladas,
+    // agrupados por la fecha del pago (índice ix_pagos_fecha_pago)
+    @Modifying
+    @Query(value = "INSERT INTO resumen_pagos_diario (fecha, metodo_pago, moneda, cuenta_id, monto, cantidad) " +
+            "SELECT CAST(p.fecha_pago AS date), p.metodo_pago, p.moneda, COALESCE(p.cuenta_destino_id, 0), SUM(p.monto), COUNT(*) " +
+            "FROM pagos p JOIN ventas v ON v.id = p.venta_id " +
+            "WHERE v.estado NOT IN ('BORRADOR', 'CANCELADA') " +
+            "AND p.fecha_pago >= :desde AND p.fecha_pago < :hastaExclusivo " +
+            "GROUP BY CAST(p.fecha_pago AS date), p.metodo_pago, p.moneda, COALESCE(p.cuenta_destino_id, 0)", nativeQuery = true)
+    void reconstruirRango(@Param("desde") LocalDate desde, @Param("hastaExclusivo") LocalDate hastaExclusivo);
+}
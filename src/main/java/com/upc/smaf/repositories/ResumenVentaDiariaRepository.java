@@ -0,0 +1,38 @@
+package com.upc.smaf.repositories;
+
+import com.upc.smaf.entities.ResumenVentaDiaria;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ResumenVentaDiariaRepository extends JpaRepository<ResumenVentaDiaria, LocalDate> {
+
+    List<ResumenVentaDiaria> findByFechaBetweenOrderByFechaAsc(LocalDate desde, LocalDate hasta);
+
+    // Suma (o resta, con valores negativos) sobre la fila del día; la crea si no existe
+    @Modifying
+    @Query(value = "INSERT INTO resumen_ventas_diario (fecha, total, cantidad) VALUES (:fecha, :total, :cantidad) " +
+            "ON CONFLICT (fecha) DO UPDATE SET total = resumen_ventas_diario.total + EXCLUDED.total, " +
+            "cantidad = resumen_ventas_diario.cantidad + EXCLUDED.cantidad", nativeQuery = true)
+    void acumular(@Param("fecha") LocalDate fecha, @Param("total") BigDecimal total, @Param("cantidad") long cantidad);
+
+    // ========== RECONSTRUCCIÓN ==========
+    @Modifying
+    @Query(value = "DELETE FROM resumen_ventas_diario WHERE fecha BETWEEN :desde AND :hasta", nativeQuery = true)
+    void eliminarRango(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    @Modifying
+    @Query(value = "INSERT INTO resumen_ventas_diario (fecha, total, cantidad) " +
+            "SELECT CAST(v.fecha_venta AS date), SUM(v.total), COUNT(*) FROM ventas v " +
+            "WHERE v.estado = 'COMPLETADA' " +
+            "AND v.fecha_venta >= :desde AND v.fecha_venta < :hastaExclusivo " +
+            "GROUP BY CAST(v.fecha_venta AS date)", nativeQuery = true)
+    void reconstruirRango(@Param("desde") LocalDate desde, @Param("hastaExclusivo") LocalDate hastaExclusivo);
+}
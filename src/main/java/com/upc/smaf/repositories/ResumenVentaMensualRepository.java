@@ -0,0 +1,36 @@
+package com.upc.smaf.repositories;
+
+import com.upc.smaf.entities.ResumenVentaMensual;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ResumenVentaMensualRepository extends JpaRepository<ResumenVentaMensual, LocalDate> {
+
+    List<ResumenVentaMensual> findByPeriodoBetweenOrderByPeriodoAsc(LocalDate desde, LocalDate hasta);
+
+    @Modifying
+    @Query(value = "INSERT INTO resumen_ventas_mensual (periodo, total, cantidad) VALUES (:periodo, :total, :cantidad) " +
+            "ON CONFLICT (periodo) DO UPDATE SET total = resumen_ventas_mensual.total + EXCLUDED.total, " +
+            "cantidad = resumen_ventas_mensual.cantidad + EXCLUDED.cantidad", nativeQuery = true)
+    void acumular(@Param("periodo") LocalDate periodo, @Param("total") BigDecimal total, @Param("cantidad") long cantidad);
+
+    // ========== RECONSTRUCCIÓN (a partir del resumen diario) ==========
+    @Modifying
+    @Query(value = "DELETE FROM resumen_ventas_mensual WHERE periodo BETWEEN :desde AND :hasta", nativeQuery = true)
+    void eliminarRango(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    @Modifying
+    @Query(value = "INSERT INTO resumen_ventas_mensual (periodo, total, cantidad) " +
+            "SELECT CAST(date_trunc('month', d.fecha) AS date), SUM(d.total), SUM(d.cantidad) " +
+            "FROM resumen_ventas_diario d WHERE d.fecha >= :desde AND d.fecha < :hastaExclusivo " +
+            "GROUP BY CAST(date_trunc('month', d.fecha) AS date)", nativeQuery = true)
+    void reconstruirRango(@Param("desde") LocalDate desde, @Param("hastaExclusivo") LocalDate hastaExclusivo);
+}
@@ -0,0 +1,43 @@
+package com.upc.smaf.repositories;
+
+import com.upc.smaf.entities.ResumenVentaProductoDiaria;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Repository
+public interface ResumenVentaProductoDiariaRepository
+        extends JpaRepository<ResumenVentaProductoDiaria, ResumenVentaProductoDiaria.Clave> {
+
+    // Todas las líneas de una venta en una sola sentencia (ids sin repetir)
+    @Modifying
+    @Query(value = "INSERT INTO resumen_ventas_producto_diario (fecha, producto_id, cantidad, total) " +
+            "SELECT :fecha, d.id, d.cantidad, d.total " +
+            "FROM unnest(CAST(:ids AS integer[]), CAST(:cantidades AS integer[]), CAST(:totales AS numeric[])) AS d(id, cantidad, total) " +
+            "ON CONFLICT (fecha, producto_id) DO UPDATE SET " +
+            "cantidad = resumen_ventas_producto_diario.cantidad + EXCLUDED.cantidad, " +
+            "total = resumen_ventas_producto_diario.total + EXCLUDED.total", nativeQuery = true)
+    void acumularEnLote(@Param("fecha") LocalDate fecha,
+                        @Param("ids") Integer[] ids,
+                        @Param("cantidades") Integer[] cantidades,
+                        @Param("totales") BigDecimal[] totales);
+
+    // ========== RECONSTRUCCIÓN ==========
+    @Modifying
+    @Query(value = "DELETE FROM resumen_ventas_producto_diario WHERE fecha BETWEEN :desde AND :hasta", nativeQuery = true)
+    void eliminarRango(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    @Modifying
+    @Query(value = "INSERT INTO resumen_ventas_producto_diario (fecha, producto_id, cantidad, total) " +
+            "SELECT CAST(v.fecha_venta AS date), d.producto_id, SUM(d.cantidad), SUM(d.subtotal) " +
+            "FROM ventas v JOIN detalle_ventas d ON d.venta_id = v.id " +
+            "WHERE v.estado = 'COMPLETADA' " +
+            "AND v.fecha_venta >= :desde AND v.fecha_venta < :hastaExclusivo " +
+            "GROUP BY CAST(v.fecha_venta AS date), d.producto_id", nativeQuery = true)
+    void reconstruirRango(@Param("desde") LocalDate desde, @Param("hastaExclusivo") LocalDate hastaExclusivo);
+}
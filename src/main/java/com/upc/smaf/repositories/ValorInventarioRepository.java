@@ -0,0 +1,36 @@
+package com.upc.smaf.repositories;
+
+import com.upc.smaf.entities.ValorInventario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+@Repository
+public interface ValorInventarioRepository extends JpaRepository<ValorInventario, Short> {
+
+    @Query("SELECT COALESCE(SUM(v.valor), 0) FROM ValorInventario v")
+    BigDecimal sumarRanuras();
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ValorInventario v SET v.valor = v.valor + :variacion WHERE v.ranura = :ranura")
+    int sumar(@Param("ranura") Short ranura, @Param("variacion") BigDecimal variacion);
+
+    // Reconciliación en una sola sentencia: el SUM de productos y el de las ranuras salen de la misma foto,
+    // y la diferencia se suma (no se asigna) a la ranura 0. Las transacciones que confirman después ya
+    // sumaron su propia variación, así que el total queda correcto aunque la fila 0 cambie mientras tanto.
+    // Devuelve la diferencia corregida; vacío si no había desvío.
+    @Transactional
+    @Query(value = "WITH foto AS (SELECT " +
+            "(SELECT COALESCE(SUM(p.stock_actual * p.costo_total), 0) FROM productos p WHERE p.costo_total IS NOT NULL) " +
+            "- (SELECT COALESCE(SUM(r.valor), 0) FROM valor_inventario r) AS diferencia) " +
+            "UPDATE valor_inventario v SET valor = v.valor + foto.diferencia FROM foto " +
+            "WHERE v.ranura = 0 AND foto.diferencia <> 0 RETURNING foto.diferencia", nativeQuery = true)
+    Optional<BigDecimal> corregirDesvio();
+}
@@ -1,21 +1,30 @@
 package com.upc.smaf.repositories;
 
-import com.upc.smaf.dtos.ReporteMetodoPagoDTO;
+import com.upc.smaf.dtos.response.ResumenVentasDTO;
+import com.upc.smaf.dtos.response.VentaListadoDTO;
 import com.upc.smaf.entities.Venta;
 import com.upc.smaf.entities.EstadoVenta;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable; // ✅ IMPORTANTE
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface VentaRepository extends JpaRepository<Venta, Integer> {
+public interface VentaRepository extends JpaRepository<Venta, Integer>, VentaRepositoryCustom {
 
     Optional<Venta> findByCodigo(String codigo);
     List<Venta> findByEstado(EstadoVenta estado);
@@ -24,9 +33,64 @@ public interface VentaRepository extends JpaRepository<Venta, Integer> {
     @Query("SELECT v FROM Venta v WHERE v.nombreCliente LIKE %:nombre%")
     List<Venta> buscarPorCliente(@Param("nombre") String nombre);
 
+    // ========== CARGA COMPLETA PARA RESPUESTAS (SIN N+1) ==========
+    // Paso 1: venta + detalles + producto. Paso 2: pagos + cuenta destino de esas mismas ventas (cargarPagos).
+    // Son dos consultas porque Hibernate no permite traer dos colecciones List con JOIN FETCH a la vez.
+    @Query("SELECT DISTINCT v FROM Venta v LEFT JOIN FETCH v.detalles d LEFT JOIN FETCH d.producto WHERE v.estado = :estado")
+    List<Venta> findByEstadoConDetalles(@Param("estado") EstadoVenta estado);
+
+    @Query("SELECT DISTINCT v FROM Venta v LEFT JOIN FETCH v.detalles d LEFT JOIN FETCH d.producto WHERE v.id IN :ids")
+    List<Venta> findByIdInConDetalles(@Param("ids") Collection<Integer> ids);
+
+    // Búsqueda indexada (pg_trgm) por nombre de cliente: primero coincidencias al inicio, luego las más recientes
+    @Query(value = "SELECT v.id FROM ventas v " +
+            "WHERE LOWER(v.nombre_cliente) LIKE :contiene " +
+            "ORDER BY CASE WHEN LOWER(v.nombre_cliente) LIKE :empieza THEN 0 ELSE 1 END, v.fecha_venta DESC " +
+            "LIMIT :limite", nativeQuery = true)
+    List<Integer> buscarIdsPorCliente(@Param("contiene") String contiene,
+                                      @Param("empieza") String empieza,
+                                      @Param("limite") int limite);
+
+    @Query("SELECT DISTINCT v FROM Venta v LEFT JOIN FETCH v.detalles d LEFT JOIN FETCH d.producto")
+    List<Venta> findAllConDetalles();
+
+    @Query("SELECT v FROM Venta v LEFT JOIN FETCH v.detalles d LEFT JOIN FETCH d.producto WHERE v.id = :id")
+    Optional<Venta> findByIdConDetalles(@Param("id") Integer id);
+
+    @Query("SELECT v FROM Venta v LEFT JOIN FETCH v.detalles d LEFT JOIN FETCH d.producto WHERE v.codigo = :codigo")
+    Optional<Venta> findByCodigoConDetalles(@Param("codigo") String codigo);
+
     @Query("SELECT COUNT(v) FROM Venta v WHERE v.estado = :estado")
     Long contarPorEstado(@Param("estado") EstadoVenta estado);
 
+    // Venta bloqueada (SELECT ... FOR UPDATE) hasta el fin de la transacción: su anulación y sus notas de
+    // crédito se procesan de a una
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT v FROM Venta v WHERE v.id = :id")
+    Optional<Venta> findByIdParaActualizar(@Param("id") Integer id);
+
+    // Transición condicional: solo cambia el estado si nadie lo modificó antes (evita anular dos veces)
+    @Modifying
+    @Query("UPDATE Venta v SET v.estado = :nuevo, v.fechaActualizacion = CURRENT_TIMESTAMP WHERE v.id = :id AND v.estado = :esperado")
+    int cambiarEstado(@Param("id") Integer id, @Param("esperado") EstadoVenta esperado, @Param("nuevo") EstadoVenta nuevo);
+
+    // ========== EXPORTACIÓN POR RANGO DE FECHAS ==========
+    // Se lee como Stream con fetch size: PostgreSQL usa un cursor y las filas no se acumulan en memoria.
+    // Requiere una transacción abierta mientras se consume el Stream.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.upc.smaf.dtos.response.VentaListadoDTO(" +
+            "v.id, v.codigo, v.fechaVenta, v.nombreCliente, v.estado, v.tipoPago, v.moneda, v.total, v.saldoPendiente) " +
+            "FROM Venta v WHERE v.fechaVenta BETWEEN :inicio AND :fin " +
+            "ORDER BY v.fechaVenta ASC, v.id ASC")
+    Stream<VentaListadoDTO> streamPorFecha(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
+
+    @Query("SELECT DISTINCT v FROM Venta v LEFT JOIN FETCH v.detalles d LEFT JOIN FETCH d.producto " +
+            "WHERE v.fechaVenta BETWEEN :inicio AND :fin ORDER BY v.fechaVenta ASC")
+    List<Venta> findByFechaConDetalles(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
+
     Optional<Venta> findByNumeroDocumento(String numeroDocumento);
     boolean existsByNumeroDocumento(String numeroDocumento);
     List<Venta> findByTipoDocumento(String tipoDocumento);
@@ -44,6 +108,24 @@ public interface VentaRepository extends JpaRepository<Venta, Integer> {
     @Query("SELECT COUNT(v) FROM Venta v WHERE v.fechaVenta BETWEEN :inicio AND :fin AND v.estado = 'COMPLETADA'")
     Integer contarVentasCompletadasEntreFechas(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
 
+    // ========== RESUMEN DEL DASHBOARD (UNA SOLA PASADA) ==========
+    // Agregación condicional sobre las ventas completadas desde el inicio del mes anterior
+    @Query("SELECT new com.upc.smaf.dtos.response.ResumenVentasDTO(" +
+            "COALESCE(SUM(CASE WHEN v.fechaVenta >= :inicioHoy THEN v.total END), 0), " +
+            "COUNT(CASE WHEN v.fechaVenta >= :inicioHoy THEN 1 END), " +
+            "COALESCE(SUM(CASE WHEN v.fechaVenta >= :inicioAyer AND v.fechaVenta < :inicioHoy THEN v.total END), 0), " +
+            "COALESCE(SUM(CASE WHEN v.fechaVenta >= :inicioMes THEN v.total END), 0), " +
+            "COUNT(CASE WHEN v.fechaVenta >= :inicioMes THEN 1 END), " +
+            "COALESCE(SUM(CASE WHEN v.fechaVenta < :inicioMes THEN v.total END), 0)) " +
+            "FROM Venta v " +
+            "WHERE v.estado = com.upc.smaf.entities.EstadoVenta.COMPLETADA " +
+            "AND v.fechaVenta >= :inicioMesAnterior AND v.fechaVenta <= :fin")
+    ResumenVentasDTO resumenVentas(@Param("inicioHoy") LocalDateTime inicioHoy,
+                                   @Param("inicioAyer") LocalDateTime inicioAyer,
+                                   @Param("inicioMes") LocalDateTime inicioMes,
+                                   @Param("inicioMesAnterior") LocalDateTime inicioMesAnterior,
+                                   @Param("fin") LocalDateTime fin);
+
     // ==========================================
     // 📈 CONSULTAS PARA GRÁFICOS (RAW DATE)
     // ==========================================
@@ -66,32 +148,4 @@ public interface VentaRepository extends JpaRepository<Venta, Integer> {
             "GROUP BY TO_CHAR(v.fecha_venta, 'MM') " +
             "ORDER BY mes ASC", nativeQuery = true)
     List<Object[]> obtenerVentasPorMesRaw(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
-
-    // ==========================================
-    // 📊 REPORTE MÉTODOS DE PAGO
-    // ==========================================
-    @Query("SELECT new com.upc.smaf.dtos.ReporteMetodoPagoDTO(" +
-            "p.metodoPago, SUM(p.monto), COUNT(p)) " +
-            "FROM Venta v " +
-            "JOIN v.pagos p " +
-            "WHERE v.fechaVenta BETWEEN :inicio AND :fin " +
-            "AND v.estado <> 'ANULADA' " +
-            "AND v.estado <> 'CANCELADA' " +
-            "GROUP BY p.metodoPago " +
-            "ORDER BY SUM(p.monto) DESC")
-    List<ReporteMetodoPagoDTO> obtenerReporteMetodosPago(
-            @Param("inicio") LocalDateTime inicio,
-            @Param("fin") LocalDateTime fin
-    );
-
-    // ==========================================
-    // 🏆 NUEVO: PRODUCTOS MÁS VENDIDOS
-    // ==========================================
-    // Agrupa por producto, suma cantidad y suma subtotal. Ordena desc.
-    @Query("SELECT d.producto.nombre, SUM(d.cantidad), SUM(d.subtotal) " +
-            "FROM Venta v JOIN v.detalles d " +
-            "WHERE v.estado = 'COMPLETADA' " +
-            "GROUP BY d.producto.id, d.producto.nombre " +
-            "ORDER BY SUM(d.cantidad) DESC")
-    List<Object[]> obtenerTopProductos(Pageable pageable);
 }
\ No newline at end of file
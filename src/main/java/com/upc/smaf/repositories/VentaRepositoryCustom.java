@@ -0,0 +1,22 @@
+package com.upc.smaf.repositories;
+
+import com.upc.smaf.dtos.response.VentaListadoDTO;
+import com.upc.smaf.entities.EstadoVenta;
+import com.upc.smaf.entities.Venta;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface VentaRepositoryCustom {
+
+    // ========== LISTADO PAGINADO (KEYSET) ==========
+    // Orden estable (fechaVenta DESC, id DESC); el cursor es la última fila de la página anterior.
+    // Los filtros nulos no entran en la consulta. cliente es un patrón LIKE ya en minúsculas.
+    List<VentaListadoDTO> listarPagina(EstadoVenta estado, LocalDateTime desde, LocalDateTime hasta, String cliente,
+                                       LocalDateTime cursorFecha, Integer cursorId, int limite);
+
+    // Inicializa pagos (con su cuenta destino) de ventas ya cargadas, en una sola consulta para cualquier
+    // cantidad de ventas: los ids viajan como un arreglo (= ANY) y no como un IN con un parámetro por venta.
+    void cargarPagos(Collection<Venta> ventas);
+}
@@ -0,0 +1,55 @@
+package com.upc.smaf.repositories;
+
+import com.upc.smaf.dtos.response.VentaListadoDTO;
+import com.upc.smaf.entities.CuentaBancaria;
+import com.upc.smaf.entities.EstadoVenta;
+import com.upc.smaf.entities.Pago;
+import com.upc.smaf.entities.Venta;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+class VentaRepositoryCustomImpl implements VentaRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<VentaListadoDTO> listarPagina(EstadoVenta estado, LocalDateTime desde, LocalDateTime hasta, String cliente,
+                                              LocalDateTime cursorFecha, Integer cursorId, int limite) {
+        return new ListadoKeyset()
+                .filtro("v.estado = :estado", "estado", estado)
+                .filtro("v.fechaVenta >= :desde", "desde", desde)
+                .filtro("v.fechaVenta <= :hasta", "hasta", hasta)
+                .filtro("LOWER(v.nombreCliente) LIKE :cliente", "cliente", cliente)
+                .despuesDe("v.fechaVenta", "v.id", cursorFecha, cursorId)
+                .listar(entityManager, VentaListadoDTO.class,
+                        "SELECT new com.upc.smaf.dtos.response.VentaListadoDTO(" +
+                        "v.id, v.codigo, v.fechaVenta, v.nombreCliente, v.estado, v.tipoPago, v.moneda, v.total, " +
+                        "v.saldoPendiente) FROM Venta v",
+                        "v.fechaVenta DESC, v.id DESC", limite);
+    }
+
+    @Override
+    public void cargarPagos(Collection<Venta> ventas) {
+        if (ventas.isEmpty()) return;
+        Integer[] ids = ventas.stream().map(Venta::getId).toArray(Integer[]::new);
+
+        // Las filas se fusionan con las ventas del contexto de persistencia y llenan su colección pagos
+        NativeQuery<?> query = entityManager.createNativeQuery(
+                "SELECT {v.*}, {p.*}, {c.*} FROM ventas v " +
+                "LEFT JOIN pagos p ON p.venta_id = v.id " +
+                "LEFT JOIN cuentas_bancarias c ON c.id = p.cuenta_destino_id " +
+                "WHERE v.id = ANY(CAST(:ids AS integer[]))").unwrap(NativeQuery.class);
+        query.addEntity("v", Venta.class);
+        query.addFetch("p", "v", "pagos");
+        query.addFetch("c", "p", "cuentaDestino");
+        query.addSynchronizedEntityClass(Pago.class);
+        query.addSynchronizedEntityClass(CuentaBancaria.class);
+        query.setParameter("ids", ids).getResultList();
+    }
+}
@@ -1,10 +1,14 @@
 package com.upc.smaf.serviceinterface;
 
 import com.upc.smaf.dtos.request.CompraRequestDTO;
+import com.upc.smaf.dtos.response.CompraListadoDTO;
 import com.upc.smaf.dtos.response.CompraResponseDTO;
+import com.upc.smaf.dtos.response.PaginaCursorDTO;
+import com.upc.smaf.entities.EstadoCompra;
 import com.upc.smaf.entities.MetodoPago; // Asegúrate de importar esto
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 public interface CompraService {
@@ -12,7 +16,16 @@ public interface CompraService {
     CompraResponseDTO registrarCompra(CompraRequestDTO request);
     CompraResponseDTO obtenerCompra(Integer id);
 
+    // Carga todas las compras: usar listarPaginado
+    @Deprecated
     List<CompraResponseDTO> listarTodas();
+
+    /**
+     * Listado liviano con paginación por cursor. Todos los filtros son opcionales.
+     */
+    PaginaCursorDTO<CompraListadoDTO> listarPaginado(Integer proveedorId, EstadoCompra estado, LocalDate desde,
+                                                     LocalDate hasta, String codImportacion, String cursor,
+                                                     Integer tamanio);
     List<CompraResponseDTO> listarPorProveedor(Integer proveedorId);
     List<CompraResponseDTO> buscarPorNumero(String numero);
 
@@ -0,0 +1,43 @@
+package com.upc.smaf.serviceinterface;
+
+import com.upc.smaf.dtos.response.AntiguedadCuentaPorCobrarDTO;
+import com.upc.smaf.entities.CuentaPorCobrarMovimiento;
+import com.upc.smaf.entities.CuentaPorCobrarSaldo;
+import com.upc.smaf.entities.Venta;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface CuentaPorCobrarService {
+
+    // ========== REGISTRO (dentro de la transacción de la venta) ==========
+
+    /**
+     * Abre la cuenta por cobrar de una venta recién guardada si quedó saldo pendiente
+     * (cargo por el total y abono por el pago inicial).
+     */
+    void registrarVenta(Venta venta);
+
+    /**
+     * Registra una amortización y descuenta el saldo. Falla si el monto supera el saldo pendiente.
+     */
+    void registrarAbono(Venta venta, BigDecimal monto, String referencia);
+
+    /**
+     * Da de baja el saldo restante de una venta cancelada.
+     */
+    void anularVenta(Venta venta);
+
+    // ========== CONSULTAS ==========
+
+    List<AntiguedadCuentaPorCobrarDTO> reporteAntiguedad();
+
+    List<CuentaPorCobrarSaldo> saldosPendientesPorCliente(Integer clienteId);
+
+    /**
+     * Saldos de ventas de mostrador (sin cliente registrado) hechas a ese nombre.
+     */
+    List<CuentaPorCobrarSaldo> saldosPendientesSinCliente(String nombreCliente);
+
+    List<CuentaPorCobrarMovimiento> movimientosPorVenta(Integer ventaId);
+}
@@ -2,10 +2,15 @@ package com.upc.smaf.serviceinterface;
 
 import com.upc.smaf.dtos.response.DashboardAlertaDTO;
 import com.upc.smaf.dtos.response.DashboardResponseDTO;
+import com.upc.smaf.dtos.response.DashboardSnapshotDTO;
 import com.upc.smaf.dtos.GraficoVentasDTO;
+import com.upc.smaf.dtos.ReporteMetodoPagoDTO;
 import com.upc.smaf.dtos.response.ProductoVendidoDTO;
+import com.upc.smaf.entities.KpiDiario;
+import com.upc.smaf.entities.VentanaRanking;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 public interface DashboardService {
@@ -15,6 +20,23 @@ public interface DashboardService {
      */
     DashboardResponseDTO obtenerMetricasDashboard();
 
+    /**
+     * Métricas, gráfico semanal, top de productos, próximas llegadas y métodos de pago de hoy
+     * en una sola respuesta. Las lecturas independientes se ejecutan en paralelo.
+     */
+    DashboardSnapshotDTO obtenerSnapshot();
+
+    /**
+     * Montos cobrados por método de pago entre dos fechas (ambas inclusive).
+     * Sin fechaInicio se usa hoy; sin fechaFin, el mismo día de inicio.
+     */
+    List<ReporteMetodoPagoDTO> obtenerReporteMetodosPago(LocalDate fechaInicio, LocalDate fechaFin);
+
+    /**
+     * Fotos diarias de los indicadores entre dos fechas (líneas de tendencia). Máximo 366 días.
+     */
+    List<KpiDiario> obtenerTendencia(LocalDate desde, LocalDate hasta);
+
     /**
      * Obtiene el total de ventas del mes actual
      */
@@ -62,4 +84,9 @@ public interface DashboardService {
      */
     List<ProductoVendidoDTO> obtenerProductosMasVendidos(int limit);
 
+    /**
+     * Top de productos más vendidos en una ventana de tiempo (todo el historial o últimos 7/30/365 días)
+     */
+    List<ProductoVendidoDTO> obtenerProductosMasVendidos(int limit, VentanaRanking ventana);
+
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.upc.smaf.serviceinterface;
 
 import com.upc.smaf.dtos.request.ImportacionRequestDTO;
 import com.upc.smaf.dtos.response.ImportacionResponseDTO;
+import com.upc.smaf.dtos.response.RecalculoImportacionDTO;
 import com.upc.smaf.entities.EstadoImportacion;
 import java.util.List;
 
@@ -16,5 +17,7 @@ public interface ImportacionService {
     // ✅ Método crucial
     ImportacionResponseDTO actualizar(Integer id, ImportacionRequestDTO request);
 
-    void recalcularCostos(Integer id);
+    // Recálculo en segundo plano: devuelve el estado del trabajo al instante
+    RecalculoImportacionDTO recalcularCostos(Integer id);
+    RecalculoImportacionDTO obtenerRecalculo(String trabajoId);
 }
\ No newline at end of file
@@ -2,13 +2,17 @@ package com.upc.smaf.serviceinterface;
 
 import com.upc.smaf.dtos.request.NotaCreditoRequestDTO;
 import com.upc.smaf.dtos.response.NotaCreditoResponseDTO;
+import com.upc.smaf.entities.Venta;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 public interface NotaCreditoService {
     NotaCreditoResponseDTO emitirNotaCredito(NotaCreditoRequestDTO request);
     List<NotaCreditoResponseDTO> listarTodas();
     List<NotaCreditoResponseDTO> listarPorVenta(Integer ventaId);
     BigDecimal obtenerTotalDevoluciones();
+    // Unidades vendidas que aún no volvieron al inventario con notas de crédito (productoId -> cantidad)
+    Map<Integer, Integer> cantidadesSinDevolver(Venta venta);
 }
\ No newline at end of file
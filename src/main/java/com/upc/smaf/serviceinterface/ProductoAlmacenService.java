@@ -35,6 +35,9 @@ public interface ProductoAlmacenService {
     // Eliminar asignación de producto en almacén
     void eliminarProductoDeAlmacen(Long id);
 
+    // Productos bajo su stock mínimo en un almacén
+    List<ProductoAlmacenResponseDTO> listarStockBajoEnAlmacen(Long almacenId);
+
     // Calcular stock total de un producto (suma de todos los almacenes)
     Integer calcularStockTotalProducto(Integer productoId);
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.upc.smaf.serviceinterface;
+
+import com.upc.smaf.dtos.ReporteMetodoPagoDTO;
+import com.upc.smaf.dtos.response.PagosPorCuentaDTO;
+import com.upc.smaf.dtos.response.ProductoVendidoDTO;
+import com.upc.smaf.entities.Pago;
+import com.upc.smaf.entities.ResumenPagoDiario;
+import com.upc.smaf.entities.ResumenVentaDiaria;
+import com.upc.smaf.entities.ResumenVentaMensual;
+import com.upc.smaf.entities.Venta;
+import com.upc.smaf.entities.VentanaRanking;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Resúmenes precalculados de ventas (diario, mensual, por producto y por método de pago)
+ * y ranking de productos más vendidos, para gráficos y reportes. Se mantienen dentro de la transacción de la venta.
+ */
+public interface ResumenVentasService {
+
+    // ========== MANTENIMIENTO INCREMENTAL ==========
+
+    /**
+     * Ventas recién registradas: suma las completadas (total y líneas) y los pagos de todas.
+     * Agrupa en memoria y hace un upsert por clave, así un lote grande no ejecuta una sentencia por venta.
+     */
+    void registrarVentasNuevas(Collection<Venta> ventas);
+
+    /** La venta pasó a COMPLETADA después de creada (última amortización). */
+    void registrarVentaCompletada(Venta venta);
+
+    /** Una venta COMPLETADA se canceló: resta lo que se había sumado. */
+    void revertirVentaCompletada(Venta venta);
+
+    void registrarPagos(Venta venta, Collection<Pago> pagos);
+
+    void revertirPagos(Venta venta, Collection<Pago> pagos);
+
+    /**
+     * Recalcula todos los resúmenes del rango desde las tablas de ventas.
+     * El rango se amplía a meses completos para que el resumen mensual quede exacto.
+     */
+    void reconstruir(LocalDate desde, LocalDate hasta);
+
+    /**
+     * Recalcula las ventanas móviles del ranking (7/30/365 días) desde el resumen diario por producto,
+     * para que el día que sale de cada ventana deje de contar. Se ejecuta al iniciar y cada madrugada.
+     */
+    void recalcularVentanasRanking();
+
+    // ========== LECTURA ==========
+
+    List<ResumenVentaDiaria> ventasPorDia(LocalDate desde, LocalDate hasta);
+
+    List<ResumenVentaMensual> ventasPorMes(LocalDate desde, LocalDate hasta);
+
+    /** Montos cobrados por método de pago (ventas no borrador ni canceladas, por día del pago: fecha_pago). */
+    List<ReporteMetodoPagoDTO> pagosPorMetodo(LocalDate desde, LocalDate hasta);
+
+    /** Montos cobrados por cuenta destino y moneda, para conciliación bancaria. */
+    List<PagosPorCuentaDTO> pagosPorCuenta(LocalDate desde, LocalDate hasta);
+
+    /** Detalle diario (método y moneda) de una cuenta; cuentaId = 0 para pagos sin cuenta. */
+    List<ResumenPagoDiario> pagosDeCuenta(Integer cuentaId, LocalDate desde, LocalDate hasta);
+
+    /** Productos más vendidos (por unidades) en la ventana indicada. */
+    List<ProductoVendidoDTO> topProductos(VentanaRanking ventana, int limite);
+}
@@ -1,9 +1,14 @@
 package com.upc.smaf.serviceinterface;
 
 import com.upc.smaf.dtos.request.VentaRequestDTO;
+import com.upc.smaf.dtos.response.LoteVentasResponseDTO;
+import com.upc.smaf.dtos.response.PaginaCursorDTO;
+import com.upc.smaf.dtos.response.VentaListadoDTO;
 import com.upc.smaf.dtos.response.VentaResponseDTO;
 import com.upc.smaf.entities.EstadoVenta;
 import com.upc.smaf.entities.MetodoPago;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -12,14 +17,42 @@ public interface VentaService {
 
     // ========== CRUD BÁSICO ==========
     VentaResponseDTO crearVenta(VentaRequestDTO request);
+
+    /**
+     * Igual que crearVenta, pero si la clave ya se usó devuelve la respuesta original sin volver a vender.
+     * Con clave nula o vacía se comporta como crearVenta.
+     */
+    VentaResponseDTO crearVenta(VentaRequestDTO request, String claveIdempotencia);
+
+    /**
+     * Importa muchas ventas en una sola transacción. Las filas inválidas se informan y no se guardan;
+     * las válidas se insertan con batches JDBC.
+     */
+    LoteVentasResponseDTO crearVentasEnLote(List<VentaRequestDTO> requests);
     VentaResponseDTO obtenerVenta(Integer id);
     VentaResponseDTO actualizarVenta(Integer id, VentaRequestDTO request);
     void eliminarVenta(Integer id);
 
     // ========== LISTAR ==========
+    /**
+     * @deprecated Carga todo el historial en memoria. Usar listarPaginado.
+     */
+    @Deprecated
     List<VentaResponseDTO> listarTodas();
+
+    /**
+     * Listado liviano con paginación por cursor. Todos los filtros son opcionales.
+     */
+    PaginaCursorDTO<VentaListadoDTO> listarPaginado(EstadoVenta estado, LocalDateTime desde, LocalDateTime hasta,
+                                                    String cliente, String cursor, Integer tamanio);
     List<VentaResponseDTO> listarPorEstado(EstadoVenta estado);
     List<VentaResponseDTO> listarPorFecha(LocalDateTime inicio, LocalDateTime fin);
+
+    /**
+     * Escribe las ventas del rango en el stream fila por fila, sin cargarlas todas en memoria.
+     * formato: "ndjson" (una venta JSON por línea) o "csv".
+     */
+    void exportarPorFecha(LocalDateTime inicio, LocalDateTime fin, String formato, OutputStream salida) throws IOException;
     List<VentaResponseDTO> listarBorradores();
     List<VentaResponseDTO> listarCompletadas();
 
@@ -0,0 +1,41 @@
+package com.upc.smaf.servicesimplements;
+
+/**
+ * Patrones LIKE para las búsquedas por texto respaldadas por índices pg_trgm (ver db/esquema_auxiliar.sql).
+ * El término se normaliza a minúsculas y se escapan los comodines que escriba el usuario.
+ */
+final class BusquedaTexto {
+
+    static final int LIMITE_RESULTADOS = 20;
+    // Un término más corto no forma trigramas: LIKE '%ab%' no puede usar el índice GIN
+    static final int MINIMO_TRIGRAMAS = 3;
+
+    private BusquedaTexto() {
+    }
+
+    /** '%termino%' */
+    static String contiene(String termino) {
+        return "%" + escapar(termino) + "%";
+    }
+
+    /** 'termino%' (para ordenar primero las coincidencias al inicio) */
+    static String empiezaCon(String termino) {
+        return escapar(termino) + "%";
+    }
+
+    /** true si el término alcanza para buscar "en cualquier parte" con los índices de trigramas */
+    static boolean usaTrigramas(String termino) {
+        return termino.trim().length() >= MINIMO_TRIGRAMAS;
+    }
+
+    static boolean vacio(String termino) {
+        return termino == null || termino.isBlank();
+    }
+
+    private static String escapar(String termino) {
+        return termino.trim().toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
@@ -9,6 +9,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -105,7 +106,13 @@ public class ClienteServiceImpl implements ClienteService {
 
     @Override
     public List<ClienteResponseDTO> buscarClientes(String termino) {
-        return clienteRepository.buscarClientes(termino).stream()
+        if (BusquedaTexto.vacio(termino)) return new ArrayList<>();
+        List<Cliente> clientes = BusquedaTexto.usaTrigramas(termino)
+                ? clienteRepository.buscarClientesIndexado(BusquedaTexto.contiene(termino),
+                        BusquedaTexto.empiezaCon(termino), BusquedaTexto.LIMITE_RESULTADOS)
+                : clienteRepository.buscarClientesPorPrefijo(BusquedaTexto.empiezaCon(termino),
+                        BusquedaTexto.LIMITE_RESULTADOS);
+        return clientes.stream()
                 .map(this::convertirAResponseDTO)
                 .collect(Collectors.toList());
     }
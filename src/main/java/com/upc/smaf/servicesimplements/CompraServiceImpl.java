@@ -2,27 +2,38 @@ package com.upc.smaf.servicesimplements;
 
 import com.upc.smaf.dtos.request.CompraRequestDTO;
 import com.upc.smaf.dtos.response.CompraDetalleResponseDTO;
+import com.upc.smaf.dtos.response.CompraListadoDTO;
 import com.upc.smaf.dtos.response.CompraResponseDTO;
 import com.upc.smaf.dtos.response.PagoCompraResponseDTO;
+import com.upc.smaf.dtos.response.PaginaCursorDTO;
 import com.upc.smaf.entities.*;
+import com.upc.smaf.events.OperacionComercialEvent;
 import com.upc.smaf.repositories.*;
 import com.upc.smaf.serviceinterface.CompraService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class CompraServiceImpl implements CompraService {
 
+    private static final int TAMANIO_PAGINA_DEFECTO = 20;
+    private static final int TAMANIO_PAGINA_MAXIMO = 100;
+
     private final CompraRepository compraRepository;
     private final CompraDetalleRepository detalleRepository;
     private final ProveedorRepository proveedorRepository;
@@ -30,6 +41,10 @@ public class CompraServiceImpl implements CompraService {
     private final AlmacenRepository almacenRepository;
     private final ImportacionRepository importacionRepository;
     private final CuentaBancariaRepository cuentaRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CostoLandedService costoLandedService;
+    private final RecalculoImportacionService recalculoImportacionService;
+    private final ReservaStockService reservaStockService;
 
     @Override
     @Transactional
@@ -74,7 +89,8 @@ public class CompraServiceImpl implements CompraService {
 
         // Vincular o Crear Carpeta de Importación Automáticamente
         if (request.getCodImportacion() != null && !request.getCodImportacion().trim().isEmpty()) {
-            Optional<Importacion> importacionOpt = importacionRepository.findByCodigoAgrupador(request.getCodImportacion());
+            // Carpeta bloqueada antes de tocar el stock de los productos (mismo orden que el recálculo)
+            Optional<Importacion> importacionOpt = importacionRepository.findByCodigoAgrupadorParaActualizar(request.getCodImportacion());
 
             if (importacionOpt.isPresent()) {
                 compra.setImportacion(importacionOpt.get());
@@ -134,6 +150,8 @@ public class CompraServiceImpl implements CompraService {
         Compra savedCompra = compraRepository.save(compra);
 
         // 5. DETALLES DE PRODUCTOS
+        Map<Integer, Integer> ingresos = new TreeMap<>();
+        Map<Integer, BigDecimal> preciosChina = new TreeMap<>();
         if (request.getDetalles() != null) {
             for (CompraRequestDTO.DetalleRequestDTO detReq : request.getDetalles()) {
                 Producto producto = productoRepository.findById(detReq.getProductoId())
@@ -152,26 +170,36 @@ public class CompraServiceImpl implements CompraService {
 
                 // Actualizar Stock solo si es Bien
                 if(compra.getTipoCompra() == TipoCompra.BIEN) {
-                    int stock = producto.getStockActual() != null ? producto.getStockActual() : 0;
-                    producto.setStockActual(stock + detReq.getCantidad());
+                    ingresos.merge(producto.getId(), detReq.getCantidad(), Integer::sum);
 
-                    // Actualizar referencia de costo
+                    // Referencia de precio de importación; el costo (costoTotal) es el promedio ponderado
+                    // landed que mantiene CostoLandedService
                     if(savedCompra.getCodImportacion() != null) {
-                        producto.setPrecioChina(detReq.getPrecioUnitario()); // Referencia Importación
-                    } else {
-                        producto.setCostoTotal(detReq.getPrecioUnitario()); // Referencia Local
+                        preciosChina.put(producto.getId(), detReq.getPrecioUnitario()); // Referencia Importación
                     }
-                    productoRepository.save(producto);
                 }
                 detalleRepository.save(detalle);
             }
         }
 
-        // ✅ 6. ACTUALIZAR TOTALES DE LA CARPETA (FOB, PESO, CBM)
+        // Stock y precio de referencia con UPDATE relativos en la BD (no se guarda el Producto leído, que
+        // pisaría el stock que otra operación cambió mientras tanto)
+        reservaStockService.liberar(ingresos);
+        if (!preciosChina.isEmpty()) {
+            productoRepository.actualizarPrecioChinaEnLote(preciosChina.keySet().toArray(new Integer[0]),
+                    preciosChina.values().toArray(new BigDecimal[0]));
+        }
+
+        // ✅ 6. TOTALES DE LA CARPETA (FOB, PESO, CBM) POR DIFERENCIA; EL PRORRATEO, EN SEGUNDO PLANO
         if (savedCompra.getImportacion() != null) {
-            actualizarTotalesImportacion(savedCompra.getImportacion());
+            sumarATotalesImportacion(savedCompra, BigDecimal.ONE);
+            recalculoImportacionService.solicitarAlConfirmar(savedCompra.getImportacion().getId());
         }
 
+        // 7. COSTO PROMEDIO DE LOS PRODUCTOS (los gastos de importación se suman al recalcular la carpeta)
+        costoLandedService.costearCompra(savedCompra.getId());
+        publicarCambio(savedCompra.getId());
+
         return obtenerCompra(savedCompra.getId());
     }
 
@@ -206,47 +234,91 @@ public class CompraServiceImpl implements CompraService {
         }
 
         compraRepository.save(compra);
+        publicarCambio(compra.getId());
         return mapToResponseDTO(compra);
     }
 
     @Override
     @Transactional
     public void anularCompra(Integer id) {
-        Compra compra = compraRepository.findById(id)
+        // Primero la carpeta y después la compra: el recálculo de la carpeta bloquea en ese orden
+        compraRepository.findImportacionIdById(id).ifPresent(importacionRepository::findByIdParaActualizar);
+        Compra compra = compraRepository.findByIdParaActualizar(id)
                 .orElseThrow(() -> new RuntimeException("No existe compra con ID: " + id));
 
         if(compra.getEstado() == EstadoCompra.ANULADA) return;
 
-        // Revertir Stock
+        // Revertir Stock (sin bajar de cero: parte de la mercadería pudo venderse)
         if (compra.getTipoCompra() == TipoCompra.BIEN) {
+            Map<Integer, Integer> cantidades = new TreeMap<>();
             for (CompraDetalle d : compra.getDetalles()) {
-                Producto p = d.getProducto();
-                p.setStockActual(Math.max(0, p.getStockActual() - d.getCantidad()));
-                productoRepository.save(p);
+                cantidades.merge(d.getProducto().getId(), d.getCantidad(), Integer::sum);
             }
+            reservaStockService.retirarDisponible(cantidades);
         }
 
         compra.setEstado(EstadoCompra.ANULADA);
         compraRepository.save(compra);
 
-        // ✅ Al anular, descontar de los totales de importación
+        // ✅ Al anular, descontar de los totales de importación (el prorrateo, en segundo plano)
         if (compra.getImportacion() != null) {
-            actualizarTotalesImportacion(compra.getImportacion());
+            sumarATotalesImportacion(compra, BigDecimal.ONE.negate());
+            recalculoImportacionService.solicitarAlConfirmar(compra.getImportacion().getId());
         }
+
+        // Sus líneas salen del costo promedio de los productos
+        costoLandedService.costearCompra(id);
+        publicarCambio(id);
+    }
+
+    // Se procesa al confirmarse la transacción (invalida la caché del dashboard)
+    private void publicarCambio(Integer compraId) {
+        eventPublisher.publishEvent(new OperacionComercialEvent(OperacionComercialEvent.Tipo.COMPRA, compraId));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<CompraResponseDTO> listarTodas() {
-        return compraRepository.findAll().stream()
+        return compraRepository.findAllConProveedor().stream()
                 .map(this::mapToResponseDTO)
                 .collect(Collectors.toList());
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public PaginaCursorDTO<CompraListadoDTO> listarPaginado(Integer proveedorId, EstadoCompra estado, LocalDate desde,
+                                                            LocalDate hasta, String codImportacion, String cursor,
+                                                            Integer tamanio) {
+        int limite = (tamanio == null || tamanio <= 0) ? TAMANIO_PAGINA_DEFECTO : Math.min(tamanio, TAMANIO_PAGINA_MAXIMO);
+
+        CursorPagina.Posicion<LocalDate> posicion = CursorPagina.decodificar(cursor, LocalDate::parse);
+        LocalDate cursorFecha = posicion != null ? posicion.fecha() : null;
+        Integer cursorId = posicion != null ? posicion.id() : null;
+
+        String filtroImportacion = (codImportacion == null || codImportacion.isBlank()) ? null : codImportacion.trim();
+
+        // Se pide una fila extra solo para saber si existe una página siguiente
+        List<CompraListadoDTO> filas = compraRepository.listarPagina(proveedorId, estado, desde, hasta, filtroImportacion,
+                cursorFecha, cursorId, limite + 1);
+
+        String siguienteCursor = null;
+        if (filas.size() > limite) {
+            filas = new ArrayList<>(filas.subList(0, limite));
+            CompraListadoDTO ultima = filas.get(limite - 1);
+            siguienteCursor = CursorPagina.codificar(ultima.getFechaEmision(), ultima.getId());
+        }
+        return new PaginaCursorDTO<>(filas, siguienteCursor);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public CompraResponseDTO obtenerCompra(Integer id) {
-        return compraRepository.findById(id)
-                .map(this::mapToResponseDTO)
+        // El detalle es el único que carga los pagos (en la misma consulta que la compra)
+        Compra compra = compraRepository.findConPagosById(id)
                 .orElseThrow(() -> new RuntimeException("Compra no encontrada"));
+        CompraResponseDTO dto = mapToResponseDTO(compra);
+        dto.setPagos(compra.getPagos().stream().map(this::mapPagoToDTO).collect(Collectors.toList()));
+        return dto;
     }
 
     @Override
@@ -257,14 +329,15 @@ public class CompraServiceImpl implements CompraService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<CompraResponseDTO> listarPorProveedor(Integer proveedorId) {
-        return compraRepository.findAll().stream() // Optimizar con findByProveedorId en repo
-                .filter(c -> c.getProveedor().getId().equals(proveedorId))
+        return compraRepository.findByProveedorId(proveedorId).stream()
                 .map(this::mapToResponseDTO)
                 .collect(Collectors.toList());
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<CompraResponseDTO> listarPorCodigoImportacion(String codImportacion) {
         return compraRepository.findByCodImportacion(codImportacion).stream()
                 .map(this::mapToResponseDTO)
@@ -275,25 +348,12 @@ public class CompraServiceImpl implements CompraService {
     // ✅ MÉTODOS AUXILIARES
     // =========================================================
 
-    private void actualizarTotalesImportacion(Importacion imp) {
-        BigDecimal sumaFob = BigDecimal.ZERO;
-        BigDecimal sumaPeso = BigDecimal.ZERO;
-        BigDecimal sumaCbm = BigDecimal.ZERO;
-
-        List<Compra> facturas = compraRepository.findByCodImportacion(imp.getCodigoAgrupador());
-
-        for (Compra c : facturas) {
-            if (c.getEstado() != EstadoCompra.ANULADA) {
-                sumaFob = sumaFob.add(c.getTotal());
-                sumaPeso = sumaPeso.add(orZero(c.getPesoNetoKg()));
-                sumaCbm = sumaCbm.add(orZero(c.getCbm()));
-            }
-        }
-
-        imp.setSumaFobTotal(sumaFob);
-        imp.setPesoTotalKg(sumaPeso);
-        imp.setCbmTotal(sumaCbm);
-        importacionRepository.save(imp);
+    // signo = 1 al registrar la factura, -1 al anularla
+    private void sumarATotalesImportacion(Compra c, BigDecimal signo) {
+        importacionRepository.sumarTotales(c.getImportacion().getId(),
+                orZero(c.getTotal()).multiply(signo),
+                orZero(c.getPesoNetoKg()).multiply(signo),
+                orZero(c.getCbm()).multiply(signo));
     }
 
     private CompraResponseDTO mapToResponseDTO(Compra c) {
@@ -342,6 +402,18 @@ public class CompraServiceImpl implements CompraService {
         return dto;
     }
 
+    private PagoCompraResponseDTO mapPagoToDTO(PagoCompra p) {
+        PagoCompraResponseDTO dto = new PagoCompraResponseDTO();
+        dto.setId(p.getId());
+        dto.setMonto(p.getMonto());
+        dto.setMoneda(p.getMoneda());
+        dto.setMetodoPago(p.getMetodoPago() != null ? p.getMetodoPago().name() : null);
+        dto.setFechaPago(p.getFechaPago());
+        dto.setReferencia(p.getReferencia());
+        dto.setNombreCuentaOrigen(p.getCuentaOrigen() != null ? p.getCuentaOrigen().getNombre() : null);
+        return dto;
+    }
+
     private BigDecimal orZero(BigDecimal val) {
         return val != null ? val : BigDecimal.ZERO;
     }
@@ -0,0 +1,160 @@
+package com.upc.smaf.servicesimplements;
+
+import com.upc.smaf.entities.EstadoCompra;
+import com.upc.smaf.entities.TipoCompra;
+import com.upc.smaf.repositories.CompraDetalleRepository;
+import com.upc.smaf.repositories.ImportacionRepository;
+import com.upc.smaf.repositories.ProductoRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lleva el costo landed de las compras hasta el costo de los productos (Producto.costoTotal).
+ *
+ * Cada línea de compra (CompraDetalle) guarda su costo landed: su importe más su parte de los gastos de
+ * importación de la factura, repartidos por importe con el mismo mayor residuo que el prorrateo.
+ * El costo del producto es el promedio ponderado de todas sus líneas costeadas y se mantiene de forma
+ * incremental: solo se suma la diferencia de las líneas que cambiaron, con un UPDATE en lote para las
+ * líneas y otro para los productos. Las líneas de compras ANULADAS o de servicios salen del promedio.
+ */
+@Service
+@RequiredArgsConstructor
+public class CostoLandedService {
+
+    private final CompraDetalleRepository detalleRepository;
+    private final ProductoRepository productoRepository;
+    private final ImportacionRepository importacionRepository;
+    private final ValorInventarioService valorInventarioService;
+
+    /**
+     * Recosteo de las facturas de una carpeta recién prorrateada.
+     */
+    public void propagar(Collection<Integer> compraIds, ProrrateoImportacionService.Prorrateo prorrateo) {
+        sincronizar(compraIds, prorrateo);
+    }
+
+    /**
+     * Costeo de una compra sin gastos prorrateados: compra local, factura de importación aún sin
+     * recalcular o compra anulada (sus líneas salen del promedio).
+     */
+    public void costearCompra(Integer compraId) {
+        sincronizar(List.of(compraId), null);
+    }
+
+    private void sincronizar(Collection<Integer> compraIds, ProrrateoImportacionService.Prorrateo prorrateo) {
+        if (compraIds.isEmpty()) return;
+
+        // El costo anterior de cada línea se lee y se reemplaza por diferencia: dos costeos de la misma
+        // carpeta no pueden cruzarse. Si el llamador ya tiene la carpeta bloqueada, no espera nada
+        importacionRepository.bloquearDeCompras(compraIds.toArray(new Integer[0]));
+
+        // Líneas agrupadas por compra (vienen ordenadas por compra)
+        Map<Integer, List<Object[]>> lineasPorCompra = new LinkedHashMap<>();
+        for (Object[] fila : detalleRepository.findLineasParaCosteo(compraIds)) {
+            lineasPorCompra.computeIfAbsent((Integer) fila[1], k -> new ArrayList<>()).add(fila);
+        }
+
+        List<Integer> lineaIds = new ArrayList<>();
+        List<BigDecimal> lineaCostos = new ArrayList<>();
+        // productoId -> [variación de cantidad costeada, variación de costo acumulado en céntimos]
+        Map<Integer, long[]> variacionPorProducto = new LinkedHashMap<>();
+
+        for (Map.Entry<Integer, List<Object[]>> e : lineasPorCompra.entrySet()) {
+            Integer compraId = e.getKey();
+            List<Object[]> lineas = e.getValue();
+            Object[] primera = lineas.get(0);
+            boolean costeable = primera[2] != EstadoCompra.ANULADA && primera[3] == TipoCompra.BIEN;
+
+            long[] nuevos = costeable ? costosDeLineas(lineas,
+                    prorrateo != null ? prorrateo.gastosEnCentimos(compraId) : 0) : null;
+
+            for (int i = 0; i < lineas.size(); i++) {
+                Object[] linea = lineas.get(i);
+                BigDecimal anterior = (BigDecimal) linea[7];
+                BigDecimal nuevo = nuevos != null ? ProrrateoImportacionService.aMonto(nuevos[i]) : null;
+                if (anterior == null ? nuevo == null : nuevo != null && anterior.compareTo(nuevo) == 0) continue;
+
+                lineaIds.add((Integer) linea[0]);
+                lineaCostos.add(nuevo);
+
+                int cantidad = linea[5] != null ? (Integer) linea[5] : 0;
+                long[] variacion = variacionPorProducto.computeIfAbsent((Integer) linea[4], k -> new long[2]);
+                if (anterior != null) {
+                    variacion[0] -= cantidad;
+                    variacion[1] -= ProrrateoImportacionService.aCentimos(anterior);
+                }
+                if (nuevo != null) {
+                    variacion[0] += cantidad;
+                    variacion[1] += nuevos[i];
+                }
+            }
+        }
+
+        if (lineaIds.isEmpty()) return;
+
+        detalleRepository.actualizarCostoLandedEnLote(
+                lineaIds.toArray(new Integer[0]), lineaCostos.toArray(new BigDecimal[0]));
+
+        int n = variacionPorProducto.size();
+        Integer[] productoIds = new Integer[n];
+        Integer[] cantidades = new Integer[n];
+        BigDecimal[] costos = new BigDecimal[n];
+        int i = 0;
+        for (Map.Entry<Integer, long[]> e : variacionPorProducto.entrySet()) {
+            productoIds[i] = e.getKey();
+            cantidades[i] = Math.toIntExact(e.getValue()[0]);
+            costos[i] = ProrrateoImportacionService.aMonto(e.getValue()[1]);
+            i++;
+        }
+
+        // Costo anterior con los productos bloqueados: compras locales o de otras carpetas que costean los
+        // mismos productos esperan aquí, y el valor de inventario ve la diferencia exacta de cada una
+        Map<Integer, BigDecimal> costoAnterior = new HashMap<>();
+        for (Object[] fila : productoRepository.bloquearCosto(productoIds)) {
+            costoAnterior.put((Integer) fila[0], fila[1] != null ? (BigDecimal) fila[1] : BigDecimal.ZERO);
+        }
+
+        // El valor de inventario (stock × costo) cambia con el costo nuevo de cada producto
+        BigDecimal variacionValor = BigDecimal.ZERO;
+        for (Object[] fila : productoRepository.acumularCostoLandedEnLote(productoIds, cantidades, costos)) {
+            BigDecimal stock = BigDecimal.valueOf(((Number) fila[1]).longValue());
+            BigDecimal anterior = costoAnterior.getOrDefault((Integer) fila[0], BigDecimal.ZERO);
+            BigDecimal nuevo = fila[2] != null ? (BigDecimal) fila[2] : BigDecimal.ZERO;
+            variacionValor = variacionValor.add(stock.multiply(nuevo.subtract(anterior)));
+        }
+        valorInventarioService.registrarVariacion(variacionValor);
+    }
+
+    /**
+     * Costo landed de cada línea en céntimos: su importe más su parte de los gastos de la factura,
+     * repartidos por importe (o por cantidad si la factura no tiene importes).
+     */
+    private long[] costosDeLineas(List<Object[]> lineas, long gastos) {
+        int n = lineas.size();
+        long[] importes = new long[n];
+        long totalImportes = 0;
+        for (int i = 0; i < n; i++) {
+            importes[i] = ProrrateoImportacionService.aCentimos((BigDecimal) lineas.get(i)[6]);
+            totalImportes += importes[i];
+        }
+
+        long[] bases = importes;
+        if (totalImportes <= 0) {
+            bases = new long[n];
+            for (int i = 0; i < n; i++) bases[i] = lineas.get(i)[5] != null ? (Integer) lineas.get(i)[5] : 0;
+        }
+
+        long[] partes = ProrrateoImportacionService.repartir(gastos, bases);
+        long[] costos = new long[n];
+        for (int i = 0; i < n; i++) costos[i] = importes[i] + partes[i];
+        return costos;
+    }
+}
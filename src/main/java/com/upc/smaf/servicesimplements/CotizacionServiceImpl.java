@@ -20,6 +20,7 @@ public class CotizacionServiceImpl {
     private final ClienteRepository clienteRepository;
     private final ProductoRepository productoRepository;
     private final PdfService pdfService; // ✅ Inyectamos tu servicio de PDF corregido
+    private final NumeracionService numeracionService;
 
     @Transactional
     public Cotizacion registrar(CotizacionRequestDTO dto) {
@@ -37,11 +38,10 @@ public class CotizacionServiceImpl {
         cot.setObservaciones(dto.getObservaciones());
         cot.setEstado(Cotizacion.EstadoCotizacion.ENVIADA);
 
-        // 3. Generar Serie/Número (Lógica simple: COT + correlativo)
-        // Nota: En producción esto debería ser más robusto para evitar duplicados concurrentes
-        long cantidad = cotizacionRepository.count() + 1;
+        // 3. Generar Serie/Número (COT + correlativo desde la secuencia compartida)
+        long correlativo = numeracionService.siguiente(NumeracionService.Serie.COT);
         cot.setSerie("COT");
-        cot.setNumero(String.format("%06d", cantidad)); // Ej: 000001
+        cot.setNumero(String.format("%06d", correlativo)); // Ej: 000001
 
         // 4. Asignar Totales
         cot.setSubTotal(dto.getSubTotal());
@@ -0,0 +1,127 @@
+package com.upc.smaf.servicesimplements;
+
+import com.upc.smaf.dtos.response.AntiguedadCuentaPorCobrarDTO;
+import com.upc.smaf.entities.CuentaPorCobrarMovimiento;
+import com.upc.smaf.entities.CuentaPorCobrarSaldo;
+import com.upc.smaf.entities.TipoMovimientoCxC;
+import com.upc.smaf.entities.Venta;
+import com.upc.smaf.repositories.CuentaPorCobrarMovimientoRepository;
+import com.upc.smaf.repositories.CuentaPorCobrarSaldoRepository;
+import com.upc.smaf.serviceinterface.CuentaPorCobrarService;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class CuentaPorCobrarServiceImpl implements CuentaPorCobrarService {
+
+    private final CuentaPorCobrarMovimientoRepository movimientoRepository;
+    private final CuentaPorCobrarSaldoRepository saldoRepository;
+    private final EntityManager entityManager;
+
+    // ==========================================
+    // REGISTRO DE MOVIMIENTOS
+    // ==========================================
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarVenta(Venta venta) {
+        if (venta.getSaldoPendiente() == null || venta.getSaldoPendiente().compareTo(BigDecimal.ZERO) <= 0) {
+            return;
+        }
+
+        CuentaPorCobrarSaldo saldo = new CuentaPorCobrarSaldo();
+        saldo.setVentaId(venta.getId());
+        saldo.setCodigoVenta(venta.getCodigo());
+        saldo.setClienteId(venta.getClienteId());
+        saldo.setNombreCliente(venta.getNombreCliente());
+        saldo.setMoneda(venta.getMoneda());
+        saldo.setFechaVenta(venta.getFechaVenta());
+        saldo.setMontoOriginal(venta.getTotal());
+        saldo.setSaldo(venta.getSaldoPendiente());
+        saldo.setFechaActualizacion(LocalDateTime.now());
+        // persist directo: el id es el de la venta (asignado), save() haría un SELECT previo por cada fila
+        entityManager.persist(saldo);
+
+        registrarMovimiento(venta, TipoMovimientoCxC.CARGO, venta.getTotal(), venta.getCodigo());
+        BigDecimal pagoInicial = venta.getTotal().subtract(venta.getSaldoPendiente());
+        if (pagoInicial.compareTo(BigDecimal.ZERO) > 0) {
+            registrarMovimiento(venta, TipoMovimientoCxC.ABONO, pagoInicial, "PAGO INICIAL");
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarAbono(Venta venta, BigDecimal monto, String referencia) {
+        if (monto == null || monto.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new RuntimeException("El abono debe ser mayor a cero");
+        }
+        if (saldoRepository.descontar(venta.getId(), monto) == 0) {
+            // Ventas sin cuenta abierta (contado) no tienen nada que descontar
+            if (!saldoRepository.existsById(venta.getId())) return;
+            throw new RuntimeException("El abono supera el saldo pendiente de la venta " + venta.getCodigo());
+        }
+        registrarMovimiento(venta, TipoMovimientoCxC.ABONO, monto, referencia);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void anularVenta(Venta venta) {
+        saldoRepository.findById(venta.getId()).ifPresent(saldo -> {
+            BigDecimal restante = saldo.getSaldo();
+            if (restante.compareTo(BigDecimal.ZERO) <= 0) return;
+
+            saldo.setSaldo(BigDecimal.ZERO);
+            saldo.setFechaActualizacion(LocalDateTime.now());
+            registrarMovimiento(venta, TipoMovimientoCxC.ANULACION, restante, "CANCELACIÓN " + venta.getCodigo());
+        });
+    }
+
+    private void registrarMovimiento(Venta venta, TipoMovimientoCxC tipo, BigDecimal monto, String referencia) {
+        CuentaPorCobrarMovimiento mov = new CuentaPorCobrarMovimiento();
+        mov.setVentaId(venta.getId());
+        mov.setClienteId(venta.getClienteId());
+        mov.setNombreCliente(venta.getNombreCliente());
+        mov.setTipo(tipo);
+        mov.setMonto(monto);
+        mov.setMoneda(venta.getMoneda());
+        mov.setFecha(LocalDateTime.now());
+        mov.setReferencia(referencia);
+        movimientoRepository.save(mov);
+    }
+
+    // ==========================================
+    // CONSULTAS
+    // ==========================================
+    @Override
+    @Transactional(readOnly = true)
+    public List<AntiguedadCuentaPorCobrarDTO> reporteAntiguedad() {
+        LocalDateTime ahora = LocalDateTime.now();
+        return saldoRepository.reporteAntiguedad(ahora.minusDays(30), ahora.minusDays(60), ahora.minusDays(90));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CuentaPorCobrarSaldo> saldosPendientesPorCliente(Integer clienteId) {
+        return saldoRepository.findByClienteIdAndSaldoGreaterThanOrderByFechaVentaAsc(clienteId, BigDecimal.ZERO);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CuentaPorCobrarSaldo> saldosPendientesSinCliente(String nombreCliente) {
+        return saldoRepository.findByClienteIdIsNullAndNombreClienteAndSaldoGreaterThanOrderByFechaVentaAsc(
+                nombreCliente, BigDecimal.ZERO);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CuentaPorCobrarMovimiento> movimientosPorVenta(Integer ventaId) {
+        return movimientoRepository.findByVentaIdOrderByFechaAscIdAsc(ventaId);
+    }
+}
@@ -0,0 +1,38 @@
+package com.upc.smaf.servicesimplements;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.function.Function;
+
+/**
+ * Cursor opaco de los listados paginados por keyset: "fecha|id" de la última fila, en Base64 URL sin relleno.
+ * La fecha se guarda en ISO-8601 (toString de LocalDate / LocalDateTime).
+ */
+final class CursorPagina {
+
+    private CursorPagina() {
+    }
+
+    /** Posición de la última fila entregada; el listado sigue con las filas (fecha, id) menores. */
+    record Posicion<T>(T fecha, Integer id) {
+    }
+
+    static String codificar(Object fecha, Integer id) {
+        String valor = fecha + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Null si no hay cursor (primera página). Un cursor mal formado es un error del cliente.
+     */
+    static <T> Posicion<T> decodificar(String cursor, Function<String, T> leerFecha) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            String[] partes = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8).split("\\|");
+            if (partes.length != 2) throw new IllegalArgumentException();
+            return new Posicion<>(leerFecha.apply(partes[0]), Integer.valueOf(partes[1]));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Cursor de paginación inválido");
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.upc.smaf.servicesimplements;
+
+import com.upc.smaf.config.DashboardConfig;
+import com.upc.smaf.events.OperacionComercialEvent;
+import com.upc.smaf.events.StockBajoEvent;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Vacía la caché del dashboard cuando se confirma una venta, compra, nota de crédito o importación,
+ * o cuando un producto entra o sale de la alerta de stock bajo.
+ * Si la transacción se revierte no se invalida nada.
+ */
+@Component
+public class DashboardCacheListener {
+
+    // fallbackExecution: también invalida si el evento se publica fuera de una transacción.
+    // Primero que los demás listeners, para que lean datos frescos (ver DashboardStreamService)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @CacheEvict(cacheNames = DashboardConfig.CACHE_DASHBOARD, allEntries = true)
+    public void alConfirmarOperacion(OperacionComercialEvent event) {
+        // La invalidación la hace @CacheEvict
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @CacheEvict(cacheNames = DashboardConfig.CACHE_DASHBOARD, allEntries = true)
+    public void alCruzarStockMinimo(StockBajoEvent event) {
+        // La invalidación la hace @CacheEvict
+    }
+}
@@ -1,21 +1,30 @@
 package com.upc.smaf.servicesimplements;
 
 import com.upc.smaf.dtos.GraficoVentasDTO;
+import com.upc.smaf.dtos.ReporteMetodoPagoDTO;
 import com.upc.smaf.dtos.response.DashboardAlertaDTO;
 import com.upc.smaf.dtos.response.DashboardResponseDTO;
+import com.upc.smaf.dtos.response.DashboardSnapshotDTO;
 import com.upc.smaf.dtos.response.ProductoVendidoDTO;
-import com.upc.smaf.entities.Compra;
+import com.upc.smaf.dtos.response.ResumenVentasDTO;
+import com.upc.smaf.config.DashboardConfig;
 import com.upc.smaf.entities.Importacion;
+import com.upc.smaf.entities.KpiDiario;
+import com.upc.smaf.entities.ResumenVentaDiaria;
+import com.upc.smaf.entities.ResumenVentaMensual;
+import com.upc.smaf.entities.VentanaRanking;
 import com.upc.smaf.repositories.*;
 import com.upc.smaf.serviceinterface.DashboardService;
+import com.upc.smaf.serviceinterface.ResumenVentasService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.annotation.CacheConfig;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.sql.Date;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -26,10 +35,20 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Todas las lecturas públicas pasan por la caché "dashboard" (ver DashboardConfig):
+ * mientras no se confirme una operación comercial, las consultas repetidas no tocan la BD.
+ */
 @Service
 @RequiredArgsConstructor
+@CacheConfig(cacheNames = DashboardConfig.CACHE_DASHBOARD, keyGenerator = "dashboardKeyGenerator")
 public class DashboardServiceImpl implements DashboardService {
 
     private final ImportacionRepository importacionRepository;
@@ -37,52 +56,103 @@ public class DashboardServiceImpl implements DashboardService {
     private final ProductoRepository productoRepository;
     private final VentaRepository ventaRepository;
     private final ClienteRepository clienteRepository;
+    private final ValorInventarioService valorInventarioService;
+    private final ResumenVentasService resumenVentasService;
+    private final KpiDiarioService kpiDiarioService;
+    @Qualifier("dashboardExecutor")
+    private final Executor dashboardExecutor;
+
+    private static final int LIMITE_PROXIMAS_LLEGADAS = 5;
 
     // ==========================================
     // 1. MÉTRICAS GENERALES
     // ==========================================
     @Override
+    @Cacheable
     public DashboardResponseDTO obtenerMetricasDashboard() {
-        DashboardResponseDTO dashboard = new DashboardResponseDTO();
-
-        LocalDateTime inicioHoy = LocalDate.now().atStartOfDay();
-        LocalDateTime finHoy = LocalDate.now().atTime(LocalTime.MAX);
-        LocalDateTime inicioMes = LocalDate.now().withDayOfMonth(1).atStartOfDay();
-        LocalDateTime finMes = LocalDate.now().atTime(LocalTime.MAX);
-        LocalDateTime inicioMesAnt = LocalDate.now().minusMonths(1).withDayOfMonth(1).atStartOfDay();
-        LocalDateTime finMesAnt = inicioMesAnt.plusMonths(1).minusSeconds(1);
-
-        BigDecimal ventasHoy = ventaRepository.sumarVentasCompletadasEntreFechas(inicioHoy, finHoy);
-        BigDecimal ventasMes = ventaRepository.sumarVentasCompletadasEntreFechas(inicioMes, finMes);
-        BigDecimal ventasMesAnt = ventaRepository.sumarVentasCompletadasEntreFechas(inicioMesAnt, finMesAnt);
+        // Lecturas independientes en paralelo (una conexión cada una)
+        CompletableFuture<ResumenVentasDTO> resumen = enParalelo(this::resumenVentas);
+        CompletableFuture<Long> clientes = enParalelo(clienteRepository::count);
+        CompletableFuture<Long> productos = enParalelo(productoRepository::count);
+        CompletableFuture<Integer> stockBajo = enParalelo(productoRepository::contarProductosStockBajo);
+        // Base de los porcentajes de clientes y productos: la foto diaria de hace un mes
+        CompletableFuture<Optional<KpiDiario>> fotoMesAnterior =
+                enParalelo(() -> kpiDiarioService.fotoAl(LocalDate.now().minusMonths(1)));
 
-        dashboard.setVentasHoy(ventasHoy);
-        dashboard.setVentasMes(ventasMes);
+        DashboardResponseDTO dashboard = new DashboardResponseDTO();
+        ResumenVentasDTO r = resumen.join();
+
+        dashboard.setVentasHoy(r.getVentasHoy());
+        dashboard.setVentasMes(r.getVentasMes());
+        dashboard.setCantidadVentasHoy(r.getCantidadHoy().intValue());
+        dashboard.setCantidadVentasMes(r.getCantidadMes().intValue());
+
+        dashboard.setClientesActivos(clientes.join());
+        dashboard.setProductosStock(productos.join().intValue());
+        dashboard.setProductosStockBajo(stockBajo.join());
+
+        // Acumulado en memoria, sin recorrer el catálogo
+        dashboard.setValorInventario(valorInventarioService.obtenerValor());
+
+        dashboard.setPorcentajeCambioVentasMes(calcularVariacion(r.getVentasMesAnterior(), r.getVentasMes()));
+        Optional<KpiDiario> foto = fotoMesAnterior.join();
+        dashboard.setPorcentajeCambioClientes(foto
+                .map(k -> calcularVariacion(BigDecimal.valueOf(k.getClientes()), BigDecimal.valueOf(dashboard.getClientesActivos())))
+                .orElse(0.0));
+        dashboard.setPorcentajeCambioProductos(foto
+                .map(k -> calcularVariacion(BigDecimal.valueOf(k.getProductos()), BigDecimal.valueOf(dashboard.getProductosStock())))
+                .orElse(0.0));
+        dashboard.setPorcentajeCambioVentasHoy(calcularVariacion(r.getVentasAyer(), r.getVentasHoy()));
 
-        Integer cantVentasHoy = ventaRepository.contarVentasCompletadasEntreFechas(inicioHoy, finHoy);
-        Integer cantVentasMes = ventaRepository.contarVentasCompletadasEntreFechas(inicioMes, finMes);
+        return dashboard;
+    }
 
-        dashboard.setCantidadVentasHoy(cantVentasHoy != null ? cantVentasHoy : 0);
-        dashboard.setCantidadVentasMes(cantVentasMes != null ? cantVentasMes : 0);
+    @Override
+    @Cacheable
+    public DashboardSnapshotDTO obtenerSnapshot() {
+        CompletableFuture<List<GraficoVentasDTO>> semana = enParalelo(() -> obtenerVentasGrafico("SEMANA"));
+        CompletableFuture<List<ProductoVendidoDTO>> top = enParalelo(() -> obtenerProductosMasVendidos(5));
+        CompletableFuture<List<DashboardAlertaDTO>> llegadas = enParalelo(this::obtenerProximasLlegadas);
+        CompletableFuture<List<ReporteMetodoPagoDTO>> metodos =
+                enParalelo(() -> resumenVentasService.pagosPorMetodo(LocalDate.now(), LocalDate.now()));
+
+        // Las métricas reparten sus propias lecturas en el mismo pool
+        DashboardSnapshotDTO snapshot = new DashboardSnapshotDTO();
+        snapshot.setMetricas(obtenerMetricasDashboard());
+        snapshot.setVentasSemana(semana.join());
+        snapshot.setProductosMasVendidos(top.join());
+        snapshot.setProximasLlegadas(llegadas.join());
+        snapshot.setMetodosPagoHoy(metodos.join());
+        return snapshot;
+    }
 
-        dashboard.setClientesActivos(clienteRepository.count());
-        dashboard.setProductosStock((int) productoRepository.count());
+    @Override
+    @Cacheable
+    public List<ReporteMetodoPagoDTO> obtenerReporteMetodosPago(LocalDate fechaInicio, LocalDate fechaFin) {
+        LocalDate inicio = fechaInicio != null ? fechaInicio : LocalDate.now();
+        LocalDate fin = fechaFin != null ? fechaFin : inicio;
+        return resumenVentasService.pagosPorMetodo(inicio, fin);
+    }
 
-        BigDecimal valorInv = productoRepository.findAll().stream()
-                .map(p -> {
-                    BigDecimal costo = p.getCostoTotal() != null ? p.getCostoTotal() : BigDecimal.ZERO;
-                    BigDecimal stock = new BigDecimal(p.getStockActual() != null ? p.getStockActual() : 0);
-                    return costo.multiply(stock);
-                })
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        dashboard.setValorInventario(valorInv);
+    @Override
+    @Cacheable
+    public List<KpiDiario> obtenerTendencia(LocalDate desde, LocalDate hasta) {
+        return kpiDiarioService.tendencia(desde, hasta);
+    }
 
-        dashboard.setPorcentajeCambioVentasMes(calcularVariacion(ventasMesAnt, ventasMes));
-        dashboard.setPorcentajeCambioClientes(0.0);
-        dashboard.setPorcentajeCambioProductos(0.0);
-        dashboard.setPorcentajeCambioVentasHoy(0.0);
+    private ResumenVentasDTO resumenVentas() {
+        LocalDate hoy = LocalDate.now();
+        LocalDateTime inicioMes = hoy.withDayOfMonth(1).atStartOfDay();
+        return ventaRepository.resumenVentas(
+                hoy.atStartOfDay(),
+                hoy.minusDays(1).atStartOfDay(),
+                inicioMes,
+                inicioMes.minusMonths(1),
+                hoy.atTime(LocalTime.MAX));
+    }
 
-        return dashboard;
+    private <T> CompletableFuture<T> enParalelo(Supplier<T> lectura) {
+        return CompletableFuture.supplyAsync(lectura, dashboardExecutor);
     }
 
     private double calcularVariacion(BigDecimal anterior, BigDecimal actual) {
@@ -96,23 +166,27 @@ public class DashboardServiceImpl implements DashboardService {
     // 2. MÉTODOS SIMPLES
     // ==========================================
     @Override
+    @Cacheable
     public BigDecimal obtenerVentasMesActual() {
         LocalDateTime inicio = LocalDate.now().withDayOfMonth(1).atStartOfDay();
         return ventaRepository.sumarVentasCompletadasEntreFechas(inicio, LocalDateTime.now());
     }
 
     @Override
+    @Cacheable
     public BigDecimal obtenerVentasHoy() {
         LocalDateTime inicio = LocalDate.now().atStartOfDay();
         return ventaRepository.sumarVentasCompletadasEntreFechas(inicio, LocalDateTime.now());
     }
 
     @Override
+    @Cacheable
     public Integer obtenerTotalProductosActivos() {
         return (int) productoRepository.count();
     }
 
     @Override
+    @Cacheable
     public Long obtenerClientesActivos() {
         return clienteRepository.count();
     }
@@ -120,66 +194,43 @@ public class DashboardServiceImpl implements DashboardService {
     // ==========================================
     // 3. GRÁFICOS DINÁMICOS (LUNES-DOMINGO FIJO)
     // ==========================================
+    // Lee los resúmenes precalculados (a lo sumo 31 filas diarias o 12 mensuales), no la tabla de ventas
     @Override
+    @Cacheable
     public List<GraficoVentasDTO> obtenerVentasGrafico(String periodo) {
-        LocalDateTime fin = LocalDate.now().atTime(LocalTime.MAX);
-        LocalDateTime inicio;
-        List<Object[]> resultadosRaw;
         List<GraficoVentasDTO> grafico = new ArrayList<>();
+        LocalDate hoy = LocalDate.now();
 
         if ("SEMANA".equalsIgnoreCase(periodo)) {
             // Lunes de esta semana
-            LocalDate hoy = LocalDate.now();
             LocalDate lunesEstaSemana = hoy.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
-
-            inicio = lunesEstaSemana.atStartOfDay();
-            LocalDate domingoEstaSemana = lunesEstaSemana.plusDays(6);
-            LocalDateTime finSemana = domingoEstaSemana.atTime(LocalTime.MAX);
-
-            resultadosRaw = ventaRepository.obtenerVentasPorDiaRaw(inicio, finSemana);
-
-            var mapVentas = resultadosRaw.stream().collect(Collectors.toMap(
-                    row -> row[0].toString(),
-                    row -> row
-            ));
+            Map<LocalDate, ResumenVentaDiaria> porDia = resumenVentasService
+                    .ventasPorDia(lunesEstaSemana, lunesEstaSemana.plusDays(6)).stream()
+                    .collect(Collectors.toMap(ResumenVentaDiaria::getFecha, r -> r));
 
             DateTimeFormatter diaFormatter = DateTimeFormatter.ofPattern("EEEE", new Locale("es", "ES"));
 
             for (int i = 0; i < 7; i++) {
                 LocalDate fecha = lunesEstaSemana.plusDays(i);
-                String keyFecha = fecha.toString();
+                ResumenVentaDiaria dia = porDia.get(fecha);
 
-                BigDecimal total = BigDecimal.ZERO;
-                Long cantidad = 0L;
-
-                if (mapVentas.containsKey(keyFecha)) {
-                    Object[] data = mapVentas.get(keyFecha);
-                    total = (BigDecimal) data[1];
-                    cantidad = ((Number) data[2]).longValue();
-                }
+                BigDecimal total = dia != null ? dia.getTotal() : BigDecimal.ZERO;
+                Long cantidad = dia != null ? dia.getCantidad() : 0L;
 
                 String label = fecha.format(diaFormatter).toUpperCase();
                 grafico.add(new GraficoVentasDTO(label, total, cantidad));
             }
 
         } else if ("MES".equalsIgnoreCase(periodo)) {
-            inicio = LocalDate.now().withDayOfMonth(1).atStartOfDay();
-            resultadosRaw = ventaRepository.obtenerVentasPorDiaRaw(inicio, fin);
-
             BigDecimal[] totalesSemana = {BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO};
             long[] countsSemana = {0, 0, 0, 0};
 
-            for (Object[] row : resultadosRaw) {
-                Date fechaSql = (Date) row[0];
-                LocalDate fecha = fechaSql.toLocalDate();
-                BigDecimal total = (BigDecimal) row[1];
-                Long cant = ((Number) row[2]).longValue();
+            for (ResumenVentaDiaria dia : resumenVentasService.ventasPorDia(hoy.withDayOfMonth(1), hoy)) {
+                int d = dia.getFecha().getDayOfMonth();
+                int index = (d <= 7) ? 0 : (d <= 14) ? 1 : (d <= 21) ? 2 : 3;
 
-                int dia = fecha.getDayOfMonth();
-                int index = (dia <= 7) ? 0 : (dia <= 14) ? 1 : (dia <= 21) ? 2 : 3;
-
-                totalesSemana[index] = totalesSemana[index].add(total);
-                countsSemana[index] += cant;
+                totalesSemana[index] = totalesSemana[index].add(dia.getTotal());
+                countsSemana[index] += dia.getCantidad();
             }
 
             for (int i = 0; i < 4; i++) {
@@ -187,28 +238,16 @@ public class DashboardServiceImpl implements DashboardService {
             }
 
         } else if ("ANIO".equalsIgnoreCase(periodo)) {
-            inicio = LocalDate.now().withDayOfYear(1).atStartOfDay();
-            resultadosRaw = ventaRepository.obtenerVentasPorMesRaw(inicio, fin);
-
-            var mapMeses = new java.util.HashMap<Integer, Object[]>();
-            for (Object[] row : resultadosRaw) {
-                try {
-                    int mes = Integer.parseInt(row[0].toString());
-                    mapMeses.put(mes, row);
-                } catch (Exception e) { continue; }
-            }
+            Map<Integer, ResumenVentaMensual> porMes = resumenVentasService
+                    .ventasPorMes(hoy.withDayOfYear(1), hoy).stream()
+                    .collect(Collectors.toMap(r -> r.getPeriodo().getMonthValue(), r -> r));
 
             String[] labelsMeses = {"ENE", "FEB", "MAR", "ABR", "MAY", "JUN", "JUL", "AGO", "SEP", "OCT", "NOV", "DIC"};
 
             for (int i = 1; i <= 12; i++) {
-                BigDecimal total = BigDecimal.ZERO;
-                Long cantidad = 0L;
-
-                if (mapMeses.containsKey(i)) {
-                    Object[] data = mapMeses.get(i);
-                    total = (BigDecimal) data[1];
-                    cantidad = ((Number) data[2]).longValue();
-                }
+                ResumenVentaMensual mes = porMes.get(i);
+                BigDecimal total = mes != null ? mes.getTotal() : BigDecimal.ZERO;
+                Long cantidad = mes != null ? mes.getCantidad() : 0L;
 
                 grafico.add(new GraficoVentasDTO(labelsMeses[i - 1], total, cantidad));
             }
@@ -225,23 +264,19 @@ public class DashboardServiceImpl implements DashboardService {
     // ==========================================
     // 4. IMPORTACIONES (CORREGIDO: Muestra aunque no tenga fecha)
     // ==========================================
+    // Dos consultas en total, sin importar cuántas importaciones históricas existan
     @Override
+    @Cacheable
     public List<DashboardAlertaDTO> obtenerProximasLlegadas() {
-        List<Importacion> lista = importacionRepository.findAll().stream()
-                .filter(i -> {
-                    String estado = i.getEstado().name();
-                    boolean tieneFecha = i.getFechaEstimadaLlegada() != null;
-                    boolean estaActiva = "EN_TRANSITO".equals(estado) || "EN_ADUANAS".equals(estado);
-                    return tieneFecha || estaActiva;
-                })
-                .filter(i -> !"COMPLETADA".equals(i.getEstado().name()) && !"CANCELADA".equals(i.getEstado().name()))
-                .sorted((a, b) -> {
-                    if (a.getFechaEstimadaLlegada() == null) return 1;
-                    if (b.getFechaEstimadaLlegada() == null) return -1;
-                    return a.getFechaEstimadaLlegada().compareTo(b.getFechaEstimadaLlegada());
-                })
-                .limit(5)
-                .collect(Collectors.toList());
+        List<Importacion> lista = importacionRepository.findProximasLlegadas(PageRequest.of(0, LIMITE_PROXIMAS_LLEGADAS));
+        if (lista.isEmpty()) return Collections.emptyList();
+
+        // Proveedores de las cinco carpetas en una sola consulta agrupada
+        Map<String, List<String>> proveedoresPorCodigo = compraRepository
+                .findProveedoresPorCodImportacion(lista.stream().map(Importacion::getCodigoAgrupador).toList())
+                .stream()
+                .collect(Collectors.groupingBy(fila -> (String) fila[0],
+                        Collectors.mapping(fila -> (String) fila[1], Collectors.toList())));
 
         return lista.stream().map(i -> {
             DashboardAlertaDTO dto = new DashboardAlertaDTO();
@@ -250,54 +285,39 @@ public class DashboardServiceImpl implements DashboardService {
             dto.setFechaLlegada(i.getFechaEstimadaLlegada());
             dto.setEstado(i.getEstado().name());
 
-            List<Compra> facturas = compraRepository.findByCodImportacion(i.getCodigoAgrupador());
-            if (facturas != null && !facturas.isEmpty()) {
-                String provs = facturas.stream()
-                        .filter(c -> c.getProveedor() != null)
-                        .map(c -> c.getProveedor().getNombre())
-                        .distinct()
-                        .collect(Collectors.joining(", "));
-                dto.setProveedores(provs.isEmpty() ? "Sin Proveedor" : provs);
-            } else {
-                dto.setProveedores("Sin Facturas");
-            }
+            List<String> proveedores = proveedoresPorCodigo.get(i.getCodigoAgrupador());
+            dto.setProveedores(proveedores != null ? String.join(", ", proveedores) : "Sin Facturas");
             return dto;
         }).collect(Collectors.toList());
     }
 
     @Override
+    @Cacheable
     public Double calcularPorcentajeCambioVentas() {
-        return obtenerMetricasDashboard().getPorcentajeCambioVentasMes();
+        ResumenVentasDTO r = resumenVentas();
+        return calcularVariacion(r.getVentasMesAnterior(), r.getVentasMes());
     }
 
     @Override
+    @Cacheable
     public Integer obtenerProductosStockBajo() {
-        return (int) productoRepository.findAll().stream()
-                .filter(p -> (p.getStockActual() == null ? 0 : p.getStockActual()) < 5)
-                .count();
+        // Cada producto contra su propio stock mínimo (índice parcial sobre bajo_minimo)
+        return productoRepository.contarProductosStockBajo();
     }
 
     // ==========================================
     // 🏆 5. PRODUCTOS MÁS VENDIDOS (CORREGIDO)
     // ==========================================
     @Override
+    @Cacheable
     public List<ProductoVendidoDTO> obtenerProductosMasVendidos(int limit) {
-        // Pedimos los 'limit' (ej: 5) productos con más ventas
-        Pageable pageable = PageRequest.of(0, limit);
-
-        // Llamada a la query que agregamos en VentaRepository
-        List<Object[]> resultados = ventaRepository.obtenerTopProductos(pageable);
-
-        return resultados.stream().map(fila -> {
-            String nombre = (String) fila[0];
-            Number cantidad = (Number) fila[1]; // Evita error Long/Integer
-            BigDecimal total = (BigDecimal) fila[2];
+        return obtenerProductosMasVendidos(limit, VentanaRanking.TOTAL);
+    }
 
-            ProductoVendidoDTO dto = new ProductoVendidoDTO();
-            dto.setNombreProducto(nombre);
-            dto.setCantidad(cantidad.longValue());
-            dto.setTotal(total);
-            return dto;
-        }).collect(Collectors.toList());
+    // Ranking precalculado (ranking_productos): lee 'limit' filas del índice, sin agrupar el historial
+    @Override
+    @Cacheable
+    public List<ProductoVendidoDTO> obtenerProductosMasVendidos(int limit, VentanaRanking ventana) {
+        return resumenVentasService.topProductos(ventana, limit);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,147 @@
+package com.upc.smaf.servicesimplements;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upc.smaf.events.OperacionComercialEvent;
+import com.upc.smaf.events.StockBajoEvent;
+import com.upc.smaf.serviceinterface.DashboardService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Difusión de las métricas del dashboard por Server-Sent Events (GET /dashboard/stream).
+ *
+ * Al conectarse, el cliente recibe las métricas completas (evento "metricas"). Después, cada vez que se
+ * confirma una venta, compra, nota de crédito o importación, las métricas se calculan UNA sola vez y a todas
+ * las conexiones se les envía solo lo que cambió (evento "delta"). Las conexiones son asíncronas
+ * (SseEmitter): mientras esperan no ocupan un hilo del servidor.
+ */
+@Slf4j
+@Service
+public class DashboardStreamService {
+
+    private static final TypeReference<Map<String, Object>> TIPO_MAPA = new TypeReference<>() {};
+
+    private final DashboardService dashboardService;
+    private final ObjectMapper objectMapper;
+    private final Executor streamExecutor;
+    private final long timeoutMs;
+
+    private final List<SseEmitter> conexiones = new CopyOnWriteArrayList<>();
+    // Evita encolar un recálculo por cada operación: si ya hay uno pendiente, ese verá también este cambio
+    private final AtomicBoolean difusionPendiente = new AtomicBoolean(false);
+    // Últimas métricas difundidas (solo se accede desde el hilo de difusión)
+    private Map<String, Object> ultimasMetricas;
+
+    public DashboardStreamService(DashboardService dashboardService,
+                                  ObjectMapper objectMapper,
+                                  @Qualifier("dashboardStreamExecutor") Executor streamExecutor,
+                                  @Value("${dashboard.stream.timeout-ms:1800000}") long timeoutMs) {
+        this.dashboardService = dashboardService;
+        this.objectMapper = objectMapper;
+        this.streamExecutor = streamExecutor;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Registra una nueva conexión y le envía el estado actual. Al expirar, el navegador (EventSource) reconecta solo.
+     */
+    public SseEmitter suscribir() {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        emitter.onCompletion(() -> conexiones.remove(emitter));
+        emitter.onTimeout(() -> conexiones.remove(emitter));
+        emitter.onError(e -> conexiones.remove(emitter));
+        conexiones.add(emitter);
+
+        // Sale de la caché del dashboard: con muchos visores conectándose no se repite la consulta
+        enviar(emitter, SseEmitter.event().name("metricas")
+                .data(dashboardService.obtenerMetricasDashboard(), MediaType.APPLICATION_JSON));
+        return emitter;
+    }
+
+    /**
+     * Se ejecuta después de DashboardCacheListener, así el recálculo ya no lee de la caché vieja.
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alConfirmarOperacion(OperacionComercialEvent event) {
+        programarDifusion();
+    }
+
+    // Altas y bajas de la alerta de stock (productosStockBajo)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alCruzarStockMinimo(StockBajoEvent event) {
+        programarDifusion();
+    }
+
+    private void programarDifusion() {
+        if (conexiones.isEmpty()) return;
+        if (difusionPendiente.compareAndSet(false, true)) {
+            streamExecutor.execute(this::difundirCambios);
+        }
+    }
+
+    /**
+     * Comentario SSE periódico: mantiene abiertas las conexiones a través de proxies y detecta las caídas.
+     */
+    @Scheduled(fixedRateString = "${dashboard.stream.latido-ms:25000}")
+    public void latido() {
+        for (SseEmitter emitter : conexiones) {
+            enviar(emitter, SseEmitter.event().comment("latido"));
+        }
+    }
+
+    private void difundirCambios() {
+        difusionPendiente.set(false);
+        try {
+            Map<String, Object> actuales = objectMapper.convertValue(dashboardService.obtenerMetricasDashboard(), TIPO_MAPA);
+            Map<String, Object> delta = diferencias(ultimasMetricas, actuales);
+            ultimasMetricas = actuales;
+            if (delta.isEmpty()) return;
+
+            for (SseEmitter emitter : conexiones) {
+                enviar(emitter, SseEmitter.event().name("delta").data(delta, MediaType.APPLICATION_JSON));
+            }
+        } catch (RuntimeException e) {
+            log.warn("No se pudieron difundir las métricas del dashboard", e);
+        }
+    }
+
+    private Map<String, Object> diferencias(Map<String, Object> anteriores, Map<String, Object> actuales) {
+        if (anteriores == null) return actuales;
+        Map<String, Object> delta = new LinkedHashMap<>();
+        actuales.forEach((campo, valor) -> {
+            if (!Objects.equals(anteriores.get(campo), valor)) delta.put(campo, valor);
+        });
+        return delta;
+    }
+
+    private void enviar(SseEmitter emitter, SseEmitter.SseEventBuilder evento) {
+        try {
+            emitter.send(evento);
+        } catch (IOException | IllegalStateException e) {
+            // Cliente desconectado: se descarta la conexión
+            conexiones.remove(emitter);
+            emitter.completeWithError(e);
+        }
+    }
+}
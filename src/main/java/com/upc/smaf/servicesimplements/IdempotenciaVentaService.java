@@ -0,0 +1,163 @@
+package com.upc.smaf.servicesimplements;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.upc.smaf.dtos.request.VentaRequestDTO;
+import com.upc.smaf.dtos.response.VentaResponseDTO;
+import com.upc.smaf.repositories.IdempotenciaVentaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Deduplicación de POST /ventas por Idempotency-Key.
+ *
+ * Las respuestas confirmadas se guardan en memoria (con expiración) y en la tabla idempotencia_ventas,
+ * que sirve de respaldo tras un reinicio o cuando la petición repetida llega a otra instancia.
+ * Cada clave queda ligada a la huella (SHA-256) del cuerpo con que se usó: repetirla con otro contenido
+ * es un error del cliente y no devuelve la venta anterior. Las claves se conservan idempotencia.retencion-horas
+ * desde su creación; una tarea diaria borra las vencidas.
+ */
+@Slf4j
+@Service
+public class IdempotenciaVentaService {
+
+    static final int LONGITUD_MAXIMA_CLAVE = 100;
+
+    /** La clave ya se usó con un cuerpo distinto (HTTP 422). */
+    public static class ClaveReutilizadaException extends RuntimeException {
+        public ClaveReutilizadaException() {
+            super("La Idempotency-Key ya se usó con otra venta");
+        }
+    }
+
+    /** Otra petición con la misma clave todavía no tiene respuesta confirmada (HTTP 409). */
+    public static class ClaveEnProcesoException extends RuntimeException {
+        public ClaveEnProcesoException() {
+            super("La venta con esta clave aún se está procesando");
+        }
+    }
+
+    private record Registro(String huella, VentaResponseDTO respuesta) {
+    }
+
+    private final IdempotenciaVentaRepository repository;
+    private final ObjectMapper objectMapper;
+    private final Duration retencion;
+    private final Cache<String, Registro> respuestas;
+
+    public IdempotenciaVentaService(IdempotenciaVentaRepository repository, ObjectMapper objectMapper,
+                                    @Value("${idempotencia.retencion-horas:24}") long retencionHoras) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.retencion = Duration.ofHours(retencionHoras);
+        this.respuestas = Caffeine.newBuilder()
+                .expireAfterWrite(retencion)
+                .maximumSize(10_000)
+                .build();
+    }
+
+    /**
+     * SHA-256 del cuerpo serializado (mismo ObjectMapper que la API, claves de mapas ordenadas).
+     */
+    public String huella(VentaRequestDTO request) {
+        try {
+            byte[] cuerpo = objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                    .writeValueAsString(request).getBytes(StandardCharsets.UTF_8);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(cuerpo));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("No se pudo calcular la huella de la venta: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Respuesta ya confirmada para la clave, si existe. Primero memoria, luego BD.
+     * Lanza ClaveReutilizadaException si la clave se confirmó con otra huella.
+     */
+    public Optional<VentaResponseDTO> buscar(String clave, String huella) {
+        Registro registro = respuestas.getIfPresent(clave);
+        if (registro == null) {
+            registro = repository.findById(clave)
+                    .filter(r -> r.getRespuesta() != null)
+                    .map(r -> new Registro(r.getHuella(), leer(r.getRespuesta())))
+                    .orElse(null);
+            if (registro == null) return Optional.empty();
+            respuestas.put(clave, registro);
+        }
+        // Sin huella: clave anterior a la columna, se acepta como antes
+        if (registro.huella() != null && !Objects.equals(registro.huella(), huella)) {
+            throw new ClaveReutilizadaException();
+        }
+        return Optional.of(registro.respuesta());
+    }
+
+    /**
+     * Reserva la clave dentro de la transacción de la venta. Si la venta falla, la reserva se revierte con ella.
+     * Devuelve false si otra petición con la misma clave confirmó primero (se esperó a que terminara).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean reservar(String clave, String huella) {
+        if (clave.length() > LONGITUD_MAXIMA_CLAVE) {
+            throw new RuntimeException("Idempotency-Key no puede superar " + LONGITUD_MAXIMA_CLAVE + " caracteres");
+        }
+        return repository.reservar(clave, huella) == 1;
+    }
+
+    /**
+     * Guarda la respuesta junto a la clave; solo se publica en memoria cuando la transacción hace commit.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrar(String clave, String huella, VentaResponseDTO respuesta) {
+        repository.guardarRespuesta(clave, respuesta.getId(), escribir(respuesta));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                respuestas.put(clave, new Registro(huella, respuesta));
+            }
+        });
+    }
+
+    /**
+     * Borra las claves creadas antes del período de retención (índice por fecha_creacion).
+     */
+    @Scheduled(cron = "${idempotencia.purga.cron:0 30 3 * * *}")
+    @Transactional
+    public int purgarVencidas() {
+        int eliminadas = repository.eliminarAnterioresA(LocalDateTime.now().minus(retencion));
+        if (eliminadas > 0) log.info("Claves de idempotencia vencidas eliminadas: {}", eliminadas);
+        return eliminadas;
+    }
+
+    private String escribir(VentaResponseDTO respuesta) {
+        try {
+            return objectMapper.writeValueAsString(respuesta);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("No se pudo registrar la respuesta de la venta: " + e.getMessage());
+        }
+    }
+
+    private VentaResponseDTO leer(String json) {
+        try {
+            return objectMapper.readValue(json, VentaResponseDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Respuesta almacenada inválida para la clave de idempotencia: " + e.getMessage());
+        }
+    }
+}
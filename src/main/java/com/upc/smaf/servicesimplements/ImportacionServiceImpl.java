@@ -2,15 +2,18 @@ package com.upc.smaf.servicesimplements;
 
 import com.upc.smaf.dtos.request.ImportacionRequestDTO;
 import com.upc.smaf.dtos.response.ImportacionResponseDTO;
+import com.upc.smaf.dtos.response.RecalculoImportacionDTO;
 import com.upc.smaf.entities.*;
+import com.upc.smaf.events.OperacionComercialEvent;
 import com.upc.smaf.repositories.*;
 import com.upc.smaf.serviceinterface.ImportacionService;
+import com.upc.smaf.servicesimplements.ProrrateoImportacionService.Concepto;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -20,6 +23,10 @@ public class ImportacionServiceImpl implements ImportacionService {
 
     private final ImportacionRepository importacionRepository;
     private final CompraRepository compraRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProrrateoImportacionService prorrateoService;
+    private final CostoLandedService costoLandedService;
+    private final RecalculoImportacionService recalculoImportacionService;
 
     @Override
     public List<ImportacionResponseDTO> listarTodas() {
@@ -59,7 +66,7 @@ public class ImportacionServiceImpl implements ImportacionService {
     @Override
     @Transactional
     public ImportacionResponseDTO actualizar(Integer id, ImportacionRequestDTO request) {
-        Importacion imp = importacionRepository.findById(id)
+        Importacion imp = importacionRepository.findByIdParaActualizar(id)
                 .orElseThrow(() -> new RuntimeException("Importación no encontrada"));
 
         // 1. ACTUALIZAR DATOS INFORMATIVOS Y LOGÍSTICOS
@@ -110,102 +117,28 @@ public class ImportacionServiceImpl implements ImportacionService {
 
         List<Compra> facturas = compraRepository.findByCodImportacion(imp.getCodigoAgrupador());
 
-        // A. RECALCULAR TOTALES DE LA CARPETA (Base Total)
-        BigDecimal totalFob = BigDecimal.ZERO;
-        BigDecimal totalPeso = BigDecimal.ZERO;
-        BigDecimal totalCbm = BigDecimal.ZERO;
-
-        for (Compra c : facturas) {
-            if (c.getEstado() != EstadoCompra.ANULADA) {
-                totalFob = totalFob.add(c.getTotal());
-                totalPeso = totalPeso.add(orZero(c.getPesoNetoKg()));
-                totalCbm = totalCbm.add(orZero(c.getCbm()));
-            }
-        }
-
-        imp.setSumaFobTotal(totalFob);
-        imp.setPesoTotalKg(totalPeso);
-        imp.setCbmTotal(totalCbm);
-
-        // B. DISTRIBUIR COSTOS A CADA FACTURA (Persistencia en BD)
-        for (Compra c : facturas) {
-            if (c.getEstado() == EstadoCompra.ANULADA) continue;
-
-            BigDecimal baseValor = c.getTotal();
-            BigDecimal basePeso = orZero(c.getPesoNetoKg());
-            BigDecimal baseCbm = orZero(c.getCbm());
-
-            // 1. Calculamos parciales para agrupar y guardar en BD
-            BigDecimal pFlete = prorratear(imp.getCostoFlete(), totalCbm, baseCbm);
-            BigDecimal pAlmacen = prorratear(imp.getCostoAlmacenajeCft(), totalCbm, baseCbm);
-            BigDecimal pTransporte = prorratear(imp.getCostoTransporteSjl(), totalCbm, baseCbm);
-            BigDecimal pDescarga = prorratear(imp.getCostoPersonalDescarga(), totalCbm, baseCbm);
-            BigDecimal pMontacarga = prorratear(imp.getCostoMontacarga(), totalCbm, baseCbm);
-
-            BigDecimal pDesconsol = prorratear(imp.getCostoDesconsolidacion(), totalPeso, basePeso);
-
-            BigDecimal pVistos = prorratear(imp.getCostoVistosBuenos(), totalFob, baseValor);
-            BigDecimal pTransm = prorratear(imp.getCostoTransmision(), totalFob, baseValor);
-            BigDecimal pAgencia = prorratear(imp.getCostoComisionAgencia(), totalFob, baseValor);
-            BigDecimal pVobo = prorratear(imp.getCostoVobo(), totalFob, baseValor);
-            BigDecimal pGastosOp = prorratear(imp.getCostoGastosOperativos(), totalFob, baseValor);
-            BigDecimal pResguardo = prorratear(imp.getCostoResguardo(), totalFob, baseValor);
-
-            BigDecimal pIgv = prorratear(imp.getCostoIgv(), totalFob, baseValor);
-            BigDecimal pIpm = prorratear(imp.getCostoIpm(), totalFob, baseValor);
-            BigDecimal pPercep = prorratear(imp.getCostoPercepcion(), totalFob, baseValor);
-            BigDecimal pAdv = prorratear(imp.getCostoAdv(), totalFob, baseValor);
-
-            BigDecimal pOtros1 = prorratear(imp.getCostoOtros1(), totalFob, baseValor);
-            BigDecimal pOtros2 = prorratear(imp.getCostoOtros2(), totalFob, baseValor);
-            BigDecimal pOtros3 = prorratear(imp.getCostoOtros3(), totalFob, baseValor);
-            BigDecimal pOtros4 = prorratear(imp.getCostoOtros4(), totalFob, baseValor);
-
-            // 2. Guardamos en la entidad COMPRA (Agrupados para no saturar la BD)
-            c.setProFlete(pFlete);
-            c.setProAlmacenaje(pAlmacen);
-            c.setProTransporte(pTransporte);
-            c.setProCargaDescarga(pDescarga.add(pMontacarga)); // Agrupado
-            c.setProDesconsolidacion(pDesconsol);
-
-            c.setProGastosAduaneros(pVistos.add(pTransm).add(pAgencia).add(pVobo).add(pGastosOp)); // Agrupado
-            c.setProSeguroResguardo(pResguardo);
-            c.setProImpuestos(pIgv.add(pIpm).add(pPercep)); // Agrupado
-            c.setProOtrosGastos(pAdv.add(pOtros1).add(pOtros2).add(pOtros3).add(pOtros4)); // Agrupado
-
-            // 3. Costo Landed (Suma Total Real)
-            BigDecimal costoLanded = baseValor
-                    .add(pFlete).add(pAlmacen).add(pTransporte).add(pDescarga).add(pMontacarga)
-                    .add(pDesconsol)
-                    .add(pVistos).add(pTransm).add(pAgencia).add(pVobo).add(pGastosOp)
-                    .add(pResguardo)
-                    .add(pIgv).add(pIpm).add(pPercep)
-                    .add(pAdv).add(pOtros1).add(pOtros2).add(pOtros3).add(pOtros4);
-
-            c.setCostoTotalImportacion(costoLanded);
-
-            compraRepository.save(c);
-        }
+        // A. TOTALES DE LA CARPETA + B. PRORRATEO A CADA FACTURA (un solo UPDATE para todas)
+        // El prorrateo necesita las bases de cada factura; de la misma pasada salen los totales, que además
+        // corrigen cualquier desvío de los acumulados por diferencia (CompraServiceImpl)
+        ProrrateoImportacionService.Prorrateo prorrateo = prorrateoService.aplicar(imp, facturas);
+
+        // C. BAJAR LOS GASTOS A LAS LÍNEAS Y AL COSTO PROMEDIO DE CADA PRODUCTO
+        costoLandedService.propagar(facturas.stream().map(Compra::getId).toList(), prorrateo);
 
         Importacion saved = importacionRepository.save(imp);
-        return mapToResponseDTO(saved);
+        eventPublisher.publishEvent(new OperacionComercialEvent(OperacionComercialEvent.Tipo.IMPORTACION, saved.getId()));
+        return mapToResponseDTO(saved, facturas, prorrateo);
     }
 
     @Override
-    public void recalcularCostos(Integer id) {
-        // Lógica opcional
+    public RecalculoImportacionDTO recalcularCostos(Integer id) {
+        return recalculoImportacionService.solicitar(id);
     }
 
-    // Helper matemático
-    private BigDecimal prorratear(BigDecimal costoGlobal, BigDecimal baseTotal, BigDecimal baseIndividual) {
-        if (costoGlobal == null || costoGlobal.compareTo(BigDecimal.ZERO) == 0) return BigDecimal.ZERO;
-        if (baseTotal == null || baseTotal.compareTo(BigDecimal.ZERO) == 0) return BigDecimal.ZERO;
-        if (baseIndividual == null) return BigDecimal.ZERO;
-
-        return costoGlobal
-                .divide(baseTotal, 10, RoundingMode.HALF_UP)
-                .multiply(baseIndividual)
-                .setScale(2, RoundingMode.HALF_UP);
+    @Override
+    public RecalculoImportacionDTO obtenerRecalculo(String trabajoId) {
+        return recalculoImportacionService.obtener(trabajoId)
+                .orElseThrow(() -> new RuntimeException("Recálculo no encontrado: " + trabajoId));
     }
 
     private BigDecimal orZero(BigDecimal val) {
@@ -216,6 +149,12 @@ public class ImportacionServiceImpl implements ImportacionService {
     // 📄 MAPEO A DTO (AQUÍ DESAGRUPAMOS PARA QUE EL FRONT VEA TODO DETALLADO)
     // =================================================================================
     private ImportacionResponseDTO mapToResponseDTO(Importacion imp) {
+        List<Compra> facturas = compraRepository.findByCodImportacion(imp.getCodigoAgrupador());
+        return mapToResponseDTO(imp, facturas, prorrateoService.obtener(imp, facturas));
+    }
+
+    private ImportacionResponseDTO mapToResponseDTO(Importacion imp, List<Compra> facturas,
+                                                    ProrrateoImportacionService.Prorrateo p) {
         ImportacionResponseDTO dto = new ImportacionResponseDTO();
         dto.setId(imp.getId());
         dto.setCodigoAgrupador(imp.getCodigoAgrupador());
@@ -256,9 +195,7 @@ public class ImportacionServiceImpl implements ImportacionService {
         dto.setCostoOtros3(imp.getCostoOtros3());
         dto.setCostoOtros4(imp.getCostoOtros4());
 
-        // MAPEAR FACTURAS (CALCULANDO AL VUELO EL DETALLE DESAGRUPADO)
-        List<Compra> facturas = compraRepository.findByCodImportacion(imp.getCodigoAgrupador());
-
+        // MAPEAR FACTURAS (DETALLE DESAGRUPADO DESDE EL PRORRATEO)
         List<ImportacionResponseDTO.CompraResumenDTO> resumen = facturas.stream().map(c -> {
             ImportacionResponseDTO.CompraResumenDTO r = new ImportacionResponseDTO.CompraResumenDTO();
             r.setId(c.getId());
@@ -270,49 +207,40 @@ public class ImportacionServiceImpl implements ImportacionService {
             r.setPesoNetoKg(c.getPesoNetoKg());
             r.setCbm(c.getCbm());
 
-            // BASES DE CÁLCULO
-            BigDecimal totalValor = imp.getSumaFobTotal();
-            BigDecimal totalPeso = imp.getPesoTotalKg();
-            BigDecimal totalCbm = imp.getCbmTotal();
-
-            BigDecimal baseValor = c.getTotal();
-            BigDecimal basePeso = orZero(c.getPesoNetoKg());
-            BigDecimal baseCbm = orZero(c.getCbm());
-
-            // --- CÁLCULO AL VUELO PARA MOSTRAR LAS 16+ COLUMNAS ---
+            Integer id = c.getId();
 
             // Grupo Volumen
-            r.setProFlete(prorratear(imp.getCostoFlete(), totalCbm, baseCbm));
-            r.setProAlmacenaje(prorratear(imp.getCostoAlmacenajeCft(), totalCbm, baseCbm));
-            r.setProTransporte(prorratear(imp.getCostoTransporteSjl(), totalCbm, baseCbm));
-            r.setProPersonalDescarga(prorratear(imp.getCostoPersonalDescarga(), totalCbm, baseCbm));
-            r.setProMontacarga(prorratear(imp.getCostoMontacarga(), totalCbm, baseCbm));
+            r.setProFlete(p.monto(id, Concepto.FLETE));
+            r.setProAlmacenaje(p.monto(id, Concepto.ALMACENAJE));
+            r.setProTransporte(p.monto(id, Concepto.TRANSPORTE));
+            r.setProPersonalDescarga(p.monto(id, Concepto.PERSONAL_DESCARGA));
+            r.setProMontacarga(p.monto(id, Concepto.MONTACARGA));
 
             // Grupo Peso
-            r.setProDesconsolidacion(prorratear(imp.getCostoDesconsolidacion(), totalPeso, basePeso));
+            r.setProDesconsolidacion(p.monto(id, Concepto.DESCONSOLIDACION));
 
             // Grupo Valor
-            r.setProVistosBuenos(prorratear(imp.getCostoVistosBuenos(), totalValor, baseValor));
-            r.setProTransmision(prorratear(imp.getCostoTransmision(), totalValor, baseValor));
-            r.setProComisionAgencia(prorratear(imp.getCostoComisionAgencia(), totalValor, baseValor));
-            r.setProVobo(prorratear(imp.getCostoVobo(), totalValor, baseValor));
-            r.setProGastosOperativos(prorratear(imp.getCostoGastosOperativos(), totalValor, baseValor));
-            r.setProResguardo(prorratear(imp.getCostoResguardo(), totalValor, baseValor));
+            r.setProVistosBuenos(p.monto(id, Concepto.VISTOS_BUENOS));
+            r.setProTransmision(p.monto(id, Concepto.TRANSMISION));
+            r.setProComisionAgencia(p.monto(id, Concepto.COMISION_AGENCIA));
+            r.setProVobo(p.monto(id, Concepto.VOBO));
+            r.setProGastosOperativos(p.monto(id, Concepto.GASTOS_OPERATIVOS));
+            r.setProResguardo(p.monto(id, Concepto.RESGUARDO));
 
             // Impuestos
-            r.setProAdv(prorratear(imp.getCostoAdv(), totalValor, baseValor));
-            r.setProIgv(prorratear(imp.getCostoIgv(), totalValor, baseValor));
-            r.setProIpm(prorratear(imp.getCostoIpm(), totalValor, baseValor));
-            r.setProPercepcion(prorratear(imp.getCostoPercepcion(), totalValor, baseValor));
+            r.setProAdv(p.monto(id, Concepto.ADV));
+            r.setProIgv(p.monto(id, Concepto.IGV));
+            r.setProIpm(p.monto(id, Concepto.IPM));
+            r.setProPercepcion(p.monto(id, Concepto.PERCEPCION));
 
             // Otros
-            r.setProOtros1(prorratear(imp.getCostoOtros1(), totalValor, baseValor));
-            r.setProOtros2(prorratear(imp.getCostoOtros2(), totalValor, baseValor));
-            r.setProOtros3(prorratear(imp.getCostoOtros3(), totalValor, baseValor));
-            r.setProOtros4(prorratear(imp.getCostoOtros4(), totalValor, baseValor));
+            r.setProOtros1(p.monto(id, Concepto.OTROS_1));
+            r.setProOtros2(p.monto(id, Concepto.OTROS_2));
+            r.setProOtros3(p.monto(id, Concepto.OTROS_3));
+            r.setProOtros4(p.monto(id, Concepto.OTROS_4));
 
-            // Costo Final (Este sí viene de la BD)
-            r.setCostoTotalImportacion(c.getCostoTotalImportacion());
+            // Costo Final (el mismo que se guardó en la BD; las anuladas conservan el suyo)
+            r.setCostoTotalImportacion(p.incluye(id) ? p.costoLanded(id) : c.getCostoTotalImportacion());
 
             return r;
         }).collect(Collectors.toList());
@@ -0,0 +1,82 @@
+package com.upc.smaf.servicesimplements;
+
+import com.upc.smaf.entities.KpiDiario;
+import com.upc.smaf.entities.ResumenVentaDiaria;
+import com.upc.smaf.repositories.ClienteRepository;
+import com.upc.smaf.repositories.KpiDiarioRepository;
+import com.upc.smaf.repositories.ProductoRepository;
+import com.upc.smaf.repositories.ResumenVentaDiariaRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Foto diaria de los indicadores (tabla kpi_diario).
+ *
+ * Se escribe al iniciar la aplicación y al cierre de cada día; si se ejecuta dos veces el mismo día,
+ * la fila se sobrescribe con los valores más recientes. Todas las lecturas son contadores o filas
+ * de resumen, ninguna recorre ventas.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class KpiDiarioService {
+
+    // Máximo de días por consulta de tendencia
+    static final int MAXIMO_DIAS_TENDENCIA = 366;
+
+    private final KpiDiarioRepository kpiDiarioRepository;
+    private final ResumenVentaDiariaRepository resumenVentaDiariaRepository;
+    private final ClienteRepository clienteRepository;
+    private final ProductoRepository productoRepository;
+    private final ValorInventarioService valorInventarioService;
+
+    // ApplicationReadyEvent llega después de spring.sql.init (db/esquema_auxiliar.sql), que crea la columna
+    // bajo_minimo y las ranuras de valor_inventario que se leen aquí
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${kpi.registro.cron:0 55 23 * * *}")
+    public void registrarHoy() {
+        LocalDate hoy = LocalDate.now();
+        Optional<ResumenVentaDiaria> ventas = resumenVentaDiariaRepository.findById(hoy);
+
+        kpiDiarioRepository.registrar(hoy,
+                ventas.map(ResumenVentaDiaria::getTotal).orElse(BigDecimal.ZERO),
+                ventas.map(ResumenVentaDiaria::getCantidad).orElse(0L),
+                clienteRepository.count(),
+                productoRepository.count(),
+                productoRepository.contarProductosStockBajo(),
+                valorInventarioService.obtenerValor(),
+                LocalDateTime.now());
+        log.debug("KPI diario registrado para {}", hoy);
+    }
+
+    /**
+     * Foto vigente en la fecha indicada (la de ese día o la última anterior).
+     */
+    @Transactional(readOnly = true)
+    public Optional<KpiDiario> fotoAl(LocalDate fecha) {
+        return kpiDiarioRepository.findFirstByFechaLessThanEqualOrderByFechaDesc(fecha);
+    }
+
+    @Transactional(readOnly = true)
+    public List<KpiDiario> tendencia(LocalDate desde, LocalDate hasta) {
+        if (desde.isAfter(hasta)) {
+            throw new RuntimeException("La fecha inicial no puede ser posterior a la final");
+        }
+        if (desde.plusDays(MAXIMO_DIAS_TENDENCIA - 1L).isBefore(hasta)) {
+            throw new RuntimeException("El rango no puede superar " + MAXIMO_DIAS_TENDENCIA + " días");
+        }
+        return kpiDiarioRepository.findByFechaBetweenOrderByFechaAsc(desde, hasta);
+    }
+}
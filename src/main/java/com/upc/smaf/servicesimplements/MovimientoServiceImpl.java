@@ -26,6 +26,7 @@ public class MovimientoServiceImpl implements MovimientoService {
     private final ProductoRepository productoRepository;
     private final AlmacenRepository almacenRepository;
     private final ProductoAlmacenRepository productoAlmacenRepository;
+    private final NumeracionService numeracionService;
 
     @Override
     @Transactional
@@ -243,13 +244,10 @@ public class MovimientoServiceImpl implements MovimientoService {
                 .orElseThrow(() -> new RuntimeException("Movimiento no encontrado"));
     }
 
-    // Método auxiliar para generar código
+    // Método auxiliar para generar código (el correlativo viene de la secuencia compartida, sin consultar la tabla)
     private String generarCodigoMovimiento() {
         String fecha = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String ultimoCodigo = movimientoRepository.findUltimoCodigo().orElse("MOV-" + fecha + "-0000");
-
-        String[] partes = ultimoCodigo.split("-");
-        int numero = Integer.parseInt(partes[2]) + 1;
+        long numero = numeracionService.siguiente(NumeracionService.Serie.MOV);
 
         return String.format("MOV-%s-%04d", fecha, numero);
     }
@@ -3,16 +3,21 @@ package com.upc.smaf.servicesimplements;
 import com.upc.smaf.dtos.request.NotaCreditoRequestDTO;
 import com.upc.smaf.dtos.response.NotaCreditoResponseDTO;
 import com.upc.smaf.entities.*;
+import com.upc.smaf.events.OperacionComercialEvent;
 import com.upc.smaf.repositories.NotaCreditoRepository;
-import com.upc.smaf.repositories.ProductoRepository;
 import com.upc.smaf.repositories.VentaRepository;
 import com.upc.smaf.serviceinterface.NotaCreditoService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,13 +26,16 @@ public class NotaCreditoServiceImpl implements NotaCreditoService {
 
     private final NotaCreditoRepository notaCreditoRepository;
     private final VentaRepository ventaRepository;
-    private final ProductoRepository productoRepository;
+    private final ReservaStockService reservaStockService;
+    private final NumeracionService numeracionService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
     public NotaCreditoResponseDTO emitirNotaCredito(NotaCreditoRequestDTO request) {
-        // 1. Buscar la venta original
-        Venta venta = ventaRepository.findById(request.getVentaId())
+        // 1. Buscar la venta original, bloqueada hasta el fin de la transacción: las notas de una misma venta
+        //    y su anulación se procesan de a una, así las validaciones de abajo no quedan obsoletas
+        Venta venta = ventaRepository.findByIdParaActualizar(request.getVentaId())
                 .orElseThrow(() -> new RuntimeException("Venta no encontrada"));
 
         // 2. Validar que la venta esté completada
@@ -35,9 +43,10 @@ public class NotaCreditoServiceImpl implements NotaCreditoService {
             throw new RuntimeException("Solo se pueden emitir notas de crédito a ventas COMPLETADAS");
         }
 
-        // 3. Validar monto (No puedes devolver más de lo que cobraste)
-        if (request.getMonto().compareTo(venta.getTotal()) > 0) {
-            throw new RuntimeException("El monto de la Nota de Crédito no puede superar el total de la venta");
+        // 3. Validar monto (entre todas las notas no se devuelve más de lo cobrado)
+        BigDecimal acreditado = notaCreditoRepository.sumarMontoPorVenta(venta.getId());
+        if (acreditado.add(request.getMonto()).compareTo(venta.getTotal()) > 0) {
+            throw new RuntimeException("El monto de las Notas de Crédito no puede superar el total de la venta");
         }
 
         // 4. Crear la Entidad
@@ -53,36 +62,92 @@ public class NotaCreditoServiceImpl implements NotaCreditoService {
         nc.setNumero(generarNumeroCorrelativo());
 
         // 5. LÓGICA DE STOCK (Crucial)
-        // Si el motivo implica devolución de mercadería, regresamos el stock.
+        // Si el motivo implica devolución de mercadería, regresamos el stock que aún no se devolvió:
+        // todo en una devolución total, solo los ítems indicados en una devolución por ítem.
         if (esMotivoDeDevolucion(request.getMotivo())) {
-            devolverStockAlInventario(venta);
+            Map<Integer, Integer> pendientes = cantidadesSinDevolver(venta);
+            if (pendientes.isEmpty()) {
+                throw new RuntimeException("La mercadería de esta venta ya fue devuelta con otra Nota de Crédito");
+            }
+            Map<Integer, Integer> aDevolver = request.getMotivo() == MotivoNota.DEVOLUCION_POR_ITEM
+                    ? agregarItemsDevueltos(nc, request.getItems(), venta, pendientes)
+                    : pendientes;
+            reservaStockService.liberar(aDevolver);
         }
 
         // 6. Guardar y Retornar
         NotaCredito ncGuardada = notaCreditoRepository.save(nc);
+        eventPublisher.publishEvent(new OperacionComercialEvent(OperacionComercialEvent.Tipo.NOTA_CREDITO, ncGuardada.getId()));
         return convertirADTO(ncGuardada);
     }
 
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Integer, Integer> cantidadesSinDevolver(Venta venta) {
+        // Una nota de devolución sin detalle (total, o emitida antes de las devoluciones por ítem) devolvió todo
+        if (notaCreditoRepository.existeDevolucionSinDetalle(venta.getId(), MOTIVOS_DEVOLUCION)) {
+            return Map.of();
+        }
+        Map<Integer, Integer> pendientes = reservaStockService.cantidadesPorProducto(venta.getDetalles());
+        for (Object[] fila : notaCreditoRepository.sumarDevueltoPorProducto(venta.getId())) {
+            int devuelto = ((Number) fila[1]).intValue();
+            pendientes.computeIfPresent((Integer) fila[0], (id, vendido) -> vendido > devuelto ? vendido - devuelto : null);
+        }
+        return pendientes;
+    }
+
     // --- Métodos Auxiliares ---
 
+    private static final List<MotivoNota> MOTIVOS_DEVOLUCION = List.of(
+            MotivoNota.DEVOLUCION_TOTAL,
+            MotivoNota.ANULACION_DE_LA_OPERACION,
+            MotivoNota.DEVOLUCION_POR_ITEM
+    );
+
     private boolean esMotivoDeDevolucion(MotivoNota motivo) {
-        return motivo == MotivoNota.DEVOLUCION_TOTAL ||
-                motivo == MotivoNota.ANULACION_DE_LA_OPERACION ||
-                motivo == MotivoNota.DEVOLUCION_POR_ITEM;
+        return MOTIVOS_DEVOLUCION.contains(motivo);
     }
 
-    private void devolverStockAlInventario(Venta venta) {
-        for (DetalleVenta detalle : venta.getDetalles()) {
-            Producto producto = detalle.getProducto();
-            // Sumamos lo que se vendió de vuelta al stock actual
-            producto.setStockActual(producto.getStockActual() + detalle.getCantidad());
-            productoRepository.save(producto);
+    /**
+     * Registra en la nota los ítems de una devolución parcial y devuelve las cantidades por producto.
+     * Cada producto debe ser de la venta y no puede superar las unidades que aún no se devolvieron.
+     */
+    private Map<Integer, Integer> agregarItemsDevueltos(NotaCredito nc, List<NotaCreditoRequestDTO.ItemDevueltoDTO> items,
+                                                       Venta venta, Map<Integer, Integer> pendientes) {
+        if (items == null || items.isEmpty()) {
+            throw new RuntimeException("Indique los productos y cantidades que se devuelven");
+        }
+        Map<Integer, Integer> cantidades = new TreeMap<>();
+        for (NotaCreditoRequestDTO.ItemDevueltoDTO item : items) {
+            cantidades.merge(item.getProductoId(), item.getCantidad(), Integer::sum);
+        }
+
+        Map<Integer, Producto> productosDeLaVenta = new HashMap<>();
+        for (DetalleVenta d : venta.getDetalles()) {
+            productosDeLaVenta.put(d.getProducto().getId(), d.getProducto());
+        }
+
+        for (Map.Entry<Integer, Integer> e : cantidades.entrySet()) {
+            Producto producto = productosDeLaVenta.get(e.getKey());
+            if (producto == null) {
+                throw new RuntimeException("El producto ID " + e.getKey() + " no pertenece a la venta");
+            }
+            int pendiente = pendientes.getOrDefault(e.getKey(), 0);
+            if (e.getValue() > pendiente) {
+                throw new RuntimeException("Solo quedan " + pendiente + " unidades por devolver del producto ID " + e.getKey());
+            }
+            NotaCreditoDetalle detalle = new NotaCreditoDetalle();
+            detalle.setNotaCredito(nc);
+            detalle.setProducto(producto);
+            detalle.setCantidad(e.getValue());
+            nc.getDetalles().add(detalle);
         }
+        return cantidades;
     }
 
     private String generarNumeroCorrelativo() {
-        long cantidad = notaCreditoRepository.count() + 1;
-        return String.format("%08d", cantidad); // Ej: 00000001
+        long correlativo = numeracionService.siguiente(NumeracionService.Serie.NC01);
+        return String.format("%08d", correlativo); // Ej: 00000001
     }
 
     private NotaCreditoResponseDTO convertirADTO(NotaCredito nc) {
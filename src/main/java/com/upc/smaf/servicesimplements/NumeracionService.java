@@ -0,0 +1,145 @@
+package com.upc.smaf.servicesimplements;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Numeración correlativa de documentos (ventas, cotizaciones, notas de crédito y movimientos).
+ *
+ * Cada serie tiene su propia secuencia en PostgreSQL con INCREMENT BY {@value #TAMANO_BLOQUE}:
+ * un solo nextval reserva un bloque completo y los números se entregan desde memoria con un contador
+ * atómico. Los números son únicos aunque haya varias instancias del backend, pero pueden quedar
+ * huecos (los números no usados de un bloque se pierden al reiniciar).
+ */
+@Slf4j
+@Service
+public class NumeracionService {
+
+    static final int TAMANO_BLOQUE = 50;
+
+    public enum Serie {
+        VTA("seq_numeracion_vta", null),
+        COT("seq_numeracion_cot",
+                "SELECT COALESCE(MAX(CAST(numero AS bigint)), 0) FROM cotizaciones WHERE serie = 'COT'"),
+        NC01("seq_numeracion_nc01",
+                "SELECT COALESCE(MAX(CAST(numero AS bigint)), 0) FROM notas_credito WHERE serie = 'NC01'"),
+        MOV("seq_numeracion_mov",
+                "SELECT COALESCE(MAX(CAST(SPLIT_PART(codigo, '-', 3) AS bigint)), 0) FROM movimientos WHERE codigo LIKE 'MOV-%'");
+
+        private final String secuencia;
+        // Último número emitido con el esquema anterior (para no repetirlo al crear la secuencia)
+        private final String consultaUltimoNumero;
+
+        Serie(String secuencia, String consultaUltimoNumero) {
+            this.secuencia = secuencia;
+            this.consultaUltimoNumero = consultaUltimoNumero;
+        }
+    }
+
+    // SQLSTATE de PostgreSQL cuando otra instancia creó la secuencia al mismo tiempo: duplicate_table,
+    // duplicate_object o unique_violation (sobre el catálogo pg_class / pg_type)
+    private static final Set<String> ESTADOS_OBJETO_DUPLICADO = Set.of("42P07", "42710", "23505");
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transaccionNueva;
+
+    private final Map<Serie, AtomicReference<Bloque>> bloques = new EnumMap<>(Serie.class);
+    private final Set<Serie> secuenciasVerificadas = ConcurrentHashMap.newKeySet();
+
+    public NumeracionService(EntityManager entityManager, PlatformTransactionManager transactionManager) {
+        this.entityManager = entityManager;
+        this.transaccionNueva = new TransactionTemplate(transactionManager);
+        // El CREATE SEQUENCE no debe depender de que la transacción del documento haga commit
+        this.transaccionNueva.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (Serie serie : Serie.values()) {
+            bloques.put(serie, new AtomicReference<>(Bloque.VACIO));
+        }
+    }
+
+    /**
+     * Siguiente número de la serie. Solo consulta la BD cuando se agota el bloque en memoria.
+     */
+    public long siguiente(Serie serie) {
+        AtomicReference<Bloque> actual = bloques.get(serie);
+        while (true) {
+            Bloque bloque = actual.get();
+            long numero = bloque.siguiente.getAndIncrement();
+            if (numero <= bloque.fin) {
+                return numero;
+            }
+            synchronized (actual) {
+                // Solo un hilo repone el bloque; los demás reintentan con el nuevo
+                if (actual.get() == bloque) {
+                    actual.set(reservarBloque(serie));
+                }
+            }
+        }
+    }
+
+    private Bloque reservarBloque(Serie serie) {
+        if (!secuenciasVerificadas.contains(serie)) {
+            crearSecuenciaSiNoExiste(serie);
+            secuenciasVerificadas.add(serie);
+        }
+        // nextval no se revierte con la transacción: basta la del documento, sin pedir otra conexión
+        long inicio = ((Number) entityManager
+                .createNativeQuery("SELECT nextval('" + serie.secuencia + "')")
+                .getSingleResult()).longValue();
+        return new Bloque(inicio, inicio + TAMANO_BLOQUE - 1);
+    }
+
+    private void crearSecuenciaSiNoExiste(Serie serie) {
+        try {
+            transaccionNueva.executeWithoutResult(status -> {
+                Object existe = entityManager
+                        .createNativeQuery("SELECT CAST(to_regclass('" + serie.secuencia + "') AS text)")
+                        .getSingleResult();
+                if (existe != null) return;
+
+                long ultimo = 0;
+                if (serie.consultaUltimoNumero != null) {
+                    ultimo = ((Number) entityManager.createNativeQuery(serie.consultaUltimoNumero).getSingleResult()).longValue();
+                }
+                entityManager.createNativeQuery("CREATE SEQUENCE IF NOT EXISTS " + serie.secuencia +
+                        " START WITH " + (ultimo + 1) + " INCREMENT BY " + TAMANO_BLOQUE).executeUpdate();
+            });
+        } catch (RuntimeException e) {
+            // Otra instancia la creó al mismo tiempo; el nextval posterior lo confirma
+            if (!esObjetoDuplicado(e)) throw e;
+            log.debug("La secuencia {} ya fue creada por otra instancia", serie.secuencia);
+        }
+    }
+
+    private static boolean esObjetoDuplicado(Throwable e) {
+        for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+            if (causa instanceof SQLException sql && ESTADOS_OBJETO_DUPLICADO.contains(sql.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Bloque {
+        static final Bloque VACIO = new Bloque(1, 0);
+
+        final AtomicLong siguiente;
+        final long fin;
+
+        Bloque(long inicio, long fin) {
+            this.siguiente = new AtomicLong(inicio);
+            this.fin = fin;
+        }
+    }
+}
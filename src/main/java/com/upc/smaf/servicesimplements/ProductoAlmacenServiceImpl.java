@@ -101,6 +101,14 @@ public class ProductoAlmacenServiceImpl implements ProductoAlmacenService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProductoAlmacenResponseDTO> listarStockBajoEnAlmacen(Long almacenId) {
+        return productoAlmacenRepository.findProductosConStockBajoEnAlmacen(almacenId).stream()
+                .map(this::convertirAResponseDTO)
+                .collect(Collectors.toList());
+    }
+
     @Override
     @Transactional(readOnly = true)
     public ProductoAlmacenResponseDTO obtenerStockEnAlmacen(Integer productoId, Long almacenId) {
@@ -193,7 +193,7 @@ public class ProductoServiceImpl implements ProductoService {
 
     @Override
     public List<ProductoResponseDTO> obtenerProductosConStockBajo() {
-        return productoRepository.findByStockActualLessThanStockMinimoAndActivoTrue().stream()
+        return productoRepository.listarProductosStockBajo().stream()
                 .map(this::convertirAResponseDTO)
                 .collect(Collectors.toList());
     }
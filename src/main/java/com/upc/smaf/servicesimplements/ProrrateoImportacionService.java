@@ -0,0 +1,337 @@
+package com.upc.smaf.servicesimplements;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.upc.smaf.entities.Compra;
+import com.upc.smaf.entities.EstadoCompra;
+import com.upc.smaf.entities.Importacion;
+import com.upc.smaf.events.OperacionComercialEvent;
+import com.upc.smaf.repositories.CompraRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Motor de prorrateo de los gastos de una carpeta de importación entre sus facturas comerciales.
+ *
+ * Todo se calcula en céntimos (long) en una sola pasada: cada gasto se reparte en proporción a su base
+ * (volumen, peso o valor) y los céntimos sobrantes del redondeo van a las facturas con mayor residuo,
+ * de modo que la suma de lo prorrateado es exactamente el gasto de la carpeta.
+ * Las facturas ANULADAS no participan.
+ *
+ * El resultado se guarda en memoria por (carpeta, versión): mientras la carpeta no cambie, mostrarla no
+ * recalcula nada. Los cambios en las facturas vacían la caché (evento COMPRA).
+ */
+@Service
+@RequiredArgsConstructor
+public class ProrrateoImportacionService {
+
+    public enum Base { VOLUMEN, PESO, VALOR }
+
+    /**
+     * Gastos globales de la carpeta, en el orden del vector de cada factura.
+     */
+    public enum Concepto {
+        FLETE(Base.VOLUMEN, Importacion::getCostoFlete),
+        ALMACENAJE(Base.VOLUMEN, Importacion::getCostoAlmacenajeCft),
+        TRANSPORTE(Base.VOLUMEN, Importacion::getCostoTransporteSjl),
+        PERSONAL_DESCARGA(Base.VOLUMEN, Importacion::getCostoPersonalDescarga),
+        MONTACARGA(Base.VOLUMEN, Importacion::getCostoMontacarga),
+        DESCONSOLIDACION(Base.PESO, Importacion::getCostoDesconsolidacion),
+        VISTOS_BUENOS(Base.VALOR, Importacion::getCostoVistosBuenos),
+        TRANSMISION(Base.VALOR, Importacion::getCostoTransmision),
+        COMISION_AGENCIA(Base.VALOR, Importacion::getCostoComisionAgencia),
+        VOBO(Base.VALOR, Importacion::getCostoVobo),
+        GASTOS_OPERATIVOS(Base.VALOR, Importacion::getCostoGastosOperativos),
+        RESGUARDO(Base.VALOR, Importacion::getCostoResguardo),
+        IGV(Base.VALOR, Importacion::getCostoIgv),
+        IPM(Base.VALOR, Importacion::getCostoIpm),
+        PERCEPCION(Base.VALOR, Importacion::getCostoPercepcion),
+        ADV(Base.VALOR, Importacion::getCostoAdv),
+        OTROS_1(Base.VALOR, Importacion::getCostoOtros1),
+        OTROS_2(Base.VALOR, Importacion::getCostoOtros2),
+        OTROS_3(Base.VALOR, Importacion::getCostoOtros3),
+        OTROS_4(Base.VALOR, Importacion::getCostoOtros4);
+
+        private final Base base;
+        private final Function<Importacion, BigDecimal> costo;
+
+        Concepto(Base base, Function<Importacion, BigDecimal> costo) {
+            this.base = base;
+            this.costo = costo;
+        }
+    }
+
+    private static final Concepto[] CONCEPTOS = Concepto.values();
+    private static final int K = CONCEPTOS.length;
+
+    private final CompraRepository compraRepository;
+
+    private final Cache<Clave, Prorrateo> cache = Caffeine.newBuilder()
+            .maximumSize(500)
+            .expireAfterAccess(Duration.ofMinutes(30))
+            .build();
+
+    private record Clave(Integer importacionId, Long version) {}
+
+    // =================================================================================
+    // RESULTADO
+    // =================================================================================
+
+    /**
+     * Totales de la carpeta y el vector de céntimos prorrateados de cada factura activa.
+     */
+    public static final class Prorrateo {
+        private final long fobTotal;
+        private final long pesoTotal;
+        private final long cbmTotal;
+        private final Map<Integer, Integer> filaPorCompra;
+        private final long[] baseValor;
+        // Fila i, concepto k -> asignacion[i * K + k]
+        private final long[] asignacion;
+
+        private Prorrateo(long fobTotal, long pesoTotal, long cbmTotal,
+                          Map<Integer, Integer> filaPorCompra, long[] baseValor, long[] asignacion) {
+            this.fobTotal = fobTotal;
+            this.pesoTotal = pesoTotal;
+            this.cbmTotal = cbmTotal;
+            this.filaPorCompra = filaPorCompra;
+            this.baseValor = baseValor;
+            this.asignacion = asignacion;
+        }
+
+        public BigDecimal getSumaFobTotal() { return aMonto(fobTotal); }
+        public BigDecimal getPesoTotalKg() { return aMonto(pesoTotal); }
+        public BigDecimal getCbmTotal() { return aMonto(cbmTotal); }
+
+        public boolean incluye(Integer compraId) {
+            return filaPorCompra.containsKey(compraId);
+        }
+
+        /**
+         * Monto prorrateado de un gasto para la factura (cero si la factura no participa).
+         */
+        public BigDecimal monto(Integer compraId, Concepto... conceptos) {
+            Integer fila = filaPorCompra.get(compraId);
+            if (fila == null) return BigDecimal.ZERO;
+            long suma = 0;
+            for (Concepto c : conceptos) suma += asignacion[fila * K + c.ordinal()];
+            return aMonto(suma);
+        }
+
+        /**
+         * Costo landed: valor de la factura más todos los gastos que le tocan.
+         */
+        public BigDecimal costoLanded(Integer compraId) {
+            Integer fila = filaPorCompra.get(compraId);
+            if (fila == null) return null;
+            return aMonto(baseValor[fila] + gastosEnCentimos(compraId));
+        }
+
+        /**
+         * Céntimos de todos los gastos que le tocan a la factura (0 si no participa).
+         */
+        long gastosEnCentimos(Integer compraId) {
+            Integer fila = filaPorCompra.get(compraId);
+            if (fila == null) return 0;
+            long suma = 0;
+            for (int k = 0; k < K; k++) suma += asignacion[fila * K + k];
+            return suma;
+        }
+    }
+
+    // =================================================================================
+    // API
+    // =================================================================================
+
+    /**
+     * Prorrateo de la carpeta tal como está en la BD, desde la caché si la versión no cambió.
+     */
+    public Prorrateo obtener(Importacion imp, List<Compra> facturas) {
+        if (imp.getId() == null || imp.getVersion() == null) return calcular(imp, facturas);
+        return cache.get(new Clave(imp.getId(), imp.getVersion()), k -> calcular(imp, facturas));
+    }
+
+    /**
+     * Recalcula la carpeta, actualiza sus totales y guarda el prorrateo de todas las facturas con un solo UPDATE.
+     * Las entidades Compra cargadas no se modifican (quedarían sucias y se volverían a escribir una por una):
+     * los montos nuevos se leen del Prorrateo devuelto.
+     */
+    public Prorrateo aplicar(Importacion imp, List<Compra> facturas) {
+        Prorrateo p = calcular(imp, facturas);
+        imp.setSumaFobTotal(p.getSumaFobTotal());
+        imp.setPesoTotalKg(p.getPesoTotalKg());
+        imp.setCbmTotal(p.getCbmTotal());
+
+        int n = p.filaPorCompra.size();
+        if (n == 0) return p;
+
+        Integer[] ids = new Integer[n];
+        BigDecimal[] flete = new BigDecimal[n];
+        BigDecimal[] almacenaje = new BigDecimal[n];
+        BigDecimal[] transporte = new BigDecimal[n];
+        BigDecimal[] cargaDescarga = new BigDecimal[n];
+        BigDecimal[] desconsolidacion = new BigDecimal[n];
+        BigDecimal[] gastosAduaneros = new BigDecimal[n];
+        BigDecimal[] seguroResguardo = new BigDecimal[n];
+        BigDecimal[] impuestos = new BigDecimal[n];
+        BigDecimal[] otrosGastos = new BigDecimal[n];
+        BigDecimal[] costoTotal = new BigDecimal[n];
+
+        for (Map.Entry<Integer, Integer> e : p.filaPorCompra.entrySet()) {
+            Integer id = e.getKey();
+            int i = e.getValue();
+            ids[i] = id;
+            // Mismas agrupaciones de columnas que la entidad Compra
+            flete[i] = p.monto(id, Concepto.FLETE);
+            almacenaje[i] = p.monto(id, Concepto.ALMACENAJE);
+            transporte[i] = p.monto(id, Concepto.TRANSPORTE);
+            cargaDescarga[i] = p.monto(id, Concepto.PERSONAL_DESCARGA, Concepto.MONTACARGA);
+            desconsolidacion[i] = p.monto(id, Concepto.DESCONSOLIDACION);
+            gastosAduaneros[i] = p.monto(id, Concepto.VISTOS_BUENOS, Concepto.TRANSMISION,
+                    Concepto.COMISION_AGENCIA, Concepto.VOBO, Concepto.GASTOS_OPERATIVOS);
+            seguroResguardo[i] = p.monto(id, Concepto.RESGUARDO);
+            impuestos[i] = p.monto(id, Concepto.IGV, Concepto.IPM, Concepto.PERCEPCION);
+            otrosGastos[i] = p.monto(id, Concepto.ADV, Concepto.OTROS_1, Concepto.OTROS_2,
+                    Concepto.OTROS_3, Concepto.OTROS_4);
+            costoTotal[i] = p.costoLanded(id);
+        }
+
+        compraRepository.actualizarProrrateoEnLote(ids, flete, almacenaje, transporte, cargaDescarga,
+                desconsolidacion, gastosAduaneros, seguroResguardo, impuestos, otrosGastos, costoTotal);
+        return p;
+    }
+
+    /**
+     * Las facturas cambian sin que cambie la versión de su carpeta: se descarta todo lo calculado.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alConfirmarOperacion(OperacionComercialEvent event) {
+        if (event.getTipo() == OperacionComercialEvent.Tipo.COMPRA) {
+            cache.invalidateAll();
+        }
+    }
+
+    // =================================================================================
+    // CÁLCULO
+    // =================================================================================
+
+    public Prorrateo calcular(Importacion imp, List<Compra> facturas) {
+        int n = 0;
+        for (Compra c : facturas) if (c.getEstado() != EstadoCompra.ANULADA) n++;
+
+        Map<Integer, Integer> filaPorCompra = new HashMap<>(n * 2);
+        long[] valor = new long[n];
+        long[] peso = new long[n];
+        long[] cbm = new long[n];
+        long fobTotal = 0, pesoTotal = 0, cbmTotal = 0;
+
+        int i = 0;
+        for (Compra c : facturas) {
+            if (c.getEstado() == EstadoCompra.ANULADA) continue;
+            filaPorCompra.put(c.getId(), i);
+            valor[i] = aCentimos(c.getTotal());
+            peso[i] = aCentimos(c.getPesoNetoKg());
+            cbm[i] = aCentimos(c.getCbm());
+            fobTotal += valor[i];
+            pesoTotal += peso[i];
+            cbmTotal += cbm[i];
+            i++;
+        }
+
+        long[] asignacion = new long[n * K];
+        long[] residuos = new long[n];
+        for (Concepto concepto : CONCEPTOS) {
+            long costo = aCentimos(concepto.costo.apply(imp));
+            switch (concepto.base) {
+                case VOLUMEN -> repartir(costo, cbm, cbmTotal, asignacion, concepto.ordinal(), K, residuos);
+                case PESO -> repartir(costo, peso, pesoTotal, asignacion, concepto.ordinal(), K, residuos);
+                case VALOR -> repartir(costo, valor, fobTotal, asignacion, concepto.ordinal(), K, residuos);
+            }
+        }
+
+        return new Prorrateo(fobTotal, pesoTotal, cbmTotal, filaPorCompra, valor, asignacion);
+    }
+
+    /**
+     * Reparte costo (céntimos) en proporción a bases por el método del mayor residuo.
+     * La suma del resultado es exactamente costo (o todo cero si las bases suman cero).
+     */
+    static long[] repartir(long costo, long[] bases) {
+        long total = 0;
+        for (long b : bases) total += b;
+        long[] partes = new long[bases.length];
+        repartir(costo, bases, total, partes, 0, 1, new long[bases.length]);
+        return partes;
+    }
+
+    /**
+     * Reparte costo (céntimos) en proporción a bases/total por el método del mayor residuo.
+     * La parte de la base i se escribe en destino[i * paso + desplazamiento].
+     */
+    private static void repartir(long costo, long[] bases, long total,
+                                 long[] destino, int desplazamiento, int paso, long[] residuos) {
+        int n = bases.length;
+        if (costo == 0 || total <= 0 || n == 0) return;
+
+        long signo = costo < 0 ? -1 : 1;
+        long absoluto = Math.abs(costo);
+        long repartido = 0;
+
+        for (int i = 0; i < n; i++) {
+            long parte;
+            try {
+                long producto = Math.multiplyExact(absoluto, bases[i]);
+                parte = Math.floorDiv(producto, total);
+                residuos[i] = Math.floorMod(producto, total);
+            } catch (ArithmeticException e) {
+                // Montos fuera del rango de long: se resuelve con BigInteger solo para esta factura
+                BigInteger[] qr = BigInteger.valueOf(absoluto).multiply(BigInteger.valueOf(bases[i]))
+                        .divideAndRemainder(BigInteger.valueOf(total));
+                if (qr[1].signum() < 0) {
+                    qr[0] = qr[0].subtract(BigInteger.ONE);
+                    qr[1] = qr[1].add(BigInteger.valueOf(total));
+                }
+                parte = qr[0].longValueExact();
+                residuos[i] = qr[1].longValueExact();
+            }
+            destino[i * paso + desplazamiento] = parte;
+            repartido += parte;
+        }
+
+        long sobrantes = absoluto - repartido;
+        if (sobrantes > 0) {
+            // Mayor residuo primero; a igual residuo, el orden de las facturas
+            Integer[] orden = new Integer[n];
+            for (int i = 0; i < n; i++) orden[i] = i;
+            Arrays.sort(orden, (a, b) -> residuos[a] != residuos[b] ? Long.compare(residuos[b], residuos[a]) : Integer.compare(a, b));
+            for (int j = 0; j < sobrantes && j < n; j++) {
+                destino[orden[j] * paso + desplazamiento]++;
+            }
+        }
+
+        if (signo < 0) {
+            for (int i = 0; i < n; i++) destino[i * paso + desplazamiento] = -destino[i * paso + desplazamiento];
+        }
+    }
+
+    static long aCentimos(BigDecimal monto) {
+        if (monto == null) return 0;
+        return monto.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    static BigDecimal aMonto(long centimos) {
+        return BigDecimal.valueOf(centimos, 2);
+    }
+}
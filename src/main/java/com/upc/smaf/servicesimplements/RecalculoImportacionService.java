@@ -0,0 +1,234 @@
+package com.upc.smaf.servicesimplements;
+
+import com.upc.smaf.dtos.response.RecalculoImportacionDTO;
+import com.upc.smaf.entities.Compra;
+import com.upc.smaf.entities.Importacion;
+import com.upc.smaf.entities.RecalculoImportacion;
+import com.upc.smaf.events.OperacionComercialEvent;
+import com.upc.smaf.repositories.CompraRepository;
+import com.upc.smaf.repositories.ImportacionRepository;
+import com.upc.smaf.repositories.RecalculoImportacionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Cola de recálculos de carpetas de importación (totales, prorrateo y costo landed) en segundo plano.
+ *
+ * Los trabajos están en la tabla recalculos_importacion, así sobreviven a un reinicio y cualquier nodo los
+ * ejecuta. Cada solicitud espera una ventana corta (importacion.recalculo.espera-ms) antes de ejecutarse:
+ * las solicitudes de la misma carpeta que llegan mientras tanto se agrupan en el mismo trabajo, así registrar
+ * diez facturas seguidas produce un solo recálculo. Los nodos toman trabajos con SKIP LOCKED y una carpeta
+ * nunca se recalcula en dos a la vez. Si un nodo se detiene a mitad de un trabajo, otro lo reprograma pasado
+ * el plazo (importacion.recalculo.vencimiento-ms).
+ */
+@Slf4j
+@Service
+public class RecalculoImportacionService {
+
+    private static final int LARGO_MENSAJE = 500;
+
+    private final ImportacionRepository importacionRepository;
+    private final CompraRepository compraRepository;
+    private final RecalculoImportacionRepository recalculoRepository;
+    private final ProrrateoImportacionService prorrateoService;
+    private final CostoLandedService costoLandedService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskScheduler scheduler;
+    private final Duration espera;
+    private final Duration intervalo;
+    private final Duration vencimiento;
+    private final long retencionHoras;
+
+    public RecalculoImportacionService(ImportacionRepository importacionRepository,
+                                       CompraRepository compraRepository,
+                                       RecalculoImportacionRepository recalculoRepository,
+                                       ProrrateoImportacionService prorrateoService,
+                                       CostoLandedService costoLandedService,
+                                       ApplicationEventPublisher eventPublisher,
+                                       TransactionTemplate transactionTemplate,
+                                       @Qualifier("recalculoImportacionScheduler") TaskScheduler scheduler,
+                                       @Value("${importacion.recalculo.espera-ms:2000}") long esperaMs,
+                                       @Value("${importacion.recalculo.intervalo-ms:5000}") long intervaloMs,
+                                       @Value("${importacion.recalculo.vencimiento-ms:600000}") long vencimientoMs,
+                                       @Value("${importacion.recalculo.retencion-horas:24}") long retencionHoras) {
+        this.importacionRepository = importacionRepository;
+        this.compraRepository = compraRepository;
+        this.recalculoRepository = recalculoRepository;
+        this.prorrateoService = prorrateoService;
+        this.costoLandedService = costoLandedService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.scheduler = scheduler;
+        this.espera = Duration.ofMillis(esperaMs);
+        this.intervalo = Duration.ofMillis(intervaloMs);
+        this.vencimiento = Duration.ofMillis(vencimientoMs);
+        this.retencionHoras = retencionHoras;
+    }
+
+    // =================================================================================
+    // SOLICITUDES
+    // =================================================================================
+
+    /**
+     * Programa el recálculo de la carpeta (o se suma al que ya está pendiente) y devuelve su estado.
+     */
+    public RecalculoImportacionDTO solicitar(Integer importacionId) {
+        if (!importacionRepository.existsById(importacionId)) {
+            throw new RuntimeException("Importación no encontrada");
+        }
+        String trabajoId = encolar(importacionId);
+        despertar();
+        return obtener(trabajoId).orElseThrow(() -> new RuntimeException("Recálculo no encontrado"));
+    }
+
+    /**
+     * Igual que solicitar, pero dentro de la transacción en curso: el trabajo existe solo si la factura
+     * recién registrada o anulada se confirma, y el recálculo ya la ve.
+     */
+    public void solicitarAlConfirmar(Integer importacionId) {
+        encolar(importacionId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    despertar();
+                }
+            });
+        } else {
+            despertar();
+        }
+    }
+
+    public Optional<RecalculoImportacionDTO> obtener(String trabajoId) {
+        return recalculoRepository.findById(trabajoId).map(this::aDTO);
+    }
+
+    private String encolar(Integer importacionId) {
+        return recalculoRepository.encolar(UUID.randomUUID().toString(), importacionId, espera.toMillis());
+    }
+
+    // Este nodo busca trabajos apenas vence la ventana, sin esperar a la revisión periódica
+    private void despertar() {
+        scheduler.schedule(this::procesarPendientes, Instant.now().plus(espera));
+    }
+
+    // =================================================================================
+    // EJECUCIÓN
+    // =================================================================================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        // Trabajos de otros nodos, de antes de un reinicio o cuyo nodo se detuvo
+        scheduler.scheduleWithFixedDelay(this::procesarPendientes, intervalo);
+    }
+
+    /**
+     * Ejecuta los trabajos listos hasta que no quede ninguno que este nodo pueda tomar.
+     */
+    void procesarPendientes() {
+        try {
+            reprogramarVencidos();
+            Optional<String> trabajoId;
+            while ((trabajoId = recalculoRepository.reclamar()).isPresent()) {
+                ejecutar(trabajoId.get());
+            }
+        } catch (RuntimeException e) {
+            // Una falla de conexión no debe cancelar la revisión periódica
+            log.warn("No se pudo revisar la cola de recálculos de importación", e);
+        }
+    }
+
+    private void ejecutar(String trabajoId) {
+        Integer importacionId = recalculoRepository.findById(trabajoId)
+                .map(RecalculoImportacion::getImportacionId)
+                .orElseThrow(() -> new RuntimeException("Recálculo no encontrado"));
+        try {
+            // El trabajo se cierra en la misma transacción que el recálculo
+            transactionTemplate.executeWithoutResult(status -> {
+                recalcular(importacionId);
+                recalculoRepository.completar(trabajoId);
+            });
+        } catch (OptimisticLockingFailureException e) {
+            // La carpeta se editó durante el recálculo: se vuelve a calcular con los datos nuevos
+            String siguiente = transactionTemplate.execute(status ->
+                    reprogramar(trabajoId, importacionId, "La carpeta cambió durante el recálculo"));
+            log.debug("Recálculo {} de la importación {} reprogramado en {}", trabajoId, importacionId, siguiente);
+        } catch (RuntimeException e) {
+            log.warn("No se pudo recalcular la importación {}", importacionId, e);
+            recalculoRepository.fallar(trabajoId, recortar(e.getMessage()));
+        }
+    }
+
+    private void reprogramarVencidos() {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Object[] fila : recalculoRepository.bloquearVencidos(vencimiento.toMillis())) {
+                reprogramar((String) fila[0], (Integer) fila[1], "El recálculo no terminó en el plazo");
+            }
+        });
+    }
+
+    // Pasa la carpeta al trabajo PENDIENTE (nuevo o el que ya esperaba) y deja el actual apuntando a él
+    private String reprogramar(String trabajoId, Integer importacionId, String motivo) {
+        String siguiente = encolar(importacionId);
+        recalculoRepository.reprogramar(trabajoId, siguiente, motivo + "; continúa en el trabajo " + siguiente);
+        return siguiente;
+    }
+
+    private void recalcular(Integer importacionId) {
+        Importacion imp = importacionRepository.findByIdParaActualizar(importacionId)
+                .orElseThrow(() -> new RuntimeException("Importación no encontrada"));
+        List<Compra> facturas = compraRepository.findByCodImportacion(imp.getCodigoAgrupador());
+
+        ProrrateoImportacionService.Prorrateo prorrateo = prorrateoService.aplicar(imp, facturas);
+        costoLandedService.propagar(facturas.stream().map(Compra::getId).toList(), prorrateo);
+
+        importacionRepository.save(imp);
+        eventPublisher.publishEvent(new OperacionComercialEvent(OperacionComercialEvent.Tipo.IMPORTACION, importacionId));
+    }
+
+    /**
+     * Trabajos terminados: se consultan por su id durante importacion.recalculo.retencion-horas.
+     */
+    @Scheduled(cron = "${importacion.recalculo.purga.cron:0 45 3 * * *}")
+    public void purgarTerminados() {
+        int eliminados = recalculoRepository.eliminarTerminados(retencionHoras);
+        log.debug("Recálculos de importación purgados: {}", eliminados);
+    }
+
+    private static String recortar(String mensaje) {
+        if (mensaje == null) return "Error desconocido";
+        return mensaje.length() <= LARGO_MENSAJE ? mensaje : mensaje.substring(0, LARGO_MENSAJE);
+    }
+
+    private RecalculoImportacionDTO aDTO(RecalculoImportacion t) {
+        RecalculoImportacionDTO dto = new RecalculoImportacionDTO();
+        dto.setTrabajoId(t.getId());
+        dto.setImportacionId(t.getImportacionId());
+        dto.setEstado(t.getEstado().name());
+        dto.setSolicitudes(t.getSolicitudes());
+        dto.setFechaSolicitud(t.getFechaSolicitud());
+        dto.setFechaInicio(t.getFechaInicio());
+        dto.setFechaFin(t.getFechaFin());
+        dto.setMensaje(t.getMensaje());
+        dto.setTrabajoSiguienteId(t.getTrabajoSiguienteId());
+        return dto;
+    }
+}
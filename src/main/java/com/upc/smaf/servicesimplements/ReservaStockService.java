@@ -0,0 +1,98 @@
+package com.upc.smaf.servicesimplements;
+
+import com.upc.smaf.entities.DetalleVenta;
+import com.upc.smaf.repositories.ProductoRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Punto único para mover stock por ventas, compras, anulaciones y notas de crédito.
+ * Todo se resuelve con UPDATE condicionales en la BD (sin bloqueos de fila explícitos):
+ * dos cajeros vendiendo las últimas unidades nunca pueden dejar el stock en negativo.
+ * Como estos UPDATE no pasan por JPA, la variación del valor de inventario y los cruces del stock mínimo
+ * se informan aquí.
+ * Los productos se actualizan siempre en orden de id: dos ventas con productos en común toman los
+ * bloqueos de fila en el mismo orden y no pueden quedar en deadlock.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReservaStockService {
+
+    private final ProductoRepository productoRepository;
+    private final ValorInventarioService valorInventarioService;
+    private final StockBajoService stockBajoService;
+
+    /**
+     * Descuenta las cantidades indicadas (productoId -> cantidad).
+     * Si algún producto no tiene stock suficiente lanza excepción y la transacción completa se revierte.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reservar(Map<Integer, Integer> cantidades) {
+        if (cantidades.isEmpty()) return;
+
+        Map<Integer, Integer> cantidadesPorProducto = new TreeMap<>(cantidades);
+        Integer[] ids = cantidadesPorProducto.keySet().toArray(new Integer[0]);
+        Integer[] unidades = cantidadesPorProducto.values().toArray(new Integer[0]);
+
+        List<Object[]> actualizados = productoRepository.disminuirStockEnLote(ids, unidades);
+        if (actualizados.size() != ids.length) {
+            // Otro proceso consumió el stock entre la lectura y la actualización
+            throw new RuntimeException("Stock insuficiente para uno o más productos de la venta");
+        }
+        Map<Integer, Integer> variaciones = new LinkedHashMap<>();
+        cantidadesPorProducto.forEach((id, cantidad) -> variaciones.put(id, -cantidad));
+        stockBajoService.registrarMovimientoEnLote(actualizados, variaciones);
+        valorInventarioService.registrarVariacion(productoRepository.valorizarCantidades(ids, unidades).negate());
+    }
+
+    /**
+     * Devuelve al inventario las cantidades indicadas (compras, anulaciones y devoluciones).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void liberar(Map<Integer, Integer> cantidades) {
+        if (cantidades.isEmpty()) return;
+
+        Map<Integer, Integer> cantidadesPorProducto = new TreeMap<>(cantidades);
+        Integer[] ids = cantidadesPorProducto.keySet().toArray(new Integer[0]);
+        Integer[] unidades = cantidadesPorProducto.values().toArray(new Integer[0]);
+        stockBajoService.registrarMovimientoEnLote(productoRepository.aumentarStockEnLote(ids, unidades), cantidadesPorProducto);
+        valorInventarioService.registrarVariacion(productoRepository.valorizarCantidades(ids, unidades));
+    }
+
+    /**
+     * Retira las cantidades indicadas sin dejar stock negativo (anulación de una compra cuya mercadería
+     * ya se vendió en parte): a cada producto se le descuenta a lo sumo el stock que tiene.
+     * Los productos quedan bloqueados en orden de id antes de leer su stock, así el descuento no puede fallar.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void retirarDisponible(Map<Integer, Integer> cantidades) {
+        if (cantidades.isEmpty()) return;
+
+        Map<Integer, Integer> aRetirar = new TreeMap<>();
+        for (Object[] fila : productoRepository.bloquearStock(cantidades.keySet().toArray(new Integer[0]))) {
+            Integer id = (Integer) fila[0];
+            int disponible = fila[1] != null ? ((Number) fila[1]).intValue() : 0;
+            int cantidad = Math.min(cantidades.get(id), disponible);
+            if (cantidad > 0) aRetirar.put(id, cantidad);
+        }
+        reservar(aRetirar);
+    }
+
+    /**
+     * Agrupa las líneas de una venta por producto (en orden de id).
+     */
+    public Map<Integer, Integer> cantidadesPorProducto(List<DetalleVenta> detalles) {
+        Map<Integer, Integer> cantidades = new TreeMap<>();
+        for (DetalleVenta d : detalles) {
+            cantidades.merge(d.getProducto().getId(), d.getCantidad(), Integer::sum);
+        }
+        return cantidades;
+    }
+}
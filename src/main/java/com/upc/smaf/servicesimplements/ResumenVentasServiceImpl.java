@@ -0,0 +1,255 @@
+package com.upc.smaf.servicesimplements;
+
+import com.upc.smaf.dtos.ReporteMetodoPagoDTO;
+import com.upc.smaf.dtos.response.PagosPorCuentaDTO;
+import com.upc.smaf.dtos.response.ProductoVendidoDTO;
+import com.upc.smaf.entities.DetalleVenta;
+import com.upc.smaf.entities.EstadoVenta;
+import com.upc.smaf.entities.Pago;
+import com.upc.smaf.entities.ResumenPagoDiario;
+import com.upc.smaf.entities.ResumenVentaDiaria;
+import com.upc.smaf.entities.ResumenVentaMensual;
+import com.upc.smaf.entities.Venta;
+import com.upc.smaf.entities.VentanaRanking;
+import com.upc.smaf.repositories.RankingProductoRepository;
+import com.upc.smaf.repositories.ResumenPagoDiarioRepository;
+import com.upc.smaf.repositories.ResumenVentaDiariaRepository;
+import com.upc.smaf.repositories.ResumenVentaMensualRepository;
+import com.upc.smaf.repositories.ResumenVentaProductoDiariaRepository;
+import com.upc.smaf.serviceinterface.ResumenVentasService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+@RequiredArgsConstructor
+public class ResumenVentasServiceImpl implements ResumenVentasService {
+
+    private final ResumenVentaDiariaRepository diarioRepository;
+    private final ResumenVentaMensualRepository mensualRepository;
+    private final ResumenVentaProductoDiariaRepository productoDiarioRepository;
+    private final ResumenPagoDiarioRepository pagoDiarioRepository;
+    private final RankingProductoRepository rankingRepository;
+
+    // ==========================================
+    // MANTENIMIENTO INCREMENTAL
+    // ==========================================
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarVentasNuevas(Collection<Venta> ventas) {
+        Acumulado acumulado = new Acumulado();
+        for (Venta venta : ventas) {
+            if (venta.getEstado() == EstadoVenta.COMPLETADA) acumulado.agregarVenta(venta, 1);
+            acumulado.agregarPagos(venta, venta.getPagos(), 1);
+        }
+        aplicar(acumulado);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarVentaCompletada(Venta venta) {
+        Acumulado acumulado = new Acumulado();
+        acumulado.agregarVenta(venta, 1);
+        aplicar(acumulado);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void revertirVentaCompletada(Venta venta) {
+        Acumulado acumulado = new Acumulado();
+        acumulado.agregarVenta(venta, -1);
+        aplicar(acumulado);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarPagos(Venta venta, Collection<Pago> pagos) {
+        Acumulado acumulado = new Acumulado();
+        acumulado.agregarPagos(venta, pagos, 1);
+        aplicar(acumulado);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void revertirPagos(Venta venta, Collection<Pago> pagos) {
+        Acumulado acumulado = new Acumulado();
+        acumulado.agregarPagos(venta, pagos, -1);
+        aplicar(acumulado);
+    }
+
+    private void aplicar(Acumulado a) {
+        a.diario.forEach((fecha, t) -> diarioRepository.acumular(fecha, t.monto, t.cantidad));
+        a.mensual.forEach((periodo, t) -> mensualRepository.acumular(periodo, t.monto, t.cantidad));
+
+        a.productos.forEach((fecha, porProducto) -> {
+            Integer[] ids = porProducto.keySet().toArray(new Integer[0]);
+            Integer[] cantidades = porProducto.values().stream().map(t -> (int) t.cantidad).toArray(Integer[]::new);
+            BigDecimal[] totales = porProducto.values().stream().map(t -> t.monto).toArray(BigDecimal[]::new);
+            productoDiarioRepository.acumularEnLote(fecha, ids, cantidades, totales);
+
+            // Ranking: todo el historial y cada ventana móvil que incluya la fecha de la venta
+            LocalDate hoy = LocalDate.now();
+            for (VentanaRanking ventana : VentanaRanking.values()) {
+                LocalDate desde = ventana.desde(hoy);
+                if (desde == null || !fecha.isBefore(desde)) {
+                    rankingRepository.acumularEnLote(ventana.name(), ids, cantidades, totales);
+                }
+            }
+        });
+
+        a.pagos.forEach((clave, t) -> pagoDiarioRepository.acumular(clave.getFecha(), clave.getMetodoPago().name(),
+                clave.getMoneda(), clave.getCuentaId(), t.monto, t.cantidad));
+    }
+
+    /**
+     * Variaciones agrupadas por clave de cada resumen, antes de escribirlas.
+     * Las claves van ordenadas: dos transacciones que tocan las mismas filas de resumen las bloquean
+     * en el mismo orden y no pueden quedar en deadlock.
+     */
+    private static class Acumulado {
+        private static final Comparator<ResumenPagoDiario.Clave> ORDEN_PAGOS =
+                Comparator.comparing(ResumenPagoDiario.Clave::getFecha)
+                        .thenComparing(ResumenPagoDiario.Clave::getMetodoPago)
+                        .thenComparing(ResumenPagoDiario.Clave::getMoneda, Comparator.nullsFirst(Comparator.naturalOrder()))
+                        .thenComparing(ResumenPagoDiario.Clave::getCuentaId);
+
+        final Map<LocalDate, Total> diario = new TreeMap<>();
+        final Map<LocalDate, Total> mensual = new TreeMap<>();
+        final Map<LocalDate, Map<Integer, Total>> productos = new TreeMap<>();
+        final Map<ResumenPagoDiario.Clave, Total> pagos = new TreeMap<>(ORDEN_PAGOS);
+
+        void agregarVenta(Venta venta, int signo) {
+            LocalDate fecha = venta.getFechaVenta().toLocalDate();
+            diario.computeIfAbsent(fecha, f -> new Total()).sumar(venta.getTotal(), signo, signo);
+            mensual.computeIfAbsent(fecha.withDayOfMonth(1), f -> new Total()).sumar(venta.getTotal(), signo, signo);
+
+            // Un producto puede aparecer en varias líneas: se agrupa por producto
+            Map<Integer, Total> porProducto = productos.computeIfAbsent(fecha, f -> new TreeMap<>());
+            for (DetalleVenta d : venta.getDetalles()) {
+                porProducto.computeIfAbsent(d.getProducto().getId(), id -> new Total())
+                        .sumar(d.getSubtotal(), signo, (long) d.getCantidad() * signo);
+            }
+        }
+
+        void agregarPagos(Venta venta, Collection<Pago> lista, int signo) {
+            if (lista == null) return;
+            // Cada pago cuenta en el día en que entró el dinero (una amortización puede llegar semanas después)
+            for (Pago p : lista) {
+                LocalDate fecha = p.getFechaPago() != null ? p.getFechaPago().toLocalDate() : LocalDate.now();
+                Integer cuentaId = p.getCuentaDestino() != null ? p.getCuentaDestino().getId() : 0;
+                ResumenPagoDiario.Clave clave = new ResumenPagoDiario.Clave(fecha, p.getMetodoPago(), p.getMoneda(), cuentaId);
+                pagos.computeIfAbsent(clave, c -> new Total()).sumar(p.getMonto(), signo, signo);
+            }
+        }
+    }
+
+    private static class Total {
+        BigDecimal monto = BigDecimal.ZERO;
+        long cantidad;
+
+        void sumar(BigDecimal valor, int signo, long unidades) {
+            monto = monto.add(valor.multiply(BigDecimal.valueOf(signo)));
+            cantidad += unidades;
+        }
+    }
+
+    // ==========================================
+    // RECONSTRUCCIÓN (BACKFILL)
+    // ==========================================
+    @Override
+    @Transactional
+    public void reconstruir(LocalDate desde, LocalDate hasta) {
+        if (desde.isAfter(hasta)) {
+            throw new RuntimeException("La fecha inicial no puede ser posterior a la final");
+        }
+        LocalDate inicio = desde.withDayOfMonth(1);
+        LocalDate fin = hasta.withDayOfMonth(hasta.lengthOfMonth());
+        LocalDate finExclusivo = fin.plusDays(1);
+
+        diarioRepository.eliminarRango(inicio, fin);
+        diarioRepository.reconstruirRango(inicio, finExclusivo);
+
+        productoDiarioRepository.eliminarRango(inicio, fin);
+        productoDiarioRepository.reconstruirRango(inicio, finExclusivo);
+
+        pagoDiarioRepository.eliminarRango(inicio, fin);
+        pagoDiarioRepository.reconstruirRango(inicio, finExclusivo);
+
+        // El mensual y el ranking se arman desde los resúmenes ya reconstruidos
+        mensualRepository.eliminarRango(inicio, fin);
+        mensualRepository.reconstruirRango(inicio, finExclusivo);
+
+        for (VentanaRanking ventana : VentanaRanking.values()) {
+            reconstruirVentana(ventana, LocalDate.now());
+        }
+    }
+
+    @Override
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${ranking.recalculo.cron:0 5 0 * * *}")
+    public void recalcularVentanasRanking() {
+        LocalDate hoy = LocalDate.now();
+        for (VentanaRanking ventana : VentanaRanking.values()) {
+            // TOTAL no caduca: solo se reconstruye con reconstruir()
+            if (ventana != VentanaRanking.TOTAL) reconstruirVentana(ventana, hoy);
+        }
+    }
+
+    private void reconstruirVentana(VentanaRanking ventana, LocalDate hoy) {
+        rankingRepository.eliminarVentana(ventana.name());
+        rankingRepository.reconstruirVentana(ventana.name(), ventana.desde(hoy));
+    }
+
+    // ==========================================
+    // LECTURA
+    // ==========================================
+    @Override
+    @Transactional(readOnly = true)
+    public List<ResumenVentaDiaria> ventasPorDia(LocalDate desde, LocalDate hasta) {
+        return diarioRepository.findByFechaBetweenOrderByFechaAsc(desde, hasta);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ResumenVentaMensual> ventasPorMes(LocalDate desde, LocalDate hasta) {
+        return mensualRepository.findByPeriodoBetweenOrderByPeriodoAsc(desde.withDayOfMonth(1), hasta);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ReporteMetodoPagoDTO> pagosPorMetodo(LocalDate desde, LocalDate hasta) {
+        return pagoDiarioRepository.reportePorMetodo(desde, hasta);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PagosPorCuentaDTO> pagosPorCuenta(LocalDate desde, LocalDate hasta) {
+        return pagoDiarioRepository.reportePorCuenta(desde, hasta);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ResumenPagoDiario> pagosDeCuenta(Integer cuentaId, LocalDate desde, LocalDate hasta) {
+        return pagoDiarioRepository.findByCuentaIdAndFechaBetweenOrderByFechaAsc(cuentaId, desde, hasta);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProductoVendidoDTO> topProductos(VentanaRanking ventana, int limite) {
+        return rankingRepository.top(ventana, PageRequest.of(0, limite));
+    }
+}
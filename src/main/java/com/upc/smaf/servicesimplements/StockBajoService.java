@@ -0,0 +1,64 @@
+package com.upc.smaf.servicesimplements;
+
+import com.upc.smaf.entities.Producto;
+import com.upc.smaf.entities.ProductoAlmacen;
+import com.upc.smaf.events.StockBajoEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Detecta cuándo un producto (o su ubicación en un almacén) cruza su stock mínimo y publica StockBajoEvent.
+ *
+ * La marca persistente es la columna generada bajo_minimo (ver db/esquema_auxiliar.sql); las reglas de
+ * estaBajoMinimo deben coincidir con su definición. Los cambios por JPA llegan desde StockBajoListener
+ * y los UPDATE masivos desde ReservaStockService.
+ */
+@Service
+@RequiredArgsConstructor
+public class StockBajoService {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public static boolean estaBajoMinimo(Producto producto) {
+        return Boolean.TRUE.equals(producto.getActivo())
+                && producto.getStockActual() != null && producto.getStockMinimo() != null
+                && producto.getStockActual() < producto.getStockMinimo();
+    }
+
+    public static boolean estaBajoMinimo(ProductoAlmacen productoAlmacen) {
+        return Boolean.TRUE.equals(productoAlmacen.getActivo())
+                && productoAlmacen.getStock() != null && productoAlmacen.getStockMinimo() != null
+                && productoAlmacen.getStock() <= productoAlmacen.getStockMinimo();
+    }
+
+    /**
+     * Publica el evento solo si la marca cambió.
+     */
+    public void registrarCambio(Integer productoId, Long almacenId, Integer stock, Integer stockMinimo,
+                                boolean antes, boolean ahora) {
+        if (antes == ahora) return;
+        eventPublisher.publishEvent(new StockBajoEvent(productoId, almacenId, stock, stockMinimo, ahora));
+    }
+
+    /**
+     * Evalúa las filas devueltas por ProductoRepository.disminuirStockEnLote / aumentarStockEnLote.
+     * El stock anterior se reconstruye con la variación aplicada a cada producto (negativa al descontar).
+     */
+    public void registrarMovimientoEnLote(List<Object[]> filas, Map<Integer, Integer> variacionPorProducto) {
+        for (Object[] fila : filas) {
+            Integer productoId = ((Number) fila[0]).intValue();
+            int stock = ((Number) fila[1]).intValue();
+            int minimo = ((Number) fila[2]).intValue();
+            boolean activo = Boolean.TRUE.equals(fila[3]);
+
+            int stockAnterior = stock - variacionPorProducto.getOrDefault(productoId, 0);
+            registrarCambio(productoId, null, stock, minimo,
+                    activo && stockAnterior < minimo,
+                    activo && stock < minimo);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.upc.smaf.servicesimplements;
+
+import com.upc.smaf.entities.ValorInventario;
+import com.upc.smaf.repositories.ValorInventarioRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Valor del inventario (suma de stock × costo de todos los productos), guardado en la tabla valor_inventario.
+ *
+ * Las variaciones llegan de ValorInventarioListener (escrituras JPA de Producto), de ReservaStockService
+ * (UPDATE masivos de stock) y de CostoLandedService. Se acumulan durante la transacción y se escriben una
+ * sola vez justo antes del commit, en la misma transacción que el cambio de stock o costo: si esta se revierte
+ * la variación también, y todas las instancias leen el mismo valor. Una reconciliación periódica corrige
+ * cualquier desvío (p. ej. un UPDATE hecho a mano en la BD).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ValorInventarioService {
+
+    private final ValorInventarioRepository valorInventarioRepository;
+    private final EntityManager entityManager;
+
+    /** Variación pendiente de la transacción en curso. */
+    private static final class Pendiente implements TransactionSynchronization {
+        private final ValorInventarioService servicio;
+        private BigDecimal variacion = BigDecimal.ZERO;
+
+        private Pendiente(ValorInventarioService servicio) {
+            this.servicio = servicio;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            // El flush dispara los listeners de los Producto aún sin escribir; recién entonces el total está completo
+            servicio.entityManager.flush();
+            servicio.aplicar(variacion);
+        }
+
+        // Una transacción REQUIRES_NEW anidada acumula en su propio Pendiente
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(servicio);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(servicio, this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(servicio);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public BigDecimal obtenerValor() {
+        return valorInventarioRepository.sumarRanuras();
+    }
+
+    /**
+     * Suma (o resta, si es negativa) una variación de valor, que se escribe al confirmar la transacción en curso.
+     * Puede llamarse durante un flush (desde el listener): aquí no se ejecuta ninguna consulta.
+     */
+    public void registrarVariacion(BigDecimal variacion) {
+        if (variacion == null || variacion.signum() == 0) return;
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            aplicar(variacion);
+            return;
+        }
+        Pendiente pendiente = (Pendiente) TransactionSynchronizationManager.getResource(this);
+        if (pendiente == null) {
+            pendiente = new Pendiente(this);
+            TransactionSynchronizationManager.bindResource(this, pendiente);
+            TransactionSynchronizationManager.registerSynchronization(pendiente);
+        }
+        pendiente.variacion = pendiente.variacion.add(variacion);
+    }
+
+    // Una sola ranura por transacción: el bloqueo de esa fila dura solo hasta el commit, que es lo siguiente
+    private void aplicar(BigDecimal variacion) {
+        if (variacion.signum() == 0) return;
+        short ranura = (short) ThreadLocalRandom.current().nextInt(ValorInventario.RANURAS);
+        valorInventarioRepository.sumar(ranura, variacion);
+    }
+
+    /**
+     * Compara las ranuras con el SUM real de productos y suma la diferencia, en una sola sentencia.
+     */
+    @Scheduled(fixedDelayString = "${inventario.reconciliacion.intervalo-ms:900000}",
+            initialDelayString = "${inventario.reconciliacion.intervalo-ms:900000}")
+    @Transactional
+    public void reconciliar() {
+        valorInventarioRepository.corregirDesvio().ifPresent(diferencia ->
+                log.warn("Desvío en valor de inventario corregido: diferencia={}", diferencia));
+    }
+}
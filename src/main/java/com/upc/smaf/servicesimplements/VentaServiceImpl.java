@@ -3,22 +3,49 @@ package com.upc.smaf.servicesimplements;
 import com.upc.smaf.dtos.request.DetalleVentaRequestDTO;
 import com.upc.smaf.dtos.request.VentaRequestDTO;
 import com.upc.smaf.dtos.response.DetalleVentaResponseDTO;
+import com.upc.smaf.dtos.response.LoteVentasResponseDTO;
+import com.upc.smaf.dtos.response.PaginaCursorDTO;
+import com.upc.smaf.dtos.response.VentaListadoDTO;
 import com.upc.smaf.dtos.response.VentaResponseDTO;
 import com.upc.smaf.entities.*;
+import com.upc.smaf.events.OperacionComercialEvent;
 import com.upc.smaf.repositories.CuentaBancariaRepository;
 import com.upc.smaf.repositories.ProductoRepository;
 import com.upc.smaf.repositories.VentaRepository;
+import com.upc.smaf.serviceinterface.CuentaPorCobrarService;
+import com.upc.smaf.serviceinterface.NotaCreditoService;
+import com.upc.smaf.serviceinterface.ResumenVentasService;
 import com.upc.smaf.serviceinterface.VentaService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -27,12 +54,49 @@ public class VentaServiceImpl implements VentaService {
     private final VentaRepository ventaRepository;
     private final ProductoRepository productoRepository;
     private final CuentaBancariaRepository cuentaRepository;
+    private final ReservaStockService reservaStockService;
+    private final NumeracionService numeracionService;
+    private final ObjectMapper objectMapper;
+    private final IdempotenciaVentaService idempotenciaVentaService;
+    private final EntityManager entityManager;
+    private final CuentaPorCobrarService cuentaPorCobrarService;
+    private final ResumenVentasService resumenVentasService;
+    private final NotaCreditoService notaCreditoService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
 
     private static final BigDecimal IGV_PORCENTAJE = new BigDecimal("0.18");
+    private static final int TAMANIO_PAGINA_DEFECTO = 20;
+    private static final int TAMANIO_PAGINA_MAXIMO = 100;
+    private static final int LIMITE_BUSQUEDA_CLIENTE = 50;
+    private static final int MAXIMO_VENTAS_POR_LOTE = 5000;
+    // Igual a hibernate.jdbc.batch_size
+    private static final int TAMANO_BLOQUE_LOTE = 50;
 
     // ==========================================
     // 1. CREAR VENTA
     // ==========================================
+    @Override
+    @Transactional
+    public VentaResponseDTO crearVenta(VentaRequestDTO request, String claveIdempotencia) {
+        if (claveIdempotencia == null || claveIdempotencia.isBlank()) {
+            return crearVenta(request);
+        }
+        // Reintento de una venta ya confirmada: no se toca stock ni ventas
+        String huella = idempotenciaVentaService.huella(request);
+        Optional<VentaResponseDTO> previa = idempotenciaVentaService.buscar(claveIdempotencia, huella);
+        if (previa.isPresent()) return previa.get();
+
+        if (!idempotenciaVentaService.reservar(claveIdempotencia, huella)) {
+            // Otra petición con la misma clave confirmó mientras esta esperaba: se devuelve su venta
+            return idempotenciaVentaService.buscar(claveIdempotencia, huella)
+                    .orElseThrow(IdempotenciaVentaService.ClaveEnProcesoException::new);
+        }
+        VentaResponseDTO respuesta = crearVenta(request);
+        idempotenciaVentaService.registrar(claveIdempotencia, huella, respuesta);
+        return respuesta;
+    }
+
     @Override
     @Transactional
     public VentaResponseDTO crearVenta(VentaRequestDTO request) {
@@ -41,9 +105,168 @@ public class VentaServiceImpl implements VentaService {
             throw new RuntimeException("Debe agregar al menos un producto a la venta");
         }
 
+        // Una sola consulta para todos los productos y otra para las cuentas de la venta
+        Map<Integer, Producto> productos = cargarProductos(request.getDetalles());
+        Map<Integer, CuentaBancaria> cuentas = request.getPagos() != null ? cargarCuentas(request.getPagos()) : Map.of();
+
+        Map<Integer, Integer> cantidadesPorProducto = new LinkedHashMap<>();
+        Venta venta = construirVenta(request, productos, cuentas, Map.of(), cantidadesPorProducto);
+
+        // Actualizar stock (una sola sentencia; si alguna línea queda en negativo se rechaza toda la venta)
+        reservaStockService.reservar(cantidadesPorProducto);
+
+        Venta ventaGuardada = ventaRepository.save(venta);
+        cuentaPorCobrarService.registrarVenta(ventaGuardada);
+        resumenVentasService.registrarVentasNuevas(List.of(ventaGuardada));
+        publicarCambio(ventaGuardada.getId());
+        return convertirAResponseDTO(ventaGuardada);
+    }
+
+    // ==========================================
+    // 1.1 IMPORTACIÓN MASIVA (LOTE)
+    // ==========================================
+    @Override
+    @Transactional
+    public LoteVentasResponseDTO crearVentasEnLote(List<VentaRequestDTO> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new RuntimeException("El lote no contiene ventas");
+        }
+        if (requests.size() > MAXIMO_VENTAS_POR_LOTE) {
+            throw new RuntimeException("El lote no puede superar " + MAXIMO_VENTAS_POR_LOTE + " ventas");
+        }
+
+        // Restricciones del DTO fila por fila: una fila inválida se informa en su resultado, no rechaza el lote
+        Map<Integer, String> filasInvalidas = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            Set<ConstraintViolation<VentaRequestDTO>> violaciones = validator.validate(requests.get(i));
+            if (!violaciones.isEmpty()) {
+                filasInvalidas.put(i, violaciones.stream()
+                        .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+            }
+        }
+
+        // Productos y cuentas de todo el lote en una consulta cada uno
+        List<DetalleVentaRequestDTO> todosLosDetalles = new ArrayList<>();
+        List<VentaRequestDTO.PagoRequestDTO> todosLosPagos = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (filasInvalidas.containsKey(i)) continue;
+            VentaRequestDTO r = requests.get(i);
+            if (r.getDetalles() != null) todosLosDetalles.addAll(r.getDetalles());
+            if (r.getPagos() != null) todosLosPagos.addAll(r.getPagos());
+        }
+        Map<Integer, Producto> productos = cargarProductos(todosLosDetalles);
+        Map<Integer, CuentaBancaria> cuentas = cargarCuentas(todosLosPagos);
+
+        // Validación en memoria: cada fila consume del stock que dejaron las filas anteriores válidas
+        Map<Integer, Integer> stockComprometido = new LinkedHashMap<>();
+        List<Venta> ventasValidas = new ArrayList<>();
+        List<Map<Integer, Integer>> cantidadesValidas = new ArrayList<>();
+        List<LoteVentasResponseDTO.ResultadoFila> resultadosValidos = new ArrayList<>();
+        List<LoteVentasResponseDTO.ResultadoFila> resultados = new ArrayList<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            VentaRequestDTO request = requests.get(i);
+            LoteVentasResponseDTO.ResultadoFila resultado = new LoteVentasResponseDTO.ResultadoFila();
+            resultado.setFila(i + 1);
+            try {
+                if (filasInvalidas.containsKey(i)) {
+                    throw new RuntimeException(filasInvalidas.get(i));
+                }
+                if (request.getDetalles() == null || request.getDetalles().isEmpty()) {
+                    throw new RuntimeException("Debe agregar al menos un producto a la venta");
+                }
+                Map<Integer, Integer> cantidades = new LinkedHashMap<>();
+                Venta venta = construirVenta(request, productos, cuentas, stockComprometido, cantidades);
+                cantidades.forEach((id, cantidad) -> stockComprometido.merge(id, cantidad, Integer::sum));
+
+                ventasValidas.add(venta);
+                cantidadesValidas.add(cantidades);
+                resultadosValidos.add(resultado);
+                resultado.setExito(true);
+                resultado.setCodigo(venta.getCodigo());
+            } catch (RuntimeException e) {
+                resultado.setExito(false);
+                resultado.setMensaje(e.getMessage());
+            }
+            resultados.add(resultado);
+        }
+
+        // Otra caja pudo vender mientras se armaba el lote: se vuelve a validar con el stock actual leído
+        // con FOR NO KEY UPDATE justo antes del UPDATE (que tomaría esos mismos bloqueos hasta el commit). Las filas
+        // que ya no alcanzan se informan como fallidas y el UPDATE del lote no puede fallar.
+        Map<Integer, Integer> stockActual = new LinkedHashMap<>();
+        if (!stockComprometido.isEmpty()) {
+            for (Object[] fila : productoRepository.bloquearStock(new TreeSet<>(stockComprometido.keySet()).toArray(new Integer[0]))) {
+                stockActual.put((Integer) fila[0], ((Number) fila[1]).intValue());
+            }
+        }
+        stockComprometido.clear();
+        List<Venta> confirmadas = new ArrayList<>();
+        for (int i = 0; i < ventasValidas.size(); i++) {
+            Map<Integer, Integer> cantidades = cantidadesValidas.get(i);
+            Integer sinStock = cantidades.entrySet().stream()
+                    .filter(e -> stockActual.getOrDefault(e.getKey(), 0) - stockComprometido.getOrDefault(e.getKey(), 0) < e.getValue())
+                    .map(Map.Entry::getKey).findFirst().orElse(null);
+            if (sinStock != null) {
+                LoteVentasResponseDTO.ResultadoFila resultado = resultadosValidos.get(i);
+                resultado.setExito(false);
+                resultado.setCodigo(null);
+                resultado.setMensaje("Stock insuficiente para: " + productos.get(sinStock).getNombre());
+                continue;
+            }
+            cantidades.forEach((id, cantidad) -> stockComprometido.merge(id, cantidad, Integer::sum));
+            confirmadas.add(ventasValidas.get(i));
+        }
+        ventasValidas = confirmadas;
+
+        // Un solo UPDATE condicional para el stock de todas las ventas válidas
+        reservaStockService.reservar(stockComprometido);
+
+        // Inserciones agrupadas en batches JDBC (ids por secuencia); se vacía el contexto cada bloque
+        for (int i = 0; i < ventasValidas.size(); i++) {
+            entityManager.persist(ventasValidas.get(i));
+            cuentaPorCobrarService.registrarVenta(ventasValidas.get(i));
+            if ((i + 1) % TAMANO_BLOQUE_LOTE == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        // Resúmenes de todo el lote agrupados por día (después del flush, para no cortar los batches)
+        resumenVentasService.registrarVentasNuevas(ventasValidas);
+        entityManager.clear();
+        if (!ventasValidas.isEmpty()) publicarCambio(null);
+
+        Map<String, Integer> idsPorCodigo = ventasValidas.stream()
+                .collect(Collectors.toMap(Venta::getCodigo, Venta::getId));
+        for (LoteVentasResponseDTO.ResultadoFila resultado : resultados) {
+            if (resultado.isExito()) resultado.setVentaId(idsPorCodigo.get(resultado.getCodigo()));
+        }
+
+        LoteVentasResponseDTO respuesta = new LoteVentasResponseDTO();
+        respuesta.setTotal(requests.size());
+        respuesta.setExitosas(ventasValidas.size());
+        respuesta.setFallidas(requests.size() - ventasValidas.size());
+        respuesta.setResultados(resultados);
+        return respuesta;
+    }
+
+    /**
+     * Arma la venta (detalles, totales, pagos y estado) sin tocar la BD.
+     * stockComprometido: unidades ya tomadas por otras ventas del mismo lote (vacío para una venta suelta).
+     * cantidadesPorProducto: se completa con las unidades que descuenta esta venta.
+     */
+    private Venta construirVenta(VentaRequestDTO request,
+                                 Map<Integer, Producto> productos,
+                                 Map<Integer, CuentaBancaria> cuentas,
+                                 Map<Integer, Integer> stockComprometido,
+                                 Map<Integer, Integer> cantidadesPorProducto) {
         Venta venta = new Venta();
         venta.setCodigo(generarCodigoVenta());
         venta.setFechaVenta(request.getFechaVenta() != null ? request.getFechaVenta() : LocalDateTime.now());
+        venta.setClienteId(request.getClienteId());
         venta.setNombreCliente(request.getNombreCliente());
         venta.setTipoCliente(request.getTipoCliente());
         venta.setNotas(request.getNotas());
@@ -60,10 +283,14 @@ public class VentaServiceImpl implements VentaService {
         BigDecimal subtotalAcumulado = BigDecimal.ZERO;
 
         for (DetalleVentaRequestDTO detalleDTO : request.getDetalles()) {
-            Producto producto = productoRepository.findById(detalleDTO.getProductoId())
-                    .orElseThrow(() -> new RuntimeException("Producto no encontrado ID: " + detalleDTO.getProductoId()));
+            Producto producto = productos.get(detalleDTO.getProductoId());
+            if (producto == null) {
+                throw new RuntimeException("Producto no encontrado ID: " + detalleDTO.getProductoId());
+            }
 
-            if (producto.getStockActual() < detalleDTO.getCantidad()) {
+            // Se acumula por producto por si el mismo artículo aparece en varias líneas
+            int cantidadTotal = cantidadesPorProducto.merge(producto.getId(), detalleDTO.getCantidad(), Integer::sum);
+            if (producto.getStockActual() - stockComprometido.getOrDefault(producto.getId(), 0) < cantidadTotal) {
                 throw new RuntimeException("Stock insuficiente para: " + producto.getNombre());
             }
 
@@ -76,10 +303,6 @@ public class VentaServiceImpl implements VentaService {
 
             subtotalAcumulado = subtotalAcumulado.add(detalle.getSubtotal());
             venta.agregarDetalle(detalle);
-
-            // Actualizar stock
-            producto.setStockActual(producto.getStockActual() - detalleDTO.getCantidad());
-            productoRepository.save(producto);
         }
 
         // --- TOTALES ---
@@ -104,8 +327,7 @@ public class VentaServiceImpl implements VentaService {
                 pago.setReferencia(pagoDTO.getReferencia());
 
                 if (pagoDTO.getCuentaBancariaId() != null) {
-                    cuentaRepository.findById(pagoDTO.getCuentaBancariaId())
-                            .ifPresent(pago::setCuentaDestino);
+                    pago.setCuentaDestino(cuentas.get(pagoDTO.getCuentaBancariaId()));
                 }
 
                 BigDecimal montoEnMonedaVenta = normalizarMonto(
@@ -145,8 +367,7 @@ public class VentaServiceImpl implements VentaService {
             }
         }
 
-        Venta ventaGuardada = ventaRepository.save(venta);
-        return convertirAResponseDTO(ventaGuardada);
+        return venta;
     }
 
     // ==========================================
@@ -155,11 +376,16 @@ public class VentaServiceImpl implements VentaService {
     @Override
     @Transactional
     public VentaResponseDTO registrarAmortizacion(Integer ventaId, BigDecimal monto, MetodoPago metodo, Integer cuentaId) {
-        Venta venta = ventaRepository.findById(ventaId)
+        // Bloqueada: dos amortizaciones simultáneas no pueden pagar dos veces el mismo saldo
+        Venta venta = ventaRepository.findByIdParaActualizar(ventaId)
                 .orElseThrow(() -> new RuntimeException("Venta no encontrada"));
 
         if (venta.getEstado() == EstadoVenta.CANCELADA) throw new RuntimeException("Venta cancelada");
         if (venta.getSaldoPendiente().compareTo(BigDecimal.ZERO) <= 0) throw new RuntimeException("Venta ya pagada");
+        if (monto == null || monto.compareTo(BigDecimal.ZERO) <= 0) throw new RuntimeException("El monto debe ser mayor a cero");
+        if (monto.compareTo(venta.getSaldoPendiente()) > 0) {
+            throw new RuntimeException("El monto supera el saldo pendiente (" + venta.getSaldoPendiente() + ")");
+        }
 
         Pago pago = new Pago();
         pago.setMonto(monto);
@@ -175,9 +401,16 @@ public class VentaServiceImpl implements VentaService {
         venta.agregarPago(pago);
 
         venta.setSaldoPendiente(venta.getSaldoPendiente().subtract(monto));
-        if (venta.getSaldoPendiente().compareTo(BigDecimal.ZERO) <= 0) {
+        boolean seCompleta = venta.getSaldoPendiente().compareTo(BigDecimal.ZERO) <= 0;
+        if (seCompleta) {
             venta.setEstado(EstadoVenta.COMPLETADA);
         }
+        cuentaPorCobrarService.registrarAbono(venta, monto, pago.getReferencia());
+        resumenVentasService.registrarPagos(venta, List.of(pago));
+        if (seCompleta) {
+            resumenVentasService.registrarVentaCompletada(venta);
+        }
+        publicarCambio(venta.getId());
 
         return convertirAResponseDTO(ventaRepository.save(venta));
     }
@@ -191,6 +424,7 @@ public class VentaServiceImpl implements VentaService {
         Venta venta = new Venta();
         venta.setCodigo(generarCodigoVenta());
         venta.setFechaVenta(request.getFechaVenta() != null ? request.getFechaVenta() : LocalDateTime.now());
+        venta.setClienteId(request.getClienteId());
         venta.setNombreCliente(request.getNombreCliente());
         venta.setTipoCliente(request.getTipoCliente());
         venta.setEstado(EstadoVenta.BORRADOR);
@@ -233,7 +467,9 @@ public class VentaServiceImpl implements VentaService {
             }
         }
 
-        return convertirAResponseDTO(ventaRepository.save(venta));
+        Venta guardada = ventaRepository.save(venta);
+        publicarCambio(guardada.getId());
+        return convertirAResponseDTO(guardada);
     }
 
     // ==========================================
@@ -245,9 +481,13 @@ public class VentaServiceImpl implements VentaService {
         Venta venta = ventaRepository.findById(id).orElseThrow(() -> new RuntimeException("Venta no encontrada"));
         if (venta.getEstado() == EstadoVenta.COMPLETADA) throw new RuntimeException("No se editan ventas completadas");
 
+        // Los pagos de ventas no borrador ya están en el resumen diario: se reemplazan allí también
+        List<Pago> pagosAnteriores = new ArrayList<>(venta.getPagos());
+
         venta.getDetalles().clear();
         venta.getPagos().clear();
 
+        venta.setClienteId(request.getClienteId());
         venta.setNombreCliente(request.getNombreCliente());
         venta.setNotas(request.getNotas());
 
@@ -287,6 +527,12 @@ public class VentaServiceImpl implements VentaService {
         }
         venta.setMontoInicial(totalPagado);
 
+        if (venta.getEstado() != EstadoVenta.BORRADOR) {
+            resumenVentasService.revertirPagos(venta, pagosAnteriores);
+            resumenVentasService.registrarPagos(venta, venta.getPagos());
+        }
+        publicarCambio(venta.getId());
+
         return convertirAResponseDTO(ventaRepository.save(venta));
     }
 
@@ -296,20 +542,46 @@ public class VentaServiceImpl implements VentaService {
     @Override
     @Transactional(readOnly = true)
     public VentaResponseDTO obtenerVenta(Integer id) {
-        return ventaRepository.findById(id).map(this::convertirAResponseDTO)
+        Venta venta = ventaRepository.findByIdConDetalles(id)
                 .orElseThrow(() -> new RuntimeException("Venta no encontrada"));
+        return convertirAResponseDTO(conPagos(List.of(venta)).get(0));
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<VentaResponseDTO> listarTodas() {
-        return ventaRepository.findAll().stream().map(this::convertirAResponseDTO).collect(Collectors.toList());
+        return conPagos(ventaRepository.findAllConDetalles()).stream().map(this::convertirAResponseDTO).collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PaginaCursorDTO<VentaListadoDTO> listarPaginado(EstadoVenta estado, LocalDateTime desde, LocalDateTime hasta,
+                                                           String cliente, String cursor, Integer tamanio) {
+        int limite = (tamanio == null || tamanio <= 0) ? TAMANIO_PAGINA_DEFECTO : Math.min(tamanio, TAMANIO_PAGINA_MAXIMO);
+
+        CursorPagina.Posicion<LocalDateTime> posicion = CursorPagina.decodificar(cursor, LocalDateTime::parse);
+        LocalDateTime cursorFecha = posicion != null ? posicion.fecha() : null;
+        Integer cursorId = posicion != null ? posicion.id() : null;
+
+        String filtroCliente = (cliente == null || cliente.isBlank()) ? null : cliente.trim().toLowerCase() + "%";
+
+        // Se pide una fila extra solo para saber si existe una página siguiente
+        List<VentaListadoDTO> filas = ventaRepository.listarPagina(estado, desde, hasta, filtroCliente,
+                cursorFecha, cursorId, limite + 1);
+
+        String siguienteCursor = null;
+        if (filas.size() > limite) {
+            filas = new ArrayList<>(filas.subList(0, limite));
+            VentaListadoDTO ultima = filas.get(limite - 1);
+            siguienteCursor = CursorPagina.codificar(ultima.getFechaVenta(), ultima.getId());
+        }
+        return new PaginaCursorDTO<>(filas, siguienteCursor);
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<VentaResponseDTO> listarPorEstado(EstadoVenta estado) {
-        return ventaRepository.findByEstado(estado).stream().map(this::convertirAResponseDTO).collect(Collectors.toList());
+        return conPagos(ventaRepository.findByEstadoConDetalles(estado)).stream().map(this::convertirAResponseDTO).collect(Collectors.toList());
     }
 
     @Override public List<VentaResponseDTO> listarBorradores() { return listarPorEstado(EstadoVenta.BORRADOR); }
@@ -317,31 +589,130 @@ public class VentaServiceImpl implements VentaService {
 
     @Override
     @Transactional
-    public void eliminarVenta(Integer id) { ventaRepository.deleteById(id); }
+    public void eliminarVenta(Integer id) {
+        Venta venta = ventaRepository.findByIdParaActualizar(id)
+                .orElseThrow(() -> new RuntimeException("Venta no encontrada"));
+        // Antes de borrarla se deshace todo lo que la venta movió, igual que al cancelarla
+        // (stock, cuenta por cobrar, resúmenes y ranking); una venta ya cancelada no tiene nada que revertir
+        if (venta.getEstado() != EstadoVenta.CANCELADA) {
+            revertirEfectos(venta, venta.getEstado());
+        }
+        ventaRepository.delete(venta);
+        publicarCambio(id);
+    }
 
     @Override
     @Transactional
     public void cancelarVenta(Integer id) {
-        Venta venta = ventaRepository.findById(id).orElseThrow();
-        for(DetalleVenta det : venta.getDetalles()) {
-            Producto p = det.getProducto();
-            p.setStockActual(p.getStockActual() + det.getCantidad());
-            productoRepository.save(p);
-        }
-        venta.setEstado(EstadoVenta.CANCELADA);
-        ventaRepository.save(venta);
+        // Bloqueada: una anulación o nota de crédito en paralelo espera a que esta termine
+        Venta venta = ventaRepository.findByIdParaActualizar(id)
+                .orElseThrow(() -> new RuntimeException("Venta no encontrada"));
+        EstadoVenta estadoAnterior = venta.getEstado();
+        if (estadoAnterior == EstadoVenta.CANCELADA) throw new RuntimeException("La venta ya está cancelada");
+
+        // Si otro usuario la canceló en paralelo, no se devuelve el stock dos veces
+        if (ventaRepository.cambiarEstado(id, estadoAnterior, EstadoVenta.CANCELADA) == 0) {
+            throw new RuntimeException("La venta fue modificada por otro usuario, intente nuevamente");
+        }
+
+        revertirEfectos(venta, estadoAnterior);
+        publicarCambio(id);
     }
 
-    @Override public VentaResponseDTO buscarPorCodigo(String codigo) { return convertirAResponseDTO(ventaRepository.findByCodigo(codigo).orElseThrow()); }
-    @Override public List<VentaResponseDTO> buscarPorCliente(String nombre) { return ventaRepository.buscarPorCliente(nombre).stream().map(this::convertirAResponseDTO).collect(Collectors.toList()); }
+    private void revertirEfectos(Venta venta, EstadoVenta estadoAnterior) {
+        // Los borradores nunca descontaron stock; lo ya devuelto con notas de crédito no se devuelve otra vez
+        if (estadoAnterior != EstadoVenta.BORRADOR) {
+            reservaStockService.liberar(notaCreditoService.cantidadesSinDevolver(venta));
+        }
+        cuentaPorCobrarService.anularVenta(venta);
+
+        if (estadoAnterior == EstadoVenta.COMPLETADA) {
+            resumenVentasService.revertirVentaCompletada(venta);
+        }
+        if (estadoAnterior != EstadoVenta.BORRADOR) {
+            resumenVentasService.revertirPagos(venta, venta.getPagos());
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public VentaResponseDTO buscarPorCodigo(String codigo) {
+        Venta venta = ventaRepository.findByCodigoConDetalles(codigo).orElseThrow();
+        return convertirAResponseDTO(conPagos(List.of(venta)).get(0));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<VentaResponseDTO> buscarPorCliente(String nombre) {
+        if (BusquedaTexto.vacio(nombre)) return new ArrayList<>();
+        List<Integer> ids = ventaRepository.buscarIdsPorCliente(BusquedaTexto.contiene(nombre),
+                BusquedaTexto.empiezaCon(nombre), LIMITE_BUSQUEDA_CLIENTE);
+        if (ids.isEmpty()) return new ArrayList<>();
+
+        // Se respeta el orden de relevancia de la búsqueda
+        Map<Integer, Venta> porId = conPagos(ventaRepository.findByIdInConDetalles(ids)).stream()
+                .collect(Collectors.toMap(Venta::getId, v -> v));
+        return ids.stream().map(porId::get).filter(Objects::nonNull)
+                .map(this::convertirAResponseDTO).collect(Collectors.toList());
+    }
     @Override public Long contarVentasPorEstado(EstadoVenta estado) { return ventaRepository.contarPorEstado(estado); }
-    @Override public List<VentaResponseDTO> listarPorFecha(LocalDateTime i, LocalDateTime f) { return new ArrayList<>(); }
+    @Override
+    @Transactional(readOnly = true)
+    public List<VentaResponseDTO> listarPorFecha(LocalDateTime inicio, LocalDateTime fin) {
+        return conPagos(ventaRepository.findByFechaConDetalles(inicio, fin)).stream().map(this::convertirAResponseDTO).collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportarPorFecha(LocalDateTime inicio, LocalDateTime fin, String formato, OutputStream salida) throws IOException {
+        boolean csv = "csv".equalsIgnoreCase(formato);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        if (csv) {
+            writer.write("id,codigo,fechaVenta,nombreCliente,estado,tipoPago,moneda,total,saldoPendiente\n");
+        }
+        try (Stream<VentaListadoDTO> filas = ventaRepository.streamPorFecha(inicio, fin)) {
+            Iterator<VentaListadoDTO> it = filas.iterator();
+            while (it.hasNext()) {
+                VentaListadoDTO v = it.next();
+                writer.write(csv ? filaCsv(v) : objectMapper.writeValueAsString(v));
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+    }
+
+    private String filaCsv(VentaListadoDTO v) {
+        return String.join(",",
+                String.valueOf(v.getId()),
+                campoCsv(v.getCodigo()),
+                v.getFechaVenta() != null ? v.getFechaVenta().toString() : "",
+                campoCsv(v.getNombreCliente()),
+                v.getEstado() != null ? v.getEstado().name() : "",
+                v.getTipoPago() != null ? v.getTipoPago().name() : "",
+                campoCsv(v.getMoneda()),
+                v.getTotal() != null ? v.getTotal().toPlainString() : "",
+                v.getSaldoPendiente() != null ? v.getSaldoPendiente().toPlainString() : "");
+    }
+
+    private String campoCsv(String valor) {
+        if (valor == null) return "";
+        if (valor.contains(",") || valor.contains("\"") || valor.contains("\n")) {
+            return "\"" + valor.replace("\"", "\"\"") + "\"";
+        }
+        return valor;
+    }
+
     @Override public VentaResponseDTO convertirBorradorAVenta(Integer id) { return obtenerVenta(id); }
     @Override public VentaResponseDTO completarVenta(Integer id) { return obtenerVenta(id); }
 
     // ==========================================
     // HELPERS
     // ==========================================
+    // Se procesa al confirmarse la transacción (invalida la caché del dashboard); id null = varias ventas
+    private void publicarCambio(Integer ventaId) {
+        eventPublisher.publishEvent(new OperacionComercialEvent(OperacionComercialEvent.Tipo.VENTA, ventaId));
+    }
+
     private BigDecimal normalizarMonto(BigDecimal montoPago, String monedaPago, String monedaVenta, BigDecimal tipoCambio) {
         if (monedaPago.equals(monedaVenta)) return montoPago;
         if ("USD".equals(monedaPago) && "PEN".equals(monedaVenta)) return montoPago.multiply(tipoCambio).setScale(2, RoundingMode.HALF_UP);
@@ -352,7 +723,36 @@ public class VentaServiceImpl implements VentaService {
         return montoPago;
     }
 
-    private String generarCodigoVenta() { return "VTA-" + System.currentTimeMillis(); }
+    private String generarCodigoVenta() {
+        return String.format("VTA-%08d", numeracionService.siguiente(NumeracionService.Serie.VTA));
+    }
+
+    // Ids en orden, igual que los UPDATE de stock (ReservaStockService)
+    private Map<Integer, Producto> cargarProductos(List<DetalleVentaRequestDTO> detalles) {
+        Set<Integer> ids = detalles.stream().map(DetalleVentaRequestDTO::getProductoId)
+                .filter(Objects::nonNull).collect(Collectors.toCollection(TreeSet::new));
+        return productoRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Producto::getId, p -> p));
+    }
+
+    private Map<Integer, CuentaBancaria> cargarCuentas(List<VentaRequestDTO.PagoRequestDTO> pagos) {
+        Set<Integer> ids = pagos.stream()
+                .map(VentaRequestDTO.PagoRequestDTO::getCuentaBancariaId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (ids.isEmpty()) return Map.of();
+        return cuentaRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(CuentaBancaria::getId, c -> c));
+    }
+
+    /**
+     * Inicializa los pagos (y su cuenta destino) de ventas ya cargadas con sus detalles.
+     * Una sola consulta para todas las ventas en lugar de una por venta; conserva el orden recibido.
+     */
+    private List<Venta> conPagos(List<Venta> ventas) {
+        ventaRepository.cargarPagos(ventas);
+        return ventas;
+    }
 
     private VentaResponseDTO convertirAResponseDTO(Venta venta) {
         VentaResponseDTO dto = new VentaResponseDTO();
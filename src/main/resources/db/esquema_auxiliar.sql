@@ -0,0 +1,70 @@
+-- Objetos de BD que Hibernate no genera a partir de las entidades.
+-- Se ejecuta en cada arranque (spring.sql.init), antes de que el servidor web acepte peticiones; si una
+-- sentencia falla la aplicación no arranca. Cada sentencia debe ser idempotente.
+
+-- ========== BÚSQUEDA POR TEXTO (pg_trgm) ==========
+-- Índices GIN de trigramas: LIKE '%texto%' sobre LOWER(columna) deja de recorrer la tabla completa.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS ix_clientes_nombre_trgm ON clientes USING gin (LOWER(nombre_completo) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS ix_clientes_documento_trgm ON clientes USING gin (LOWER(numero_documento) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS ix_clientes_email_trgm ON clientes USING gin (LOWER(email) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS ix_ventas_cliente_trgm ON ventas USING gin (LOWER(nombre_cliente) gin_trgm_ops);
+-- Prefijos (LIKE 'texto%'): btree text_pattern_ops, también para términos de menos de 3 caracteres
+CREATE INDEX IF NOT EXISTS ix_clientes_nombre_prefijo ON clientes (LOWER(nombre_completo) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS ix_clientes_documento_prefijo ON clientes (LOWER(numero_documento) text_pattern_ops);
+
+-- ========== SECUENCIAS DE VENTAS, DETALLES Y PAGOS ==========
+-- Las entidades pasaron de IDENTITY a SEQUENCE (allocationSize = 50) para permitir batch inserts.
+-- La secuencia se ubica por encima del id más alto existente; si ya está más adelante no se modifica.
+CREATE SEQUENCE IF NOT EXISTS ventas_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS detalle_ventas_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS pagos_seq INCREMENT BY 50;
+SELECT setval('ventas_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM ventas), (SELECT last_value FROM ventas_seq), 1));
+SELECT setval('detalle_ventas_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM detalle_ventas), (SELECT last_value FROM detalle_ventas_seq), 1));
+SELECT setval('pagos_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM pagos), (SELECT last_value FROM pagos_seq), 1));
+
+-- ========== CUENTAS POR COBRAR ==========
+CREATE SEQUENCE IF NOT EXISTS cxc_movimientos_seq INCREMENT BY 50;
+-- El libro se agrupa por cliente_id; los índices anteriores por nombre ya no se usan
+DROP INDEX IF EXISTS ix_cxc_saldos_cliente;
+DROP INDEX IF EXISTS ix_cxc_movimientos_cliente_fecha;
+-- Solo los saldos vivos entran al reporte de antigüedad
+CREATE INDEX IF NOT EXISTS ix_cxc_saldos_pendientes ON cxc_saldos (fecha_venta) WHERE saldo > 0;
+-- Ventas al crédito anteriores al libro: se abre su saldo una sola vez (sin movimientos históricos)
+INSERT INTO cxc_saldos (venta_id, codigo_venta, cliente_id, nombre_cliente, moneda, fecha_venta, monto_original, saldo, fecha_actualizacion)
+SELECT v.id, v.codigo, v.cliente_id, v.nombre_cliente, v.moneda, v.fecha_venta, v.total, v.saldo_pendiente, NOW()
+FROM ventas v
+WHERE v.saldo_pendiente > 0 AND v.estado NOT IN ('BORRADOR', 'CANCELADA')
+ON CONFLICT (venta_id) DO NOTHING;
+
+-- ========== DASHBOARD: PRÓXIMAS LLEGADAS ==========
+-- Solo las carpetas que aún no llegan al almacén; el ORDER BY fecha + LIMIT se resuelve leyendo el índice
+CREATE INDEX IF NOT EXISTS ix_importaciones_llegadas_pendientes ON importaciones (fecha_estimada_llegada, id)
+    WHERE estado IN ('ORDENADO', 'EN_TRANSITO', 'EN_ADUANAS', 'NACIONALIZADO');
+
+-- ========== ALERTAS DE STOCK BAJO ==========
+-- Marca calculada por PostgreSQL: se mantiene sola en cada cambio de stock (JPA o UPDATE masivo)
+ALTER TABLE productos ADD COLUMN IF NOT EXISTS bajo_minimo boolean
+    GENERATED ALWAYS AS (activo AND stock_actual < stock_minimo) STORED;
+ALTER TABLE producto_almacen ADD COLUMN IF NOT EXISTS bajo_minimo boolean
+    GENERATED ALWAYS AS (activo AND stock_minimo IS NOT NULL AND stock <= stock_minimo) STORED;
+-- Índices parciales: contienen solo los productos en alerta (normalmente unos pocos)
+CREATE INDEX IF NOT EXISTS ix_productos_bajo_minimo ON productos (stock_actual, id_producto) WHERE bajo_minimo;
+CREATE INDEX IF NOT EXISTS ix_producto_almacen_bajo_minimo ON producto_almacen (id_almacen, stock) WHERE bajo_minimo;
+
+-- ========== VALOR DE INVENTARIO ==========
+-- 16 ranuras (ValorInventario.RANURAS); la primera vez la ranura 0 arranca con el valor actual de los productos
+INSERT INTO valor_inventario (ranura, valor)
+SELECT r, CASE WHEN r = 0 THEN (SELECT COALESCE(SUM(stock_actual * costo_total), 0) FROM productos WHERE costo_total IS NOT NULL) ELSE 0 END
+FROM generate_series(0, 15) AS r
+ON CONFLICT (ranura) DO NOTHING;
+
+-- ========== PRORRATEO DE IMPORTACIONES ==========
+-- Versión (bloqueo optimista) de las carpetas creadas antes de la columna
+UPDATE importaciones SET version = 0 WHERE version IS NULL;
+ALTER TABLE importaciones ALTER COLUMN version SET DEFAULT 0;
+ALTER TABLE importaciones ALTER COLUMN version SET NOT NULL;
+-- Cola de recálculos: a lo sumo un trabajo PENDIENTE por carpeta, donde se agrupan las solicitudes
+CREATE UNIQUE INDEX IF NOT EXISTS ux_recalculos_importacion_pendiente ON recalculos_importacion (importacion_id)
+    WHERE estado = 'PENDIENTE';
@@ -0,0 +1,145 @@
+package com.upc.smaf;
+
+import com.upc.smaf.dtos.request.DetalleVentaRequestDTO;
+import com.upc.smaf.dtos.request.VentaRequestDTO;
+import com.upc.smaf.entities.Categoria;
+import com.upc.smaf.entities.MetodoPago;
+import com.upc.smaf.entities.Producto;
+import com.upc.smaf.entities.TipoCliente;
+import com.upc.smaf.entities.TipoPago;
+import com.upc.smaf.repositories.CategoriaRepository;
+import com.upc.smaf.repositories.ProductoRepository;
+import org.junit.jupiter.api.extension.ConditionEvaluationResult;
+import org.junit.jupiter.api.extension.ExecutionCondition;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Base de las pruebas que necesitan PostgreSQL real (UPDATE ... FROM unnest, ON CONFLICT, FOR UPDATE, índices).
+ *
+ * Con la variable SMAF_TEST_DB_URL (y SMAF_TEST_DB_USERNAME / SMAF_TEST_DB_PASSWORD) se usa esa base; si no,
+ * se levanta un contenedor con Testcontainers. Sin ninguna de las dos las pruebas se omiten.
+ * El esquema lo crea Hibernate (ddl-auto=update) y después se aplica db/esquema_auxiliar.sql, igual que al arrancar.
+ */
+// Conteo de sentencias (Statistics) para las pruebas de N+1, sin el resumen de cada sesión en el log.
+// Las estadísticas son globales: la revisión periódica de la cola de recálculos de importación queda fuera
+// del tiempo de las pruebas (las que la necesitan llaman a procesarPendientes)
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN",
+        "importacion.recalculo.intervalo-ms=3600000"
+})
+@ExtendWith(BaseDatosTest.BaseDatosDisponible.class)
+public abstract class BaseDatosTest {
+
+    private static final String URL_EXTERNA = System.getenv("SMAF_TEST_DB_URL");
+
+    private static PostgreSQLContainer<?> contenedor;
+
+    @Autowired
+    protected JdbcTemplate jdbc;
+    @Autowired
+    protected ProductoRepository productoRepository;
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    @DynamicPropertySource
+    static void baseDeDatos(DynamicPropertyRegistry registry) {
+        if (URL_EXTERNA != null) {
+            registry.add("spring.datasource.url", () -> URL_EXTERNA);
+            registry.add("spring.datasource.username", () -> System.getenv().getOrDefault("SMAF_TEST_DB_USERNAME", "postgres"));
+            registry.add("spring.datasource.password", () -> System.getenv().getOrDefault("SMAF_TEST_DB_PASSWORD", ""));
+        } else {
+            PostgreSQLContainer<?> postgres = contenedor();
+            registry.add("spring.datasource.url", postgres::getJdbcUrl);
+            registry.add("spring.datasource.username", postgres::getUsername);
+            registry.add("spring.datasource.password", postgres::getPassword);
+        }
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "update");
+        registry.add("jwt.secret", () -> "c21hZi1wcnVlYmFzLWNsYXZlLWRlLWZpcm1hLWp3dC1zb2xvLXBhcmEtdGVzdHMtMDAwMDAwMDAwMDAwMDAwMDAwMDA=");
+    }
+
+    // Un solo contenedor para todas las clases de prueba (se detiene al terminar la JVM)
+    private static synchronized PostgreSQLContainer<?> contenedor() {
+        if (contenedor == null) {
+            contenedor = new PostgreSQLContainer<>("postgres:16-alpine");
+            contenedor.start();
+        }
+        return contenedor;
+    }
+
+    // ========== DATOS DE PRUEBA ==========
+    // Cada prueba crea sus propios productos (códigos únicos), así no dependen de una base vacía
+
+    protected Producto nuevoProducto(int stock, BigDecimal costo) {
+        Categoria categoria = new Categoria();
+        categoria.setNombre("Pruebas " + UUID.randomUUID());
+        categoria = categoriaRepository.save(categoria);
+
+        Producto producto = new Producto();
+        producto.setNombre("Producto " + UUID.randomUUID());
+        producto.setCodigo("T-" + UUID.randomUUID());
+        producto.setCategoria(categoria);
+        producto.setStockActual(stock);
+        producto.setStockMinimo(0);
+        producto.setCostoTotal(costo);
+        producto.setPrecioVenta(costo);
+        return productoRepository.save(producto);
+    }
+
+    protected int stockDe(Integer productoId) {
+        return jdbc.queryForObject("SELECT stock_actual FROM productos WHERE id_producto = ?", Integer.class, productoId);
+    }
+
+    // Venta al contado en soles, pagada en efectivo por el total exacto (productoId -> cantidad)
+    protected static VentaRequestDTO ventaAlContado(Map<Integer, Integer> cantidades, BigDecimal precio) {
+        VentaRequestDTO venta = new VentaRequestDTO();
+        venta.setNombreCliente("Cliente de prueba");
+        venta.setTipoCliente(TipoCliente.COMUN);
+        venta.setTipoPago(TipoPago.CONTADO);
+        venta.setMoneda("PEN");
+        venta.setTipoCambio(BigDecimal.ONE);
+
+        List<DetalleVentaRequestDTO> detalles = new ArrayList<>();
+        BigDecimal total = BigDecimal.ZERO;
+        for (Map.Entry<Integer, Integer> e : cantidades.entrySet()) {
+            DetalleVentaRequestDTO d = new DetalleVentaRequestDTO();
+            d.setProductoId(e.getKey());
+            d.setCantidad(e.getValue());
+            d.setPrecioUnitario(precio);
+            detalles.add(d);
+            total = total.add(precio.multiply(BigDecimal.valueOf(e.getValue())));
+        }
+        venta.setDetalles(detalles);
+
+        VentaRequestDTO.PagoRequestDTO pago = new VentaRequestDTO.PagoRequestDTO();
+        pago.setMetodoPago(MetodoPago.EFECTIVO);
+        pago.setMonto(total);
+        pago.setMoneda("PEN");
+        venta.setPagos(new ArrayList<>(List.of(pago)));
+        return venta;
+    }
+
+    static class BaseDatosDisponible implements ExecutionCondition {
+        @Override
+        public ConditionEvaluationResult evaluateExecutionCondition(ExtensionContext context) {
+            if (URL_EXTERNA != null) return ConditionEvaluationResult.enabled("SMAF_TEST_DB_URL definida");
+            return DockerClientFactory.instance().isDockerAvailable()
+                    ? ConditionEvaluationResult.enabled("Docker disponible")
+                    : ConditionEvaluationResult.disabled("Sin SMAF_TEST_DB_URL ni Docker: se omiten las pruebas con PostgreSQL");
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.upc.smaf.repositories;
+
+import com.upc.smaf.BaseDatosTest;
+import com.upc.smaf.entities.Cliente;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Autocompletado de clientes: las coincidencias al inicio van primero y cada forma de búsqueda usa su índice.
+ * Los planes (EXPLAIN ANALYZE) se revisan sobre 50 000 clientes, para que el planificador elija como en producción.
+ */
+class ClienteRepositoryTest extends BaseDatosTest {
+
+    private static final int CLIENTES_BENCHMARK = 50_000;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @BeforeEach
+    void poblar() {
+        Integer existentes = jdbc.queryForObject("SELECT COUNT(*) FROM clientes WHERE nombre = 'benchmark'", Integer.class);
+        if (existentes < CLIENTES_BENCHMARK) {
+            jdbc.update("DELETE FROM clientes WHERE nombre = 'benchmark'");
+            // Nombres pseudoaleatorios (md5): un prefijo de 2 letras coincide con ~1/256 de los clientes
+            jdbc.update("INSERT INTO clientes (tipo_cliente, nombre_completo, numero_documento, dni, ruc, nombre, email, activo) " +
+                    "SELECT 'PERSONA', md5(i::text) || ' ' || md5((i * 7)::text), 'B' || lpad(i::text, 10, '0'), " +
+                    "'00000000', '00000000000', 'benchmark', md5((i * 3)::text) || '@correo.test', true " +
+                    "FROM generate_series(1, ?) i", CLIENTES_BENCHMARK);
+            // La carga masiva queda en la lista pendiente de los índices GIN hasta el VACUUM
+            jdbc.execute("VACUUM ANALYZE clientes");
+        }
+    }
+
+    @Test
+    void primeroLasCoincidenciasAlInicio() {
+        String token = "zq" + UUID.randomUUID().toString().substring(0, 8);
+        Cliente enMedio = nuevoCliente("Ana " + token + " Torres", null);
+        Cliente alInicio = nuevoCliente(token.toUpperCase() + " Perez", null);
+        Cliente porEmail = nuevoCliente("Luis Rojas", "luis." + token + "@correo.test");
+
+        List<Cliente> encontrados = clienteRepository.buscarClientesIndexado("%" + token + "%", token + "%", 20);
+        assertThat(encontrados).extracting(Cliente::getId).containsExactly(
+                alInicio.getId(), enMedio.getId(), porEmail.getId());
+
+        // Término corto: solo prefijos (el cliente sin documento no se pierde por el NULL)
+        assertThat(clienteRepository.buscarClientesPorPrefijo(token.substring(0, 2) + "%", 1000))
+                .extracting(Cliente::getId).contains(alInicio.getId()).doesNotContain(enMedio.getId());
+    }
+
+    @Test
+    void busquedasUsanLosIndices() {
+        String corto = plan("SELECT c.* FROM clientes c WHERE c.activo = true AND (LOWER(c.nombre_completo) LIKE 'ab%' " +
+                "OR LOWER(c.numero_documento) LIKE 'ab%') ORDER BY LOWER(c.nombre_completo) LIMIT 20");
+        assertThat(corto).contains("ix_clientes_nombre_prefijo").doesNotContain("Seq Scan on clientes");
+
+        String largo = plan("SELECT * FROM ((SELECT c.* FROM clientes c WHERE c.activo = true AND (LOWER(c.nombre_completo) LIKE 'abc%' " +
+                "OR LOWER(c.numero_documento) LIKE 'abc%') ORDER BY LOWER(c.nombre_completo) LIMIT 20) UNION ALL " +
+                "(SELECT c.* FROM clientes c WHERE c.activo = true AND (LOWER(c.nombre_completo) LIKE '%abc%' " +
+                "OR LOWER(c.numero_documento) LIKE '%abc%' OR LOWER(c.email) LIKE '%abc%') " +
+                "AND (LOWER(c.nombre_completo) LIKE 'abc%') IS NOT TRUE AND (LOWER(c.numero_documento) LIKE 'abc%') IS NOT TRUE " +
+                "ORDER BY LOWER(c.nombre_completo) LIMIT 20)) t LIMIT 20");
+        assertThat(largo).contains("ix_clientes_nombre_prefijo", "ix_clientes_nombre_trgm")
+                .doesNotContain("Seq Scan on clientes");
+    }
+
+    private String plan(String sql) {
+        return String.join("\n", jdbc.queryForList("EXPLAIN (ANALYZE, COSTS OFF) " + sql, String.class));
+    }
+
+    private Cliente nuevoCliente(String nombreCompleto, String email) {
+        Cliente cliente = new Cliente();
+        cliente.setTipoCliente("PERSONA");
+        cliente.setNombreCompleto(nombreCompleto);
+        cliente.setNombre(nombreCompleto);
+        cliente.setDni("00000000");
+        cliente.setRuc("00000000000");
+        cliente.setEmail(email);
+        return clienteRepository.save(cliente);
+    }
+}
@@ -0,0 +1,36 @@
+package com.upc.smaf.repositories;
+
+import com.upc.smaf.BaseDatosTest;
+import com.upc.smaf.entities.Producto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Descuento de stock condicional en lote (disminuirStockEnLote): nunca deja stock negativo.
+ */
+class ProductoRepositoryTest extends BaseDatosTest {
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void soloActualizaLosProductosConStockSuficiente() {
+        Producto conStock = nuevoProducto(5, new BigDecimal("10.00"));
+        Producto sinStock = nuevoProducto(1, new BigDecimal("10.00"));
+
+        List<Object[]> actualizados = transactionTemplate.execute(status -> productoRepository.disminuirStockEnLote(
+                new Integer[]{conStock.getId(), sinStock.getId()}, new Integer[]{3, 2}));
+
+        assertThat(actualizados).hasSize(1);
+        assertThat(actualizados.get(0)[0]).isEqualTo(conStock.getId());
+        assertThat(((Number) actualizados.get(0)[1]).intValue()).isEqualTo(2);
+        assertThat(stockDe(conStock.getId())).isEqualTo(2);
+        assertThat(stockDe(sinStock.getId())).isEqualTo(1);
+    }
+}
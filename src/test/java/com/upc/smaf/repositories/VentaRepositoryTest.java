@@ -0,0 +1,68 @@
+package com.upc.smaf.repositories;
+
+import com.upc.smaf.BaseDatosTest;
+import com.upc.smaf.dtos.request.VentaRequestDTO;
+import com.upc.smaf.dtos.response.PaginaCursorDTO;
+import com.upc.smaf.dtos.response.VentaListadoDTO;
+import com.upc.smaf.entities.EstadoVenta;
+import com.upc.smaf.entities.Producto;
+import com.upc.smaf.serviceinterface.VentaService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Listado de ventas por cursor (listarPagina): recorre todas las filas una sola vez y en orden,
+ * también cuando varias ventas comparten la misma fecha.
+ */
+class VentaRepositoryTest extends BaseDatosTest {
+
+    private static final BigDecimal PRECIO = new BigDecimal("5.00");
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Test
+    void recorrePaginasSinRepetirNiSaltarFilas() {
+        Producto producto = nuevoProducto(100, PRECIO);
+        String cliente = "Paginación " + UUID.randomUUID();
+        LocalDateTime fecha = LocalDateTime.of(2020, 1, 15, 10, 0);
+
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            VentaRequestDTO venta = ventaAlContado(Map.of(producto.getId(), 1), PRECIO);
+            venta.setNombreCliente(cliente);
+            Integer id = ventaService.crearVenta(venta).getId();
+            // Tres ventas con la misma fecha: el id desempata
+            jdbc.update("UPDATE ventas SET fecha_venta = ? WHERE id = ?",
+                    Timestamp.valueOf(i < 3 ? fecha : fecha.plusHours(i)), id);
+            ids.add(id);
+        }
+
+        List<VentaListadoDTO> recorridas = new ArrayList<>();
+        String cursor = null;
+        int paginas = 0;
+        do {
+            PaginaCursorDTO<VentaListadoDTO> pagina = ventaService.listarPaginado(
+                    EstadoVenta.COMPLETADA, null, null, cliente, cursor, 3);
+            recorridas.addAll(pagina.getItems());
+            cursor = pagina.getSiguienteCursor();
+            paginas++;
+        } while (cursor != null);
+
+        assertThat(paginas).isEqualTo(3);
+        assertThat(recorridas).extracting(VentaListadoDTO::getId).containsExactlyInAnyOrderElementsOf(ids);
+        assertThat(recorridas).isSortedAccordingTo(Comparator.comparing(VentaListadoDTO::getFechaVenta)
+                .thenComparing(VentaListadoDTO::getId).reversed());
+    }
+}
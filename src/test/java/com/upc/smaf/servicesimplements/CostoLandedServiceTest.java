@@ -0,0 +1,240 @@
+package com.upc.smaf.servicesimplements;
+
+import com.upc.smaf.BaseDatosTest;
+import com.upc.smaf.dtos.request.CompraRequestDTO;
+import com.upc.smaf.entities.Compra;
+import com.upc.smaf.entities.Importacion;
+import com.upc.smaf.entities.Producto;
+import com.upc.smaf.entities.Proveedor;
+import com.upc.smaf.entities.TipoPago;
+import com.upc.smaf.repositories.CompraRepository;
+import com.upc.smaf.repositories.ImportacionRepository;
+import com.upc.smaf.repositories.ProveedorRepository;
+import com.upc.smaf.serviceinterface.CompraService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Recosteos de carpetas, compras y anulaciones simultáneas sobre los mismos productos: el costo acumulado
+ * de cada producto sigue siendo la suma de sus líneas costeadas y el stock, la suma de las compras vigentes
+ * (ninguna diferencia se aplica dos veces ni se pierde).
+ */
+class CostoLandedServiceTest extends BaseDatosTest {
+
+    private static final int FACTURAS = 40;
+
+    @Autowired
+    private CompraService compraService;
+    @Autowired
+    private CostoLandedService costoLandedService;
+    @Autowired
+    private ProrrateoImportacionService prorrateoService;
+    @Autowired
+    private ImportacionRepository importacionRepository;
+    @Autowired
+    private CompraRepository compraRepository;
+    @Autowired
+    private ProveedorRepository proveedorRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void anulacionesYRecosteosSimultaneosDejanElAcumuladoExacto() throws Exception {
+        List<Producto> productos = List.of(
+                nuevoProducto(1_000, new BigDecimal("10.00")),
+                nuevoProducto(1_000, new BigDecimal("20.00")));
+        Integer importacionId = nuevaCarpeta(productos);
+        recostear(importacionId, new BigDecimal("500.00"));
+        List<Integer> compraIds = jdbc.queryForList("SELECT id FROM compras WHERE importacion_id = ? ORDER BY id",
+                Integer.class, importacionId);
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<?>> resultados = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Integer compraId = compraIds.get(i * 3);
+            resultados.add(executor.submit(() -> {
+                salida.await();
+                compraService.anularCompra(compraId);
+                return null;
+            }));
+        }
+        for (int i = 1; i <= 6; i++) {
+            BigDecimal flete = BigDecimal.valueOf(500L + 37L * i);
+            resultados.add(executor.submit(() -> {
+                salida.await();
+                recostear(importacionId, flete);
+                return null;
+            }));
+        }
+        salida.countDown();
+        for (Future<?> r : resultados) r.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM compra_detalles d JOIN compras c ON c.id = d.compra_id " +
+                "WHERE c.importacion_id = ? AND c.estado = 'ANULADA' AND d.costo_landed_total IS NOT NULL",
+                Integer.class, importacionId)).isZero();
+        assertThat(productos).allSatisfy(this::assertAcumuladoIgualALineas);
+    }
+
+    @Test
+    void recosteosSimultaneosDeDosCarpetasConProductosEnComun() throws Exception {
+        // El bloqueo de cada carpeta no las serializa entre sí: el producto común es el punto de encuentro
+        List<Producto> productos = List.of(
+                nuevoProducto(1_000, new BigDecimal("10.00")),
+                nuevoProducto(1_000, new BigDecimal("20.00")));
+        List<Integer> carpetas = List.of(nuevaCarpeta(productos), nuevaCarpeta(List.of(productos.get(1), productos.get(0))));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<?>> resultados = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            Integer importacionId = carpetas.get(i % 2);
+            BigDecimal flete = BigDecimal.valueOf(300L + 41L * i);
+            resultados.add(executor.submit(() -> {
+                salida.await();
+                recostear(importacionId, flete);
+                return null;
+            }));
+        }
+        salida.countDown();
+        for (Future<?> r : resultados) r.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertThat(productos).allSatisfy(this::assertAcumuladoIgualALineas);
+    }
+
+    @Test
+    void comprasLocalesYAnulacionesSimultaneasConProductosEnComun() throws Exception {
+        List<Producto> productos = List.of(
+                nuevoProducto(0, new BigDecimal("10.00")),
+                nuevoProducto(0, new BigDecimal("20.00")));
+        Integer proveedorId = nuevoProveedor();
+
+        List<Integer> registradas = new ArrayList<>();
+        for (int i = 0; i < 6; i++) registradas.add(compraService.registrarCompra(compraLocal(proveedorId, productos, i)).getId());
+
+        // Compras con las líneas en orden distinto y anulaciones, todas a la vez
+        ExecutorService executor = Executors.newFixedThreadPool(12);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<?>> resultados = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            int n = i;
+            resultados.add(executor.submit(() -> {
+                salida.await();
+                compraService.registrarCompra(compraLocal(proveedorId, productos, n));
+                return null;
+            }));
+        }
+        for (Integer compraId : registradas.subList(0, 3)) {
+            resultados.add(executor.submit(() -> {
+                salida.await();
+                compraService.anularCompra(compraId);
+                return null;
+            }));
+        }
+        salida.countDown();
+        for (Future<?> r : resultados) r.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // 6 + 12 compras de 3 y 5 unidades, 3 anuladas
+        assertThat(stockDe(productos.get(0).getId())).isEqualTo(15 * 3);
+        assertThat(stockDe(productos.get(1).getId())).isEqualTo(15 * 5);
+        assertThat(productos).allSatisfy(this::assertAcumuladoIgualALineas);
+    }
+
+    private void assertAcumuladoIgualALineas(Producto producto) {
+        Map<String, Object> fila = jdbc.queryForMap("SELECT p.costo_landed_acumulado AS acumulado, " +
+                "p.cantidad_costeada AS cantidad, " +
+                "(SELECT SUM(d.costo_landed_total) FROM compra_detalles d WHERE d.producto_id = p.id_producto) AS lineas, " +
+                "(SELECT SUM(d.cantidad) FROM compra_detalles d WHERE d.producto_id = p.id_producto " +
+                " AND d.costo_landed_total IS NOT NULL) AS cantidad_lineas " +
+                "FROM productos p WHERE p.id_producto = ?", producto.getId());
+        assertThat((BigDecimal) fila.get("acumulado")).isEqualByComparingTo((BigDecimal) fila.get("lineas"));
+        assertThat(((Number) fila.get("cantidad")).longValue()).isEqualTo(((Number) fila.get("cantidad_lineas")).longValue());
+    }
+
+    // Prorrateo de un flete dado y costeo de la carpeta, sin tomar la carpeta antes: CostoLandedService la bloquea
+    private void recostear(Integer importacionId, BigDecimal flete) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Importacion gastos = new Importacion();
+            gastos.setCostoFlete(flete);
+            List<Compra> facturas = compraRepository.findByImportacionId(importacionId);
+            costoLandedService.propagar(facturas.stream().map(Compra::getId).toList(), prorrateoService.calcular(gastos, facturas));
+        });
+    }
+
+    private Integer nuevoProveedor() {
+        Proveedor proveedor = new Proveedor();
+        proveedor.setNombre("Proveedor " + UUID.randomUUID());
+        proveedor.setPais("China");
+        return proveedorRepository.save(proveedor).getId();
+    }
+
+    // Factura local al contado sin pagos: 3 unidades del primer producto y 5 del segundo (orden según n)
+    private static CompraRequestDTO compraLocal(Integer proveedorId, List<Producto> productos, int n) {
+        CompraRequestDTO compra = new CompraRequestDTO();
+        compra.setTipoCompra("BIEN");
+        compra.setTipoComprobante("FACTURA_ELECTRONICA");
+        compra.setTipoPago(TipoPago.CONTADO);
+        compra.setSerie("F001");
+        compra.setNumero(String.valueOf(n));
+        compra.setFechaEmision(LocalDate.now());
+        compra.setProveedorId(proveedorId);
+        compra.setMoneda("PEN");
+        compra.setSubTotal(new BigDecimal("130.00"));
+        compra.setIgv(BigDecimal.ZERO);
+        compra.setTotal(new BigDecimal("130.00"));
+
+        List<CompraRequestDTO.DetalleRequestDTO> detalles = new ArrayList<>();
+        int[] cantidades = {3, 5};
+        for (int i = 0; i < productos.size(); i++) {
+            CompraRequestDTO.DetalleRequestDTO detalle = new CompraRequestDTO.DetalleRequestDTO();
+            detalle.setProductoId(productos.get(i).getId());
+            detalle.setCantidad(cantidades[i]);
+            detalle.setPrecioUnitario(BigDecimal.valueOf(10L + n));
+            detalles.add(detalle);
+        }
+        if (n % 2 == 1) Collections.reverse(detalles);
+        compra.setDetalles(detalles);
+        return compra;
+    }
+
+    private Integer nuevaCarpeta(List<Producto> productos) {
+        Integer proveedorId = nuevoProveedor();
+
+        Importacion imp = new Importacion();
+        imp.setCodigoAgrupador("COSTEO-" + UUID.randomUUID().toString().substring(0, 8));
+        imp = importacionRepository.save(imp);
+
+        jdbc.update("INSERT INTO compras (tipo_compra, tipo_comprobante, tipo_pago, serie, numero, fec_emision, " +
+                        "proveedor_id, moneda, sub_total, fob, igv, total, peso_neto_kg, cbm, cod_importacion, " +
+                        "importacion_id, estado, activo, fecha_registro) " +
+                        "SELECT 'BIEN', 'FACTURA_COMERCIAL', 'CONTADO', 'F001', CAST(g AS varchar), CURRENT_DATE, ?, " +
+                        "'USD', 0, 100 + g, 0, 100 + g, 10, 1 + g % 3, ?, ?, 'REGISTRADA', true, NOW() " +
+                        "FROM generate_series(1, ?) AS g",
+                proveedorId, imp.getCodigoAgrupador(), imp.getId(), FACTURAS);
+        for (Producto producto : productos) {
+            jdbc.update("INSERT INTO compra_detalles (compra_id, producto_id, cantidad, precio_unitario, importe_total) " +
+                    "SELECT c.id, ?, 2, 10 + c.id % 5, 2 * (10 + c.id % 5) FROM compras c WHERE c.importacion_id = ?",
+                    producto.getId(), imp.getId());
+        }
+        return imp.getId();
+    }
+}
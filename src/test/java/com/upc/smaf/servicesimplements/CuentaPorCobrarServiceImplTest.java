@@ -0,0 +1,98 @@
+package com.upc.smaf.servicesimplements;
+
+import com.upc.smaf.BaseDatosTest;
+import com.upc.smaf.dtos.request.VentaRequestDTO;
+import com.upc.smaf.dtos.response.AntiguedadCuentaPorCobrarDTO;
+import com.upc.smaf.dtos.response.VentaResponseDTO;
+import com.upc.smaf.entities.MetodoPago;
+import com.upc.smaf.entities.Producto;
+import com.upc.smaf.entities.TipoMovimientoCxC;
+import com.upc.smaf.entities.TipoPago;
+import com.upc.smaf.serviceinterface.CuentaPorCobrarService;
+import com.upc.smaf.serviceinterface.VentaService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Cuentas por cobrar: saldo por cliente registrado, abonos que no dejan saldo negativo y
+ * eliminación de ventas que revierte el libro.
+ */
+class CuentaPorCobrarServiceImplTest extends BaseDatosTest {
+
+    private static final BigDecimal PRECIO = new BigDecimal("20.00");
+    private static final BigDecimal INICIAL = new BigDecimal("5.00");
+
+    @Autowired
+    private VentaService ventaService;
+    @Autowired
+    private CuentaPorCobrarService cuentaPorCobrarService;
+
+    @Test
+    void agrupaPorClienteAunqueCambieElNombre() {
+        Producto producto = nuevoProducto(10, PRECIO);
+        int clienteId = ThreadLocalRandom.current().nextInt(1_000_000, Integer.MAX_VALUE);
+        VentaResponseDTO a = ventaService.crearVenta(ventaAlCredito(producto, clienteId, "Juan Pérez"));
+        VentaResponseDTO b = ventaService.crearVenta(ventaAlCredito(producto, clienteId, "JUAN PEREZ SAC"));
+
+        assertThat(cuentaPorCobrarService.saldosPendientesPorCliente(clienteId)).hasSize(2);
+        AntiguedadCuentaPorCobrarDTO fila = cuentaPorCobrarService.reporteAntiguedad().stream()
+                .filter(r -> Integer.valueOf(clienteId).equals(r.getClienteId()))
+                .findFirst().orElseThrow();
+        assertThat(fila.getTotal()).isEqualByComparingTo(a.getSaldoPendiente().add(b.getSaldoPendiente()));
+    }
+
+    @Test
+    void unAbonoMayorAlSaldoSeRechaza() {
+        Producto producto = nuevoProducto(10, PRECIO);
+        int clienteId = ThreadLocalRandom.current().nextInt(1_000_000, Integer.MAX_VALUE);
+        VentaResponseDTO venta = ventaService.crearVenta(ventaAlCredito(producto, clienteId, "Ana"));
+        BigDecimal saldo = venta.getSaldoPendiente();
+
+        assertThatThrownBy(() -> ventaService.registrarAmortizacion(
+                venta.getId(), saldo.add(BigDecimal.ONE), MetodoPago.EFECTIVO, null))
+                .hasMessageContaining("supera el saldo pendiente");
+        assertThat(saldoCxc(venta.getId())).isEqualByComparingTo(saldo);
+
+        ventaService.registrarAmortizacion(venta.getId(), saldo, MetodoPago.EFECTIVO, null);
+        assertThat(saldoCxc(venta.getId())).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    void eliminarUnaVentaRevierteStockYCuentaPorCobrar() {
+        Producto producto = nuevoProducto(10, PRECIO);
+        int clienteId = ThreadLocalRandom.current().nextInt(1_000_000, Integer.MAX_VALUE);
+        VentaResponseDTO venta = ventaService.crearVenta(ventaAlCredito(producto, clienteId, "Luis"));
+        assertThat(stockDe(producto.getId())).isEqualTo(8);
+
+        ventaService.eliminarVenta(venta.getId());
+
+        assertThat(stockDe(producto.getId())).isEqualTo(10);
+        assertThat(saldoCxc(venta.getId())).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(cuentaPorCobrarService.saldosPendientesPorCliente(clienteId)).isEmpty();
+        assertThat(cuentaPorCobrarService.movimientosPorVenta(venta.getId()))
+                .extracting(m -> m.getTipo()).contains(TipoMovimientoCxC.ANULACION);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM ventas WHERE id = ?", Integer.class, venta.getId()))
+                .isZero();
+    }
+
+    private BigDecimal saldoCxc(Integer ventaId) {
+        return jdbc.queryForObject("SELECT saldo FROM cxc_saldos WHERE venta_id = ?", BigDecimal.class, ventaId);
+    }
+
+    // Dos unidades al crédito con un pago inicial
+    private static VentaRequestDTO ventaAlCredito(Producto producto, Integer clienteId, String nombre) {
+        VentaRequestDTO venta = ventaAlContado(Map.of(producto.getId(), 2), PRECIO);
+        venta.setTipoPago(TipoPago.CREDITO);
+        venta.setClienteId(clienteId);
+        venta.setNombreCliente(nombre);
+        venta.getPagos().get(0).setMonto(INICIAL);
+        return venta;
+    }
+}
@@ -0,0 +1,53 @@
+package com.upc.smaf.servicesimplements;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Cursor de los listados paginados: ida y vuelta con fechas y fechas-hora, y cursores mal formados.
+ */
+class CursorPaginaTest {
+
+    @Test
+    void codificaYDecodificaFechaHora() {
+        LocalDateTime fecha = LocalDateTime.of(2025, 3, 14, 9, 26, 53, 589_000_000);
+        String cursor = CursorPagina.codificar(fecha, 1234);
+
+        assertThat(cursor).doesNotContain("=", "+", "/", "|");
+        CursorPagina.Posicion<LocalDateTime> posicion = CursorPagina.decodificar(cursor, LocalDateTime::parse);
+        assertThat(posicion.fecha()).isEqualTo(fecha);
+        assertThat(posicion.id()).isEqualTo(1234);
+    }
+
+    @Test
+    void codificaYDecodificaFecha() {
+        LocalDate fecha = LocalDate.of(2024, 12, 31);
+        CursorPagina.Posicion<LocalDate> posicion =
+                CursorPagina.decodificar(CursorPagina.codificar(fecha, 7), LocalDate::parse);
+        assertThat(posicion).isEqualTo(new CursorPagina.Posicion<>(fecha, 7));
+    }
+
+    @Test
+    void sinCursorEsLaPrimeraPagina() {
+        assertThat(CursorPagina.decodificar(null, LocalDate::parse)).isNull();
+        assertThat(CursorPagina.decodificar("  ", LocalDate::parse)).isNull();
+    }
+
+    @Test
+    void rechazaCursoresMalFormados() {
+        for (String valor : new String[]{"2024-12-31", "2024-12-31|x", "31/12/2024|7", "2024-12-31|7|8"}) {
+            String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+            assertThatThrownBy(() -> CursorPagina.decodificar(cursor, LocalDate::parse))
+                    .hasMessage("Cursor de paginación inválido");
+        }
+        assertThatThrownBy(() -> CursorPagina.decodificar("no es base64!", LocalDate::parse))
+                .hasMessage("Cursor de paginación inválido");
+    }
+}
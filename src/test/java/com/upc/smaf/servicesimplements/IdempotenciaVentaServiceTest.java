@@ -0,0 +1,100 @@
+package com.upc.smaf.servicesimplements;
+
+import com.upc.smaf.BaseDatosTest;
+import com.upc.smaf.dtos.request.VentaRequestDTO;
+import com.upc.smaf.entities.Producto;
+import com.upc.smaf.serviceinterface.VentaService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Idempotency-Key de POST /ventas: una venta por clave, ligada al contenido de la petición, y purga por antigüedad.
+ */
+class IdempotenciaVentaServiceTest extends BaseDatosTest {
+
+    private static final BigDecimal PRECIO = new BigDecimal("7.50");
+
+    @Autowired
+    private VentaService ventaService;
+    @Autowired
+    private IdempotenciaVentaService idempotenciaVentaService;
+
+    @Test
+    void mismaClaveYMismoCuerpoDevuelveLaMismaVenta() {
+        Producto producto = nuevoProducto(10, PRECIO);
+        String clave = UUID.randomUUID().toString();
+
+        Integer primera = ventaService.crearVenta(ventaAlContado(Map.of(producto.getId(), 2), PRECIO), clave).getId();
+        Integer segunda = ventaService.crearVenta(ventaAlContado(Map.of(producto.getId(), 2), PRECIO), clave).getId();
+
+        assertThat(segunda).isEqualTo(primera);
+        assertThat(stockDe(producto.getId())).isEqualTo(8);
+    }
+
+    @Test
+    void mismaClaveConOtroCuerpoSeRechaza() {
+        Producto producto = nuevoProducto(10, PRECIO);
+        String clave = UUID.randomUUID().toString();
+        ventaService.crearVenta(ventaAlContado(Map.of(producto.getId(), 2), PRECIO), clave);
+
+        VentaRequestDTO otra = ventaAlContado(Map.of(producto.getId(), 3), PRECIO);
+        assertThatThrownBy(() -> ventaService.crearVenta(otra, clave))
+                .isInstanceOf(IdempotenciaVentaService.ClaveReutilizadaException.class);
+        assertThat(stockDe(producto.getId())).isEqualTo(8);
+    }
+
+    @Test
+    void envioSimultaneoCreaUnaSolaVenta() throws Exception {
+        Producto producto = nuevoProducto(100, PRECIO);
+        String clave = UUID.randomUUID().toString();
+        int hilos = 8;
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        try {
+            List<Future<Integer>> resultados = new ArrayList<>();
+            for (int i = 0; i < hilos; i++) {
+                resultados.add(executor.submit((Callable<Integer>) () -> {
+                    salida.await();
+                    return ventaService.crearVenta(ventaAlContado(Map.of(producto.getId(), 1), PRECIO), clave).getId();
+                }));
+            }
+            salida.countDown();
+            List<Integer> ids = new ArrayList<>();
+            for (Future<Integer> f : resultados) ids.add(f.get(60, TimeUnit.SECONDS));
+
+            assertThat(ids).containsOnly(ids.get(0));
+            assertThat(stockDe(producto.getId())).isEqualTo(99);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void purgaLasClavesVencidas() {
+        Producto producto = nuevoProducto(10, PRECIO);
+        String vieja = UUID.randomUUID().toString();
+        String reciente = UUID.randomUUID().toString();
+        ventaService.crearVenta(ventaAlContado(Map.of(producto.getId(), 1), PRECIO), vieja);
+        ventaService.crearVenta(ventaAlContado(Map.of(producto.getId(), 1), PRECIO), reciente);
+        jdbc.update("UPDATE idempotencia_ventas SET fecha_creacion = NOW() - INTERVAL '25 hours' WHERE clave = ?", vieja);
+
+        assertThat(idempotenciaVentaService.purgarVencidas()).isGreaterThanOrEqualTo(1);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM idempotencia_ventas WHERE clave IN (?, ?)",
+                Integer.class, vieja, reciente)).isEqualTo(1);
+    }
+}
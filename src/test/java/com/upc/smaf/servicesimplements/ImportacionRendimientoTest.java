@@ -0,0 +1,124 @@
+package com.upc.smaf.servicesimplements;
+
+import com.upc.smaf.BaseDatosTest;
+import com.upc.smaf.entities.Compra;
+import com.upc.smaf.entities.Importacion;
+import com.upc.smaf.entities.Producto;
+import com.upc.smaf.entities.Proveedor;
+import com.upc.smaf.repositories.CompraRepository;
+import com.upc.smaf.repositories.ImportacionRepository;
+import com.upc.smaf.repositories.ProveedorRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Recálculo de una carpeta de importación (prorrateo + costo landed) con 50 y 500 facturas:
+ * la cantidad de sentencias no depende de la cantidad de facturas.
+ */
+class ImportacionRendimientoTest extends BaseDatosTest {
+
+    private static final int LINEAS_POR_FACTURA = 3;
+    private static final int REPETICIONES = 5;
+
+    @Autowired
+    private ImportacionRepository importacionRepository;
+    @Autowired
+    private CompraRepository compraRepository;
+    @Autowired
+    private ProveedorRepository proveedorRepository;
+    @Autowired
+    private ProrrateoImportacionService prorrateoService;
+    @Autowired
+    private CostoLandedService costoLandedService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void recalculoNoCreceEnSentenciasConLasFacturas() {
+        List<Producto> productos = List.of(
+                nuevoProducto(100, new BigDecimal("10.00")),
+                nuevoProducto(100, new BigDecimal("20.00")),
+                nuevoProducto(100, new BigDecimal("30.00")));
+        Proveedor proveedor = nuevoProveedor();
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Map<Integer, Long> sentencias = new LinkedHashMap<>();
+        for (int facturas : new int[]{50, 500}) {
+            Importacion imp = nuevaCarpeta(proveedor, productos, facturas);
+
+            // Primer recálculo: costea todas las líneas (calentamiento)
+            recalcular(imp.getId(), BigDecimal.ZERO);
+
+            // Las estadísticas son globales: un recálculo en segundo plano de otra prueba puede sumar sentencias
+            // a alguna vuelta, así que se toma la vuelta con menos
+            long minimo = Long.MAX_VALUE;
+            for (int i = 1; i <= REPETICIONES; i++) {
+                estadisticas.clear();
+                // Cada vuelta cambia el flete: todas las líneas y productos se recostean
+                recalcular(imp.getId(), BigDecimal.valueOf(1_000L * i));
+                minimo = Math.min(minimo, estadisticas.getPrepareStatementCount());
+            }
+            sentencias.put(facturas, minimo);
+
+            BigDecimal prorrateado = jdbc.queryForObject("SELECT SUM(pro_flete) FROM compras WHERE importacion_id = ?",
+                    BigDecimal.class, imp.getId());
+            assertThat(prorrateado).isEqualByComparingTo(BigDecimal.valueOf(1_000L * REPETICIONES));
+        }
+
+        assertThat(sentencias.get(500)).isEqualTo(sentencias.get(50));
+    }
+
+    // Mismos pasos que RecalculoImportacionService, en una transacción
+    private void recalcular(Integer importacionId, BigDecimal flete) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Importacion imp = importacionRepository.findByIdParaActualizar(importacionId).orElseThrow();
+            imp.setCostoFlete(flete);
+            List<Compra> facturas = compraRepository.findByCodImportacion(imp.getCodigoAgrupador());
+            ProrrateoImportacionService.Prorrateo prorrateo = prorrateoService.aplicar(imp, facturas);
+            costoLandedService.propagar(facturas.stream().map(Compra::getId).toList(), prorrateo);
+            importacionRepository.save(imp);
+        });
+    }
+
+    private Proveedor nuevoProveedor() {
+        Proveedor proveedor = new Proveedor();
+        proveedor.setNombre("Proveedor " + UUID.randomUUID());
+        proveedor.setPais("China");
+        return proveedorRepository.save(proveedor);
+    }
+
+    // Facturas y líneas por SQL: cientos de filas sin pasar por el flujo de registro de compras
+    private Importacion nuevaCarpeta(Proveedor proveedor, List<Producto> productos, int facturas) {
+        Importacion imp = new Importacion();
+        imp.setCodigoAgrupador("BENCH-" + UUID.randomUUID().toString().substring(0, 8));
+        imp = importacionRepository.save(imp);
+
+        jdbc.update("INSERT INTO compras (tipo_compra, tipo_comprobante, tipo_pago, serie, numero, fec_emision, " +
+                        "proveedor_id, moneda, sub_total, fob, igv, total, peso_neto_kg, cbm, cod_importacion, " +
+                        "importacion_id, estado, activo, fecha_registro) " +
+                        "SELECT 'BIEN', 'FACTURA_COMERCIAL', 'CONTADO', 'F001', CAST(g AS varchar), CURRENT_DATE, ?, " +
+                        "'USD', 0, 100 + g, 0, 100 + g, 10 + g % 7, 1 + g % 3, ?, ?, 'REGISTRADA', true, NOW() " +
+                        "FROM generate_series(1, ?) AS g",
+                proveedor.getId(), imp.getCodigoAgrupador(), imp.getId(), facturas);
+        for (int i = 0; i < LINEAS_POR_FACTURA; i++) {
+            jdbc.update("INSERT INTO compra_detalles (compra_id, producto_id, cantidad, precio_unitario, importe_total) " +
+                            "SELECT c.id, ?, 2, 10 + c.id % 5, 2 * (10 + c.id % 5) FROM compras c WHERE c.importacion_id = ?",
+                    productos.get(i % productos.size()).getId(), imp.getId());
+        }
+        return imp;
+    }
+}
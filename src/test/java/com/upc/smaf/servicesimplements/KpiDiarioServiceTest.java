@@ -0,0 +1,49 @@
+package com.upc.smaf.servicesimplements;
+
+import com.upc.smaf.BaseDatosTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Varios nodos registrando la foto del mismo día a la vez: ninguno falla por clave duplicada.
+ */
+class KpiDiarioServiceTest extends BaseDatosTest {
+
+    @Autowired
+    private KpiDiarioService kpiDiarioService;
+
+    @Test
+    void registrosSimultaneosDelMismoDiaNoChocan() throws Exception {
+        jdbc.update("DELETE FROM kpi_diario WHERE fecha = ?", Date.valueOf(LocalDate.now()));
+        int hilos = 8;
+
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<?>> resultados = new ArrayList<>();
+        for (int i = 0; i < hilos; i++) {
+            resultados.add(executor.submit(() -> {
+                salida.await();
+                kpiDiarioService.registrarHoy();
+                return null;
+            }));
+        }
+        salida.countDown();
+        for (Future<?> r : resultados) r.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM kpi_diario WHERE fecha = ?", Integer.class,
+                Date.valueOf(LocalDate.now()))).isEqualTo(1);
+    }
+}
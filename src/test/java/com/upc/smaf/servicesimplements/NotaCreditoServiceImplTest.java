@@ -0,0 +1,120 @@
+package com.upc.smaf.servicesimplements;
+
+import com.upc.smaf.BaseDatosTest;
+import com.upc.smaf.dtos.request.NotaCreditoRequestDTO;
+import com.upc.smaf.entities.MotivoNota;
+import com.upc.smaf.entities.Producto;
+import com.upc.smaf.serviceinterface.NotaCreditoService;
+import com.upc.smaf.serviceinterface.VentaService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Devoluciones con notas de crédito y anulación de la venta: el stock vuelve una sola vez.
+ */
+class NotaCreditoServiceImplTest extends BaseDatosTest {
+
+    private static final BigDecimal PRECIO = new BigDecimal("9.90");
+
+    @Autowired
+    private NotaCreditoService notaCreditoService;
+    @Autowired
+    private VentaService ventaService;
+
+    @Test
+    void variasDevolucionesPorItemHastaAgotarLoVendido() {
+        Producto a = nuevoProducto(50, PRECIO);
+        Producto b = nuevoProducto(50, PRECIO);
+        Integer ventaId = ventaService.crearVenta(ventaAlContado(Map.of(a.getId(), 5, b.getId(), 2), PRECIO)).getId();
+
+        notaCreditoService.emitirNotaCredito(devolucionPorItem(ventaId, Map.of(a.getId(), 2)));
+        notaCreditoService.emitirNotaCredito(devolucionPorItem(ventaId, Map.of(a.getId(), 3, b.getId(), 1)));
+        assertThat(stockDe(a.getId())).isEqualTo(50);
+        assertThat(stockDe(b.getId())).isEqualTo(49);
+
+        assertThatThrownBy(() -> notaCreditoService.emitirNotaCredito(devolucionPorItem(ventaId, Map.of(a.getId(), 1))))
+                .hasMessageContaining("Solo quedan 0 unidades");
+
+        // La devolución total solo devuelve lo que faltaba y la anulación posterior ya no devuelve nada
+        notaCreditoService.emitirNotaCredito(nota(ventaId, MotivoNota.DEVOLUCION_TOTAL));
+        ventaService.cancelarVenta(ventaId);
+        assertThat(stockDe(a.getId())).isEqualTo(50);
+        assertThat(stockDe(b.getId())).isEqualTo(50);
+    }
+
+    @Test
+    void devolucionesYAnulacionConcurrentesNoDevuelvenElStockDosVeces() throws Exception {
+        Producto producto = nuevoProducto(100, PRECIO);
+        Integer ventaId = ventaService.crearVenta(ventaAlContado(Map.of(producto.getId(), 10), PRECIO)).getId();
+        assertThat(stockDe(producto.getId())).isEqualTo(90);
+
+        List<Callable<Boolean>> operaciones = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            operaciones.add(() -> notaCreditoService.emitirNotaCredito(nota(ventaId, MotivoNota.DEVOLUCION_TOTAL)) != null);
+            operaciones.add(() -> notaCreditoService.emitirNotaCredito(devolucionPorItem(ventaId, Map.of(producto.getId(), 3))) != null);
+        }
+        operaciones.add(() -> { ventaService.cancelarVenta(ventaId); return true; });
+        operaciones.add(() -> { ventaService.cancelarVenta(ventaId); return true; });
+
+        ExecutorService executor = Executors.newFixedThreadPool(operaciones.size());
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<Boolean>> resultados = new ArrayList<>();
+        for (Callable<Boolean> operacion : operaciones) {
+            resultados.add(executor.submit(() -> {
+                salida.await();
+                try {
+                    return operacion.call();
+                } catch (RuntimeException e) {
+                    return false;
+                }
+            }));
+        }
+        salida.countDown();
+
+        int exitosas = 0;
+        for (Future<Boolean> r : resultados) {
+            if (r.get(60, TimeUnit.SECONDS)) exitosas++;
+        }
+        executor.shutdown();
+
+        // Pase lo que pase primero, las 10 unidades vuelven exactamente una vez
+        assertThat(exitosas).isGreaterThanOrEqualTo(1);
+        assertThat(stockDe(producto.getId())).isEqualTo(100);
+    }
+
+    private static NotaCreditoRequestDTO nota(Integer ventaId, MotivoNota motivo) {
+        NotaCreditoRequestDTO request = new NotaCreditoRequestDTO();
+        request.setVentaId(ventaId);
+        request.setMotivo(motivo);
+        request.setMonto(new BigDecimal("1.00"));
+        return request;
+    }
+
+    private static NotaCreditoRequestDTO devolucionPorItem(Integer ventaId, Map<Integer, Integer> cantidades) {
+        NotaCreditoRequestDTO request = nota(ventaId, MotivoNota.DEVOLUCION_POR_ITEM);
+        List<NotaCreditoRequestDTO.ItemDevueltoDTO> items = new ArrayList<>();
+        new LinkedHashMap<>(cantidades).forEach((productoId, cantidad) -> {
+            NotaCreditoRequestDTO.ItemDevueltoDTO item = new NotaCreditoRequestDTO.ItemDevueltoDTO();
+            item.setProductoId(productoId);
+            item.setCantidad(cantidad);
+            items.add(item);
+        });
+        request.setItems(items);
+        return request;
+    }
+}
@@ -0,0 +1,73 @@
+package com.upc.smaf.servicesimplements;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reparto por mayor residuo (repartir): la suma es exacta, cada parte queda a menos de un céntimo de su
+ * proporción, los costos negativos son el espejo de los positivos y las bases en cero no reciben nada.
+ */
+class ProrrateoImportacionServiceTest {
+
+    @Test
+    void laSumaEsExactaYCadaParteQuedaJuntoASuProporcion() {
+        Random azar = new Random(42);
+        for (int caso = 0; caso < 2_000; caso++) {
+            long[] bases = new long[1 + azar.nextInt(40)];
+            for (int i = 0; i < bases.length; i++) bases[i] = azar.nextInt(5) == 0 ? 0 : 1 + azar.nextInt(1_000_000);
+            long costo = azar.nextInt(10_000_000);
+            long total = Arrays.stream(bases).sum();
+
+            long[] partes = ProrrateoImportacionService.repartir(costo, bases);
+
+            assertThat(Arrays.stream(partes).sum()).isEqualTo(total == 0 ? 0 : costo);
+            for (int i = 0; i < bases.length; i++) {
+                long piso = total == 0 ? 0 : Math.floorDiv(costo * bases[i], total);
+                assertThat(partes[i]).isBetween(piso, piso + 1);
+            }
+        }
+    }
+
+    @Test
+    void losCentimosSobrantesVanAlMayorResiduo() {
+        // 100 / 3 = 33,33...: el céntimo sobrante va a la primera factura (a igual residuo, el orden)
+        assertThat(ProrrateoImportacionService.repartir(100, new long[]{1, 1, 1})).containsExactly(34, 33, 33);
+        // 10 × 2/7 = 2,857 y 10 × 5/7 = 7,142: el residuo mayor es el de la primera
+        assertThat(ProrrateoImportacionService.repartir(10, new long[]{2, 5})).containsExactly(3, 7);
+    }
+
+    @Test
+    void unCostoNegativoEsElEspejoDelPositivo() {
+        long[] bases = {7, 3, 11, 0, 5};
+        long[] positivo = ProrrateoImportacionService.repartir(1_001, bases);
+        long[] negativo = ProrrateoImportacionService.repartir(-1_001, bases);
+
+        assertThat(Arrays.stream(negativo).sum()).isEqualTo(-1_001);
+        for (int i = 0; i < bases.length; i++) assertThat(negativo[i]).isEqualTo(-positivo[i]);
+    }
+
+    @Test
+    void basesEnCeroNoRecibenNada() {
+        assertThat(ProrrateoImportacionService.repartir(500, new long[]{0, 0, 0})).containsOnly(0L);
+        assertThat(ProrrateoImportacionService.repartir(500, new long[]{0, 4, 0, 1})).containsExactly(0, 400, 0, 100);
+        assertThat(ProrrateoImportacionService.repartir(500, new long[0])).isEmpty();
+        assertThat(ProrrateoImportacionService.repartir(0, new long[]{3, 4})).containsExactly(0, 0);
+    }
+
+    @Test
+    void montosQueDesbordanLongSeRepartenExactos() {
+        long costo = Long.MAX_VALUE / 2;
+        long[] bases = {Long.MAX_VALUE / 4, Long.MAX_VALUE / 4, 3};
+        long[] partes = ProrrateoImportacionService.repartir(costo, bases);
+
+        BigInteger suma = Arrays.stream(partes).mapToObj(BigInteger::valueOf).reduce(BigInteger.ZERO, BigInteger::add);
+        assertThat(suma).isEqualTo(BigInteger.valueOf(costo));
+        // costo y total son casi iguales: a la base 3 le tocan unos 3 céntimos
+        assertThat(partes[2]).isBetween(2L, 3L);
+    }
+}
@@ -0,0 +1,86 @@
+package com.upc.smaf.servicesimplements;
+
+import com.upc.smaf.BaseDatosTest;
+import com.upc.smaf.dtos.response.RecalculoImportacionDTO;
+import com.upc.smaf.entities.Importacion;
+import com.upc.smaf.repositories.ImportacionRepository;
+import com.upc.smaf.repositories.RecalculoImportacionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cola de recálculos en la BD: agrupa solicitudes, el trabajo solo existe si la transacción confirma
+ * y un trabajo abandonado por un nodo detenido se reprograma en otro.
+ */
+class RecalculoImportacionServiceTest extends BaseDatosTest {
+
+    @Autowired
+    private RecalculoImportacionService recalculoService;
+    @Autowired
+    private RecalculoImportacionRepository recalculoRepository;
+    @Autowired
+    private ImportacionRepository importacionRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void solicitudesSeguidasSeAgrupanEnUnTrabajo() throws Exception {
+        Integer importacionId = nuevaCarpeta();
+
+        RecalculoImportacionDTO primera = recalculoService.solicitar(importacionId);
+        RecalculoImportacionDTO segunda = recalculoService.solicitar(importacionId);
+
+        assertThat(segunda.getTrabajoId()).isEqualTo(primera.getTrabajoId());
+        assertThat(segunda.getSolicitudes()).isEqualTo(2);
+        assertThat(esperarFin(primera.getTrabajoId()).getEstado()).isEqualTo("COMPLETADO");
+    }
+
+    @Test
+    void laSolicitudDeUnaTransaccionRevertidaNoDejaTrabajo() {
+        Integer importacionId = nuevaCarpeta();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            recalculoService.solicitarAlConfirmar(importacionId);
+            status.setRollbackOnly();
+        });
+
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM recalculos_importacion WHERE importacion_id = ?",
+                Integer.class, importacionId)).isZero();
+    }
+
+    @Test
+    void trabajoAbandonadoSeReprogramaYTermina() throws Exception {
+        Integer importacionId = nuevaCarpeta();
+        // Un nodo tomó el trabajo hace una hora y se detuvo
+        String abandonado = recalculoRepository.encolar(UUID.randomUUID().toString(), importacionId, 0);
+        jdbc.update("UPDATE recalculos_importacion SET estado = 'EN_PROCESO', " +
+                "fecha_inicio = LOCALTIMESTAMP - INTERVAL '1 hour' WHERE id = ?", abandonado);
+
+        RecalculoImportacionDTO reprogramado = esperarFin(abandonado);
+        assertThat(reprogramado.getEstado()).isEqualTo("REPROGRAMADO");
+        assertThat(reprogramado.getTrabajoSiguienteId()).isNotNull();
+        assertThat(esperarFin(reprogramado.getTrabajoSiguienteId()).getEstado()).isEqualTo("COMPLETADO");
+    }
+
+    // Hace de revisión periódica (en las pruebas corre cada hora): toma los trabajos vencidos y los ya listos
+    private RecalculoImportacionDTO esperarFin(String trabajoId) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            recalculoService.procesarPendientes();
+            RecalculoImportacionDTO dto = recalculoService.obtener(trabajoId).orElseThrow();
+            if (dto.getFechaFin() != null) return dto;
+            Thread.sleep(100);
+        }
+        throw new AssertionError("El recálculo " + trabajoId + " no terminó");
+    }
+
+    private Integer nuevaCarpeta() {
+        Importacion imp = new Importacion();
+        imp.setCodigoAgrupador("RECALC-" + UUID.randomUUID().toString().substring(0, 8));
+        return importacionRepository.save(imp).getId();
+    }
+}
@@ -0,0 +1,74 @@
+package com.upc.smaf.servicesimplements;
+
+import com.upc.smaf.BaseDatosTest;
+import com.upc.smaf.entities.Producto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reservas concurrentes sobre los mismos productos: sin sobreventa y sin deadlocks.
+ */
+class ReservaStockServiceTest extends BaseDatosTest {
+
+    @Autowired
+    private ReservaStockService reservaStockService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void reservasConcurrentesNoSobrevendenNiSeBloqueanMutuamente() throws Exception {
+        Producto a = nuevoProducto(10, new BigDecimal("5.00"));
+        Producto b = nuevoProducto(10, new BigDecimal("5.00"));
+        int hilos = 24;
+
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<Boolean>> resultados = new ArrayList<>();
+        for (int i = 0; i < hilos; i++) {
+            // La mitad de las ventas trae los productos en el orden inverso
+            Map<Integer, Integer> cantidades = new LinkedHashMap<>();
+            if (i % 2 == 0) {
+                cantidades.put(a.getId(), 1);
+                cantidades.put(b.getId(), 1);
+            } else {
+                cantidades.put(b.getId(), 1);
+                cantidades.put(a.getId(), 1);
+            }
+            resultados.add(executor.submit(() -> {
+                salida.await();
+                try {
+                    transactionTemplate.executeWithoutResult(status -> reservaStockService.reservar(cantidades));
+                    return true;
+                } catch (RuntimeException e) {
+                    assertThat(e).hasMessageContaining("Stock insuficiente");
+                    return false;
+                }
+            }));
+        }
+        salida.countDown();
+
+        int confirmadas = 0;
+        for (Future<Boolean> r : resultados) {
+            if (r.get(30, TimeUnit.SECONDS)) confirmadas++;
+        }
+        executor.shutdown();
+
+        assertThat(confirmadas).isEqualTo(10);
+        assertThat(stockDe(a.getId())).isZero();
+        assertThat(stockDe(b.getId())).isZero();
+    }
+}
@@ -0,0 +1,85 @@
+package com.upc.smaf.servicesimplements;
+
+import com.upc.smaf.BaseDatosTest;
+import com.upc.smaf.entities.MetodoPago;
+import com.upc.smaf.entities.Pago;
+import com.upc.smaf.entities.Producto;
+import com.upc.smaf.entities.Venta;
+import com.upc.smaf.serviceinterface.ResumenVentasService;
+import com.upc.smaf.serviceinterface.VentaService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * El resumen diario de pagos cuenta cada pago en su fecha de pago, no en la fecha de la venta,
+ * tanto en el registro incremental como en la reconstrucción.
+ */
+class ResumenVentasServiceImplTest extends BaseDatosTest {
+
+    private static final BigDecimal PRECIO = new BigDecimal("8.00");
+
+    @Autowired
+    private ResumenVentasService resumenVentasService;
+    @Autowired
+    private VentaService ventaService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void registroIncrementalUsaLaFechaDelPago() {
+        // Moneda exclusiva de esta prueba: sus filas de resumen no se mezclan con las de otras
+        jdbc.update("DELETE FROM resumen_pagos_diario WHERE moneda = 'XTS'");
+        LocalDate diaVenta = LocalDate.of(2018, 5, 10);
+        LocalDate diaPago = LocalDate.of(2018, 6, 2);
+
+        Venta venta = new Venta();
+        venta.setFechaVenta(diaVenta.atTime(9, 0));
+        Pago pago = new Pago();
+        pago.setMonto(new BigDecimal("30.00"));
+        pago.setMoneda("XTS");
+        pago.setMetodoPago(MetodoPago.EFECTIVO);
+        pago.setFechaPago(diaPago.atTime(16, 30));
+
+        transactionTemplate.executeWithoutResult(s -> resumenVentasService.registrarPagos(venta, List.of(pago)));
+        assertThat(montoDelDia(diaPago, "XTS")).isEqualByComparingTo("30.00");
+        assertThat(montoDelDia(diaVenta, "XTS")).isNull();
+
+        transactionTemplate.executeWithoutResult(s -> resumenVentasService.revertirPagos(venta, List.of(pago)));
+        assertThat(montoDelDia(diaPago, "XTS")).isEqualByComparingTo("0");
+    }
+
+    @Test
+    void reconstruccionUsaLaFechaDelPago() {
+        Producto producto = nuevoProducto(10, PRECIO);
+        Integer ventaId = ventaService.crearVenta(ventaAlContado(Map.of(producto.getId(), 2), PRECIO)).getId();
+        LocalDate diaVenta = LocalDate.of(2019, 2, 20);
+        LocalDate diaPago = LocalDate.of(2019, 3, 15);
+        jdbc.update("UPDATE ventas SET fecha_venta = ? WHERE id = ?", Timestamp.valueOf(diaVenta.atTime(11, 0)), ventaId);
+        jdbc.update("UPDATE pagos SET fecha_pago = ? WHERE venta_id = ?", Timestamp.valueOf(diaPago.atTime(18, 0)), ventaId);
+
+        resumenVentasService.reconstruir(diaVenta, diaPago);
+
+        // La base de pruebas se reutiliza entre corridas: se compara con los pagos de ese día, que incluyen este
+        BigDecimal pagosDelDia = jdbc.queryForObject("SELECT SUM(p.monto) FROM pagos p JOIN ventas v ON v.id = p.venta_id " +
+                "WHERE CAST(p.fecha_pago AS date) = ? AND p.moneda = 'PEN' AND v.estado NOT IN ('BORRADOR', 'CANCELADA')",
+                BigDecimal.class, Date.valueOf(diaPago));
+        assertThat(pagosDelDia).isGreaterThanOrEqualTo(new BigDecimal("16.00"));
+        assertThat(montoDelDia(diaPago, "PEN")).isEqualByComparingTo(pagosDelDia);
+        assertThat(montoDelDia(diaVenta, "PEN")).isNull();
+    }
+
+    private BigDecimal montoDelDia(LocalDate fecha, String moneda) {
+        return jdbc.query("SELECT SUM(monto) FROM resumen_pagos_diario WHERE fecha = ? AND moneda = ?",
+                (rs, i) -> rs.getBigDecimal(1), Date.valueOf(fecha), moneda).get(0);
+    }
+}
@@ -0,0 +1,103 @@
+package com.upc.smaf.servicesimplements;
+
+import com.upc.smaf.BaseDatosTest;
+import com.upc.smaf.entities.Producto;
+import com.upc.smaf.repositories.ValorInventarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * El valor de inventario guardado en valor_inventario coincide con el SUM real de productos
+ * después de reservas concurrentes, transacciones revertidas y la reconciliación.
+ */
+class ValorInventarioServiceTest extends BaseDatosTest {
+
+    @Autowired
+    private ValorInventarioService valorInventarioService;
+    @Autowired
+    private ValorInventarioRepository valorInventarioRepository;
+    @Autowired
+    private ReservaStockService reservaStockService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Las demás pruebas escriben productos con UPDATE directos: se parte sin desvío
+    @BeforeEach
+    void sinDesvio() {
+        valorInventarioService.reconciliar();
+    }
+
+    @Test
+    void reservasConcurrentesYRevertidasDejanElValorExacto() throws Exception {
+        Producto a = nuevoProducto(200, new BigDecimal("3.50"));
+        Producto b = nuevoProducto(200, new BigDecimal("7.25"));
+        assertThat(valorInventarioService.obtenerValor()).isEqualByComparingTo(valorReal());
+
+        int hilos = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<?>> resultados = new ArrayList<>();
+        for (int i = 0; i < hilos; i++) {
+            boolean revertir = i % 4 == 0;
+            resultados.add(executor.submit(() -> {
+                salida.await();
+                transactionTemplate.executeWithoutResult(status -> {
+                    reservaStockService.reservar(Map.of(a.getId(), 2, b.getId(), 1));
+                    if (revertir) status.setRollbackOnly();
+                });
+                return null;
+            }));
+        }
+        salida.countDown();
+        for (Future<?> r : resultados) r.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertThat(stockDe(a.getId())).isEqualTo(200 - 12 * 2);
+        assertThat(valorInventarioService.obtenerValor()).isEqualByComparingTo(valorReal());
+        assertThat(valorInventarioRepository.corregirDesvio()).isEmpty();
+    }
+
+    @Test
+    void excepcionDentroDeLaTransaccionNoDejaVariacion() {
+        Producto a = nuevoProducto(10, new BigDecimal("4.00"));
+        BigDecimal antes = valorInventarioService.obtenerValor();
+
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+            reservaStockService.reservar(Map.of(a.getId(), 5));
+            throw new IllegalStateException("falla");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(valorInventarioService.obtenerValor()).isEqualByComparingTo(antes);
+    }
+
+    @Test
+    void reconciliarCorrigeUnCambioHechoFueraDeLaAplicacion() {
+        Producto a = nuevoProducto(10, new BigDecimal("2.00"));
+        jdbc.update("UPDATE productos SET stock_actual = 30 WHERE id_producto = ?", a.getId());
+        assertThat(valorInventarioService.obtenerValor()).isNotEqualByComparingTo(valorReal());
+
+        valorInventarioService.reconciliar();
+
+        assertThat(valorInventarioService.obtenerValor()).isEqualByComparingTo(valorReal());
+    }
+
+    private BigDecimal valorReal() {
+        return jdbc.queryForObject("SELECT COALESCE(SUM(stock_actual * costo_total), 0) FROM productos " +
+                "WHERE costo_total IS NOT NULL", BigDecimal.class);
+    }
+}
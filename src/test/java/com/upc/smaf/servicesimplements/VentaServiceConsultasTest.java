@@ -0,0 +1,81 @@
+package com.upc.smaf.servicesimplements;
+
+import com.upc.smaf.BaseDatosTest;
+import com.upc.smaf.dtos.request.VentaRequestDTO;
+import com.upc.smaf.dtos.response.VentaResponseDTO;
+import com.upc.smaf.entities.EstadoVenta;
+import com.upc.smaf.entities.Producto;
+import com.upc.smaf.serviceinterface.VentaService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Listados con detalles y pagos: la cantidad de sentencias no depende de cuántas ventas se devuelven (sin N+1).
+ */
+class VentaServiceConsultasTest extends BaseDatosTest {
+
+    private static final BigDecimal PRECIO = new BigDecimal("4.20");
+
+    @Autowired
+    private VentaService ventaService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics estadisticas;
+
+    @BeforeEach
+    void estadisticas() {
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void listarPorEstadoUsaDosSentencias() {
+        crearVentas("Estado " + UUID.randomUUID(), 5);
+
+        estadisticas.clear();
+        List<VentaResponseDTO> ventas = ventaService.listarPorEstado(EstadoVenta.COMPLETADA);
+
+        assertThat(ventas).hasSizeGreaterThanOrEqualTo(5);
+        assertThat(ventas).allSatisfy(v -> assertThat(v.getPagos()).isNotEmpty());
+        // Ventas + detalles + productos; pagos + cuenta destino
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void buscarPorClienteNoCreceConLosResultados() {
+        String cliente = "Busqueda " + UUID.randomUUID();
+        long[] sentencias = new long[2];
+        int[] cantidades = {1, 12};
+        for (int i = 0; i < cantidades.length; i++) {
+            crearVentas(cliente, cantidades[i] - (i > 0 ? cantidades[i - 1] : 0));
+
+            estadisticas.clear();
+            List<VentaResponseDTO> ventas = ventaService.buscarPorCliente(cliente);
+            sentencias[i] = estadisticas.getPrepareStatementCount();
+            assertThat(ventas).hasSize(cantidades[i]);
+        }
+        // Ids por relevancia, ventas con detalles y pagos
+        assertThat(sentencias[0]).isEqualTo(3);
+        assertThat(sentencias[1]).isEqualTo(sentencias[0]);
+    }
+
+    private void crearVentas(String cliente, int cantidad) {
+        Producto producto = nuevoProducto(1_000, PRECIO);
+        for (int i = 0; i < cantidad; i++) {
+            VentaRequestDTO venta = ventaAlContado(Map.of(producto.getId(), 2), PRECIO);
+            venta.setNombreCliente(cliente);
+            ventaService.crearVenta(venta);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.upc.smaf.servicesimplements;
+
+import com.upc.smaf.BaseDatosTest;
+import com.upc.smaf.dtos.request.VentaRequestDTO;
+import com.upc.smaf.dtos.response.LoteVentasResponseDTO;
+import com.upc.smaf.entities.Producto;
+import com.upc.smaf.serviceinterface.VentaService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Importación masiva: una fila que no cumple las restricciones del DTO se informa en su resultado
+ * y el resto del lote se registra.
+ */
+class VentaServiceLoteTest extends BaseDatosTest {
+
+    private static final BigDecimal PRECIO = new BigDecimal("5.00");
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Test
+    void filaInvalidaNoRechazaElLote() {
+        Producto producto = nuevoProducto(100, PRECIO);
+        VentaRequestDTO invalida = ventaAlContado(Map.of(producto.getId(), 1), PRECIO);
+        invalida.getDetalles().get(0).setCantidad(0);
+
+        LoteVentasResponseDTO lote = ventaService.crearVentasEnLote(List.of(
+                ventaAlContado(Map.of(producto.getId(), 2), PRECIO),
+                invalida,
+                ventaAlContado(Map.of(producto.getId(), 3), PRECIO)));
+
+        assertThat(lote.getExitosas()).isEqualTo(2);
+        assertThat(lote.getFallidas()).isEqualTo(1);
+        LoteVentasResponseDTO.ResultadoFila fila = lote.getResultados().get(1);
+        assertThat(fila.isExito()).isFalse();
+        assertThat(fila.getMensaje()).contains("detalles[0].cantidad");
+        assertThat(stockDe(producto.getId())).isEqualTo(100 - 5);
+    }
+}
@@ -0,0 +1,63 @@
+package com.upc.smaf.servicesimplements;
+
+import com.upc.smaf.BaseDatosTest;
+import com.upc.smaf.entities.Producto;
+import com.upc.smaf.serviceinterface.VentaService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * crearVenta con 1, 10 y 100 líneas: la cantidad de sentencias no depende del tamaño de la venta
+ * (salvo los bloques de 50 de los batch inserts y de las secuencias).
+ */
+class VentaServiceRendimientoTest extends BaseDatosTest {
+
+    private static final int CALENTAMIENTO = 5;
+    private static final int REPETICIONES = 20;
+
+    @Autowired
+    private VentaService ventaService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void sentenciasNoCrecenConLasLineasDeLaVenta() {
+        List<Producto> productos = new ArrayList<>();
+        for (int i = 0; i < 100; i++) productos.add(nuevoProducto(1_000_000, new BigDecimal("3.50")));
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Map<Integer, Long> sentencias = new LinkedHashMap<>();
+        for (int lineas : new int[]{1, 10, 100}) {
+            Map<Integer, Integer> cantidades = new LinkedHashMap<>();
+            for (int i = 0; i < lineas; i++) cantidades.put(productos.get(i).getId(), 1);
+
+            for (int i = 0; i < CALENTAMIENTO; i++) ventaService.crearVenta(ventaAlContado(cantidades, new BigDecimal("9.90")));
+
+            // Las estadísticas son globales: otra tarea en segundo plano puede sumar sentencias a alguna venta,
+            // así que se toma la venta con menos
+            long minimo = Long.MAX_VALUE;
+            for (int i = 0; i < REPETICIONES; i++) {
+                estadisticas.clear();
+                ventaService.crearVenta(ventaAlContado(cantidades, new BigDecimal("9.90")));
+                minimo = Math.min(minimo, estadisticas.getPrepareStatementCount());
+            }
+            sentencias.put(lineas, minimo);
+        }
+
+        // 100 líneas = dos bloques de batch insert y, a lo sumo, dos reservas más de la secuencia de detalles
+        assertThat(sentencias.get(10)).isEqualTo(sentencias.get(1));
+        assertThat(sentencias.get(100) - sentencias.get(1)).isLessThanOrEqualTo(4);
+        assertThat(stockDe(productos.get(0).getId())).isEqualTo(1_000_000 - 3 * (CALENTAMIENTO + REPETICIONES));
+    }
+}